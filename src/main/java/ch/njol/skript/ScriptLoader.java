@@ -18,26 +18,41 @@
  */
 package ch.njol.skript;
 
+import ch.njol.skript.command.ScriptCommand;
 import ch.njol.skript.config.Config;
+import ch.njol.skript.config.EntryNode;
 import ch.njol.skript.config.Node;
 import ch.njol.skript.config.SectionNode;
 import ch.njol.skript.config.SimpleNode;
+import ch.njol.skript.events.EvtScript;
 import ch.njol.skript.events.bukkit.PreScriptLoadEvent;
 import ch.njol.skript.lang.Section;
+import ch.njol.skript.lang.SkriptEvent;
 import ch.njol.skript.lang.SkriptParser;
 import ch.njol.skript.lang.Statement;
+import ch.njol.skript.lang.Trigger;
 import ch.njol.skript.lang.TriggerItem;
 import ch.njol.skript.lang.TriggerSection;
+import ch.njol.skript.lang.function.Function;
+import ch.njol.skript.lang.function.Functions;
+import ch.njol.skript.lang.function.ScriptFunction;
+import ch.njol.skript.lang.function.Signature;
+import ch.njol.skript.lang.parser.LiteralParseCache;
+import ch.njol.skript.lang.parser.ParseCache;
 import ch.njol.skript.lang.parser.ParserInstance;
 import ch.njol.skript.log.CountingLogHandler;
 import ch.njol.skript.log.LogEntry;
 import ch.njol.skript.log.RetainingLogHandler;
 import ch.njol.skript.log.SkriptLogger;
 import ch.njol.skript.sections.SecLoop;
+import ch.njol.skript.structures.StructCommand;
+import ch.njol.skript.structures.StructEvent;
+import ch.njol.skript.structures.StructFunction;
 import ch.njol.skript.structures.StructOptions.OptionsData;
 import ch.njol.skript.util.ExceptionUtils;
 import ch.njol.skript.util.SkriptColor;
 import ch.njol.skript.util.Task;
+import ch.njol.skript.util.TimerWheel;
 import ch.njol.skript.util.Timespan;
 import ch.njol.skript.variables.TypeHints;
 import ch.njol.util.Kleenean;
@@ -48,20 +63,28 @@ import org.bukkit.Bukkit;
 import org.bukkit.event.Event;
 import org.eclipse.jdt.annotation.Nullable;
 import org.skriptlang.skript.lang.script.Script;
+import org.skriptlang.skript.lang.script.ScriptData;
 import org.skriptlang.skript.lang.structure.Structure;
 
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -69,8 +92,10 @@ import java.util.TreeSet;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -488,21 +513,29 @@ public class ScriptLoader {
 		if (configs.isEmpty()) // Nothing to load
 			return CompletableFuture.completedFuture(new ScriptInfo());
 
+		Functions.invalidateCaches();
+
 		Bukkit.getPluginManager().callEvent(new PreScriptLoadEvent(configs));
 		
 		ScriptInfo scriptInfo = new ScriptInfo();
+		LiteralParseCache.start();
 
-		List<LoadingScriptInfo> scripts = new ArrayList<>();
+		// indexed by config, so the loading order does not depend on which script was parsed first
+		LoadingScriptInfo[] scripts = new LoadingScriptInfo[configs.size()];
 
 		List<CompletableFuture<Void>> scriptInfoFutures = new ArrayList<>();
-		for (Config config : configs) {
+		for (int i = 0; i < configs.size(); i++) {
+			Config config = configs.get(i);
 			if (config == null)
 				throw new NullPointerException();
 			
+			int index = i;
 			CompletableFuture<Void> future = makeFuture(() -> {
 				LoadingScriptInfo info = loadScript(config);
-				scripts.add(info);
-				scriptInfo.add(new ScriptInfo(1, info.structures.size()));
+				scripts[index] = info;
+				synchronized (scriptInfo) {
+					scriptInfo.add(new ScriptInfo(1, info.structures.size()));
+				}
 				return null;
 			}, openCloseable);
 			
@@ -511,112 +544,231 @@ public class ScriptLoader {
 		
 		return CompletableFuture.allOf(scriptInfoFutures.toArray(new CompletableFuture[0]))
 			.thenApply(unused -> {
-				// TODO in the future this won't work when parallel loading is fixed
-				// It does now though so let's avoid calling getParser() a bunch.
-				ParserInstance parser = getParser();
-
 				try {
 					openCloseable.open();
 
-					// build sorted list
 					// this nest of pairs is terrible, but we need to keep the reference to the modifiable structures list
-					List<NonNullPair<LoadingScriptInfo, Structure>> pairs = scripts.stream()
+					List<NonNullPair<LoadingScriptInfo, Structure>> pairs = Arrays.stream(scripts)
 							.flatMap(info -> { // Flatten each entry down to a stream of Script-Structure pairs
 								return info.structures.stream()
 										.map(structure -> new NonNullPair<>(info, structure));
 							})
-							.sorted(Comparator.comparing(pair -> pair.getSecond().getPriority()))
 							.collect(Collectors.toCollection(ArrayList::new));
-
-					// pre-loading
-					pairs.removeIf(pair -> {
-						LoadingScriptInfo loadingInfo = pair.getFirst();
-						Structure structure = pair.getSecond();
-
-						parser.setActive(loadingInfo.script);
-						parser.setCurrentStructure(structure);
-						parser.setNode(loadingInfo.nodeMap.get(structure));
-
-						try {
-							if (!structure.preLoad()) {
-								loadingInfo.structures.remove(structure);
-								return true;
-							}
-						} catch (Exception e) {
-							//noinspection ThrowableNotThrown
-							Skript.exception(e, "An error occurred while trying to preLoad a Structure.");
-							loadingInfo.structures.remove(structure);
-							return true;
-						}
-						return false;
-					});
-					parser.setInactive();
-
-					// TODO in the future, Structure#load/Structure#postLoad should be split across multiple threads if parallel loading is enabled.
-					// However, this is not possible right now as reworks in multiple areas will be needed.
-					// For example, the "Commands" class still uses a static list for currentArguments that is cleared between loads.
-					// Until these reworks happen, limiting main loading to asynchronous (not parallel) is the only choice we have.
-
-					// loading
-					pairs.removeIf(pair -> {
-						LoadingScriptInfo loadingInfo = pair.getFirst();
-						Structure structure = pair.getSecond();
-
-						parser.setActive(loadingInfo.script);
-						parser.setCurrentStructure(structure);
-						parser.setNode(loadingInfo.nodeMap.get(structure));
-
-						try {
-							if (!structure.load()) {
-								loadingInfo.structures.remove(structure);
-								return true;
-							}
-						} catch (Exception e) {
-							//noinspection ThrowableNotThrown
-							Skript.exception(e, "An error occurred while trying to load a Structure.");
-							loadingInfo.structures.remove(structure);
-							return true;
-						}
-						return false;
-					});
-					parser.setInactive();
-
-					// post-loading
-					pairs.removeIf(pair -> {
-						LoadingScriptInfo loadingInfo = pair.getFirst();
-						Structure structure = pair.getSecond();
-
-						parser.setActive(loadingInfo.script);
-						parser.setCurrentStructure(structure);
-						parser.setNode(loadingInfo.nodeMap.get(structure));
-
-						try {
-							if (!structure.postLoad()) {
-								loadingInfo.structures.remove(structure);
-								return true;
-							}
-						} catch (Exception e) {
-							//noinspection ThrowableNotThrown
-							Skript.exception(e, "An error occurred while trying to postLoad a Structure.");
-							loadingInfo.structures.remove(structure);
-							return true;
-						}
-						return false;
-					});
-					parser.setInactive();
+					loadStructures(pairs, openCloseable);
 
 					return scriptInfo;
 				} catch (Exception e) {
 					// Something went wrong, we need to make sure the exception is printed
 					throw Skript.exception(e);
 				} finally {
-					parser.setInactive();
+					getParser().setInactive();
 
 					openCloseable.close();
 				}
+			})
+			.whenComplete((info, throwable) -> {
+				// also when loading failed, so the caches are written and don't stay attached to the scripts
+				try {
+					for (LoadingScriptInfo loadingInfo : scripts) {
+						if (loadingInfo != null)
+							ParseCache.detach(loadingInfo.script);
+					}
+				} finally {
+					LiteralParseCache.stop();
+				}
 			});
 	}
 
+	/**
+	 * Runs all loading stages for the given structures, in order of their priority.
+	 * Every structure that fails a stage is removed from its script.
+	 * @param pairs The structures to load, paired with the script they belong to. This list is modified.
+	 * @param openCloseable The {@link OpenCloseable} to open around the work of other threads, see {@link #loadStage}.
+	 */
+	private static void loadStructures(List<NonNullPair<LoadingScriptInfo, Structure>> pairs, OpenCloseable openCloseable) {
+		pairs.sort(Comparator.comparing(pair -> pair.getSecond().getPriority()));
+
+		// Pre-loading and loading may be spread across the async loaders.
+		// Post-loading is where structures publish themselves (e.g. triggers being registered to their events),
+		// so it stays on this thread to keep the order of registration, and thus of execution, deterministic.
+		loadStage(pairs, LoadingStage.PRE_LOAD, true, openCloseable);
+		loadStage(pairs, LoadingStage.LOAD, true, openCloseable);
+		loadStage(pairs, LoadingStage.POST_LOAD, false, openCloseable);
+	}
+
+	/**
+	 * The stages every {@link Structure} goes through while being loaded.
+	 */
+	private enum LoadingStage {
+
+		PRE_LOAD("preLoad") {
+			@Override
+			boolean run(Structure structure) {
+				return structure.preLoad();
+			}
+		},
+
+		LOAD("load") {
+			@Override
+			boolean run(Structure structure) {
+				return structure.load();
+			}
+		},
+
+		POST_LOAD("postLoad") {
+			@Override
+			boolean run(Structure structure) {
+				return structure.postLoad();
+			}
+		};
+
+		private final String methodName;
+
+		LoadingStage(String methodName) {
+			this.methodName = methodName;
+		}
+
+		abstract boolean run(Structure structure);
+
+	}
+
+	/**
+	 * Runs a {@link LoadingStage} for the given structures.
+	 * Every structure that fails the stage is removed from the list and from its script.
+	 * <br>
+	 * The structures must be sorted by their priority, which is the order they are handled in.
+	 * If {@code parallel} is true and {@link #isParallel()} returns true, structures of the same priority
+	 * are spread across the async loaders. Each priority is a barrier:
+	 * no structure is handled before all structures of the higher priorities are done.
+	 *
+	 * @param pairs The structures to load, paired with the script they belong to.
+	 * @param stage The stage to run.
+	 * @param parallel Whether this stage may be run by multiple threads.
+	 * @param openCloseable The {@link OpenCloseable} to open around the work of every other thread.
+	 */
+	private static void loadStage(
+		List<NonNullPair<LoadingScriptInfo, Structure>> pairs, LoadingStage stage,
+		boolean parallel, OpenCloseable openCloseable
+	) {
+		int size = pairs.size();
+		boolean[] failed = new boolean[size];
+
+		// we only block if this is not the main thread, as structures may need to run tasks on it
+		parallel &= isParallel() && !Bukkit.isPrimaryThread();
+
+		int start = 0;
+		while (start < size) {
+			Structure.Priority priority = pairs.get(start).getSecond().getPriority();
+			int end = start + 1;
+			while (end < size && pairs.get(end).getSecond().getPriority().compareTo(priority) == 0)
+				end++;
+
+			if (parallel && end - start > 1) {
+				loadParallel(pairs, start, end, stage, failed, openCloseable);
+			} else {
+				ParserInstance parser = getParser();
+				for (int i = start; i < end; i++)
+					failed[i] = !loadStructure(parser, pairs.get(i), stage);
+				parser.setInactive();
+			}
+
+			start = end;
+		}
+
+		// remove failed structures, in order
+		List<NonNullPair<LoadingScriptInfo, Structure>> loaded = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			NonNullPair<LoadingScriptInfo, Structure> pair = pairs.get(i);
+			if (failed[i]) {
+				pair.getFirst().structures.remove(pair.getSecond());
+			} else {
+				loaded.add(pair);
+			}
+		}
+		if (loaded.size() != size) {
+			pairs.clear();
+			pairs.addAll(loaded);
+		}
+	}
+
+	/**
+	 * Runs a {@link LoadingStage} for the structures from {@code start} (inclusive) to {@code end} (exclusive)
+	 * on the async loaders, returning once all of them have been handled.
+	 * <br>
+	 * The calling thread takes structures as well, so this can't deadlock if all loaders are busy.
+	 * Loaders only start working if there still are structures left to take,
+	 * and each of them uses its own {@link ParserInstance}.
+	 */
+	private static void loadParallel(
+		List<NonNullPair<LoadingScriptInfo, Structure>> pairs, int start, int end,
+		LoadingStage stage, boolean[] failed, OpenCloseable openCloseable
+	) {
+		AtomicInteger next = new AtomicInteger(start);
+		CountDownLatch remaining = new CountDownLatch(end - start);
+
+		Runnable worker = () -> {
+			ParserInstance parser = getParser();
+			int i;
+			while ((i = next.getAndIncrement()) < end) {
+				try {
+					failed[i] = !loadStructure(parser, pairs.get(i), stage);
+				} finally {
+					remaining.countDown();
+				}
+			}
+			parser.setInactive();
+		};
+
+		int helpers = Math.min(asyncLoaderSize, end - start) - 1;
+		for (int i = 0; i < helpers; i++) {
+			loadQueue.add(() -> {
+				if (next.get() >= end) // everything has been taken already
+					return;
+				try {
+					openCloseable.open();
+					try {
+						worker.run();
+					} finally {
+						openCloseable.close();
+					}
+				} catch (Throwable t) {
+					//noinspection ThrowableNotThrown
+					Skript.exception(t);
+				}
+			});
+		}
+
+		worker.run();
+
+		try {
+			remaining.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw Skript.exception(e, "Interrupted while waiting for structures to " + stage.methodName);
+		}
+	}
+
+	/**
+	 * Runs a {@link LoadingStage} for a single structure, using the given {@link ParserInstance}.
+	 * @return Whether the structure passed the stage.
+	 */
+	private static boolean loadStructure(ParserInstance parser, NonNullPair<LoadingScriptInfo, Structure> pair, LoadingStage stage) {
+		LoadingScriptInfo loadingInfo = pair.getFirst();
+		Structure structure = pair.getSecond();
+
+		parser.setActive(loadingInfo.script);
+		parser.setCurrentStructure(structure);
+		parser.setNode(loadingInfo.nodeMap.get(structure));
+
+		try {
+			return stage.run(structure);
+		} catch (Exception e) {
+			//noinspection ThrowableNotThrown
+			Skript.exception(e, "An error occurred while trying to " + stage.methodName + " a Structure.");
+			return false;
+		}
+	}
+
 	private static class LoadingScriptInfo {
 
 		public final Script script;
@@ -647,6 +799,8 @@ public class ScriptLoader {
 		Map<Structure, Node> nodeMap = new HashMap<>();
 		List<Structure> structures = new ArrayList<>();
 		Script script = new Script(config, structures);
+		if (SkriptConfig.parseCache.value())
+			ParseCache.attach(script);
 		parser.setActive(script);
 
 		try {
@@ -655,25 +809,7 @@ public class ScriptLoader {
 			
 			try (CountingLogHandler ignored = new CountingLogHandler(SkriptLogger.SEVERE).start()) {
 				for (Node node : config.getMainNode()) {
-					if (!(node instanceof SimpleNode) && !(node instanceof SectionNode)) {
-						// unlikely to occur, but just in case
-						Skript.error("could not interpret line as a structure");
-						continue;
-					}
-
-					String line = node.getKey();
-					if (line == null)
-						continue;
-					line = replaceOptions(line); // replace options here before validation
-
-					if (!SkriptParser.validateLine(line))
-						continue;
-
-					if (Skript.logVeryHigh() && !Skript.debug())
-						Skript.info("loading trigger '" + line + "'");
-
-					Structure structure = Structure.parse(line, node, "Can't understand this structure: " + line);
-
+					Structure structure = parseStructure(node);
 					if (structure == null)
 						continue;
 
@@ -692,6 +828,8 @@ public class ScriptLoader {
 		} finally {
 			parser.setInactive();
 		}
+
+		script.addData(new LoadedStructures(structures, nodeMap));
 		
 		// In always sync task, enable stuff
 		Callable<Void> callable = () -> {
@@ -720,6 +858,34 @@ public class ScriptLoader {
 		return new LoadingScriptInfo(script, structures, nodeMap);
 	}
 
+	/**
+	 * Parses a top-level node of a script as a structure.
+	 * The script the node belongs to must be active.
+	 * @param node The node to parse.
+	 * @return The parsed structure, or null if the node is not a valid structure. Errors are printed in this case.
+	 */
+	@Nullable
+	private static Structure parseStructure(Node node) {
+		if (!(node instanceof SimpleNode) && !(node instanceof SectionNode)) {
+			// unlikely to occur, but just in case
+			Skript.error("could not interpret line as a structure");
+			return null;
+		}
+
+		String line = node.getKey();
+		if (line == null)
+			return null;
+		line = replaceOptions(line); // replace options here before validation
+
+		if (!SkriptParser.validateLine(line))
+			return null;
+
+		if (Skript.logVeryHigh() && !Skript.debug())
+			Skript.info("loading trigger '" + line + "'");
+
+		return Structure.parse(line, node, "Can't understand this structure: " + line);
+	}
+
 	/*
 	 * Script Structure Loading Methods
 	 */
@@ -850,6 +1016,7 @@ public class ScriptLoader {
 			parser.setActive(script);
 			for (Structure structure : script.getStructures())
 				structure.unload();
+			TimerWheel.getInstance().cancel(script); // only has delays of the script if 'cancel delays on unload' is enabled
 		}
 
 		parser.setInactive();
@@ -907,6 +1074,37 @@ public class ScriptLoader {
 	 * @return Info on the loaded Scripts.
 	 */
 	public static CompletableFuture<ScriptInfo> reloadScripts(Set<Script> scripts, OpenCloseable openCloseable) {
+		Functions.invalidateCaches();
+		if (SkriptConfig.incrementalReloading.value()) {
+			List<CompletableFuture<ScriptInfo>> futures = new ArrayList<>();
+			Set<Script> remaining = new LinkedHashSet<>();
+			for (Script script : scripts) {
+				CompletableFuture<ScriptInfo> future = reloadChangedStructures(script, openCloseable);
+				if (future != null) {
+					futures.add(future);
+				} else {
+					remaining.add(script);
+				}
+			}
+			if (!futures.isEmpty()) {
+				if (!remaining.isEmpty())
+					futures.add(reloadScriptsFully(remaining, openCloseable));
+				return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+					.thenApply(unused -> {
+						ScriptInfo info = new ScriptInfo();
+						for (CompletableFuture<ScriptInfo> future : futures)
+							info.add(future.join());
+						return info;
+					});
+			}
+		}
+		return reloadScriptsFully(scripts, openCloseable);
+	}
+
+	/**
+	 * Fully reloads all provided Scripts, by unloading them and loading them again.
+	 */
+	private static CompletableFuture<ScriptInfo> reloadScriptsFully(Set<Script> scripts, OpenCloseable openCloseable) {
 		unloadScripts(scripts);
 
 		List<Config> configs = new ArrayList<>();
@@ -921,6 +1119,267 @@ public class ScriptLoader {
 		return loadScripts(configs, openCloseable);
 	}
 	
+	/**
+	 * The structures of a loaded script, along with the nodes they were parsed from.
+	 * Used to find the structures that changed when the script is reloaded.
+	 */
+	private static final class LoadedStructures implements ScriptData {
+
+		/**
+		 * The modifiable list of structures of the script.
+		 */
+		private final List<Structure> structures;
+
+		private final Map<Structure, Node> nodes;
+
+		private LoadedStructures(List<Structure> structures, Map<Structure, Node> nodes) {
+			this.structures = structures;
+			this.nodes = nodes;
+		}
+
+	}
+
+	/**
+	 * Checks whether the given structure only affects itself,
+	 * meaning it can be reloaded without reloading the rest of its script.
+	 * Other structures, such as options and aliases, affect how the rest of the script is parsed.
+	 * Script load and unload events are excluded too, as they are bound to the loading of the whole script.
+	 */
+	private static boolean isSelfContained(Structure structure) {
+		if (structure instanceof StructEvent)
+			structure = ((StructEvent) structure).getSkriptEvent();
+		if (structure instanceof EvtScript)
+			return false;
+		return structure instanceof SkriptEvent || structure instanceof StructCommand || structure instanceof StructFunction;
+	}
+
+	/**
+	 * Computes a hash of the contents of a top-level node of a script, including the line numbers of its children
+	 * relative to the node. The node's own line number is left out, so a structure that only moved
+	 * because lines above it were added or removed is kept, and only its line numbers are {@link #shiftLines(Script, Structure, int) shifted}.
+	 */
+	private static String hashNode(Node node) {
+		StringBuilder builder = new StringBuilder();
+		appendNode(builder, node, node.getLine());
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] hash = digest.digest(builder.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder hex = new StringBuilder(hash.length * 2);
+			for (byte b : hash)
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every Java platform supports SHA-256
+		}
+	}
+
+	private static void appendNode(StringBuilder builder, Node node, int firstLine) {
+		builder.append(node.getLine() - firstLine).append(' ')
+			.append(node.getClass().getSimpleName()).append(' ')
+			.append(node.getKey());
+		if (node instanceof EntryNode)
+			builder.append(": ").append(((EntryNode) node).getValue());
+		builder.append('\n');
+		if (node instanceof SectionNode) {
+			for (Node child : (SectionNode) node)
+				appendNode(builder, child, firstLine);
+			builder.append("end\n");
+		}
+	}
+
+	/**
+	 * @return The trigger containing the code of the given structure, or null if it has none or was not loaded.
+	 */
+	@Nullable
+	private static Trigger getTrigger(Script script, Structure structure) {
+		if (structure instanceof StructEvent)
+			structure = ((StructEvent) structure).getSkriptEvent();
+		if (structure instanceof SkriptEvent)
+			return ((SkriptEvent) structure).getTrigger();
+		if (structure instanceof StructCommand) {
+			ScriptCommand command = ((StructCommand) structure).getScriptCommand();
+			return command != null ? command.getTrigger() : null;
+		}
+		if (structure instanceof StructFunction) {
+			Signature<?> signature = ((StructFunction) structure).getSignature();
+			if (signature == null)
+				return null;
+			Function<?> function = Functions.getFunction(signature.getName(), script.getConfig().getFileName());
+			return function instanceof ScriptFunction ? ((ScriptFunction<?>) function).getTrigger() : null;
+		}
+		return null;
+	}
+
+	/**
+	 * Moves the line numbers of a kept structure's trigger by the given amount of lines,
+	 * as lines above the structure were added or removed.
+	 */
+	private static void shiftLines(Script script, Structure structure, int lines) {
+		Trigger trigger = getTrigger(script, structure);
+		if (trigger == null)
+			return;
+		trigger.setLineNumber(trigger.getLineNumber() + lines);
+		if (structure instanceof StructEvent) // the labels of events contain their line, see SkriptEvent#load
+			trigger.setDebugLabel(script + ": line " + trigger.getLineNumber());
+	}
+
+	/**
+	 * Reloads only the structures of a script that changed since it was loaded.
+	 * Structures whose nodes are unchanged are kept as they are, only updating their line numbers if they moved,
+	 * removed structures are unloaded, and changed or added structures are parsed and loaded.
+	 * Afterwards, the structures and the triggers of events are in the same order as after a full reload.
+	 * <br>
+	 * This is only possible if all removed, changed and added structures are {@link #isSelfContained(Structure) self-contained},
+	 * and no function signature was added, removed or changed, as other structures of the script could depend on them.
+	 *
+	 * @param script The script to reload.
+	 * @param openCloseable See {@link #reloadScripts(Set, OpenCloseable)}.
+	 * @return Info on the reloaded script, or null if the script has to be reloaded fully.
+	 */
+	@Nullable
+	private static CompletableFuture<ScriptInfo> reloadChangedStructures(Script script, OpenCloseable openCloseable) {
+		LoadedStructures loaded = script.getData(LoadedStructures.class);
+		File file = script.getConfig().getFile();
+		if (loaded == null || file == null)
+			return null;
+
+		// hash the current structures, structures with the same contents are matched in order
+		Map<String, Deque<Structure>> current = new HashMap<>();
+		for (Structure structure : loaded.structures) {
+			Node node = loaded.nodes.get(structure);
+			if (node == null)
+				return null;
+			current.computeIfAbsent(hashNode(node), hash -> new ArrayDeque<>()).add(structure);
+		}
+
+		Config config = loadStructure(file);
+		if (config == null)
+			return null;
+
+		// find the nodes that changed, and remember the order of all nodes
+		List<Node> nodes = new ArrayList<>();
+		Map<Node, Structure> kept = new HashMap<>();
+		List<Node> added = new ArrayList<>();
+		for (Node node : config.getMainNode()) {
+			if (node.getKey() == null)
+				continue;
+			nodes.add(node);
+			Deque<Structure> structures = current.get(hashNode(node));
+			Structure structure = structures != null ? structures.poll() : null;
+			if (structure != null) {
+				kept.put(node, structure);
+			} else {
+				added.add(node);
+			}
+		}
+		Set<Structure> keptStructures = new HashSet<>(kept.values());
+		List<Structure> removed = new ArrayList<>();
+		for (Structure structure : loaded.structures) {
+			if (!keptStructures.contains(structure))
+				removed.add(structure);
+		}
+
+		// parse the headers of the added structures, so we know what they are
+		ParserInstance parser = getParser();
+		Map<Structure, Node> addedStructures = new LinkedHashMap<>();
+		parser.setActive(script);
+		try {
+			for (Node node : added) {
+				Structure structure = parseStructure(node);
+				if (structure != null)
+					addedStructures.put(structure, node);
+			}
+		} finally {
+			parser.setInactive();
+		}
+
+		// check if the changes can be applied without reloading the whole script
+		List<String> removedSignatures = new ArrayList<>();
+		for (Structure structure : removed) {
+			if (!isSelfContained(structure))
+				return null;
+			if (structure instanceof StructFunction)
+				removedSignatures.add(loaded.nodes.get(structure).getKey());
+		}
+		List<String> addedSignatures = new ArrayList<>();
+		for (Map.Entry<Structure, Node> entry : addedStructures.entrySet()) {
+			if (!isSelfContained(entry.getKey()))
+				return null;
+			if (entry.getKey() instanceof StructFunction)
+				addedSignatures.add(entry.getValue().getKey());
+		}
+		Collections.sort(removedSignatures);
+		Collections.sort(addedSignatures);
+		if (!removedSignatures.equals(addedSignatures))
+			return null;
+
+		if (Skript.debug())
+			Skript.debug("Reloading " + removed.size() + " of " + loaded.structures.size() + " structures of " + config.getFileName());
+
+		// move the kept structures to their new lines
+		for (Map.Entry<Node, Structure> entry : kept.entrySet()) {
+			Structure structure = entry.getValue();
+			int lines = entry.getKey().getLine() - loaded.nodes.get(structure).getLine();
+			if (lines != 0)
+				shiftLines(script, structure, lines);
+			loaded.nodes.put(structure, entry.getKey());
+		}
+
+		// unload the removed structures
+		parser.setActive(script);
+		for (Structure structure : removed)
+			structure.unload();
+		for (Structure structure : removed) {
+			structure.postUnload();
+			// calls from the kept structures have to use the reloaded function
+			if (structure instanceof StructFunction) {
+				Signature<?> signature = ((StructFunction) structure).getSignature();
+				if (signature != null)
+					Functions.queueLocalCalls(signature);
+			}
+			loaded.structures.remove(structure);
+			loaded.nodes.remove(structure);
+		}
+		parser.setInactive();
+
+		// put the structures in file order, and load the added ones
+		Map<Node, Structure> structures = new HashMap<>(kept);
+		for (Map.Entry<Structure, Node> entry : addedStructures.entrySet())
+			structures.put(entry.getValue(), entry.getKey());
+		loaded.structures.clear();
+		for (Node node : nodes) {
+			Structure structure = structures.get(node);
+			if (structure != null)
+				loaded.structures.add(structure);
+		}
+		loaded.nodes.putAll(addedStructures);
+		LoadingScriptInfo loadingInfo = new LoadingScriptInfo(script, loaded.structures, loaded.nodes);
+		return makeFuture(() -> {
+			List<NonNullPair<LoadingScriptInfo, Structure>> pairs = new ArrayList<>();
+			for (Structure structure : addedStructures.keySet())
+				pairs.add(new NonNullPair<>(loadingInfo, structure));
+			try {
+				loadStructures(pairs, openCloseable);
+			} finally {
+				getParser().setInactive();
+			}
+
+			// a full reload registers the triggers of events in the order they are loaded in,
+			// while the added triggers were registered after the kept ones
+			List<Structure> ordered = new ArrayList<>(loaded.structures);
+			ordered.sort(Comparator.comparing(Structure::getPriority));
+			List<Trigger> triggers = new ArrayList<>();
+			for (Structure structure : ordered) {
+				Trigger trigger = structure instanceof StructEvent ? getTrigger(script, structure) : null;
+				if (trigger != null)
+					triggers.add(trigger);
+			}
+			SkriptEventHandler.reorderBukkitEvents(triggers);
+
+			return new ScriptInfo(1, loaded.structures.size());
+		}, openCloseable);
+	}
+
 	/*
 	 * Code Loading Methods
 	 */
@@ -41,10 +41,14 @@ import ch.njol.skript.lang.ExpressionType;
 import ch.njol.skript.lang.Section;
 import ch.njol.skript.lang.SkriptEvent;
 import ch.njol.skript.lang.SkriptEventInfo;
+import ch.njol.skript.lang.SkriptParser;
 import ch.njol.skript.lang.Statement;
 import ch.njol.skript.lang.SyntaxElementInfo;
 import ch.njol.skript.lang.Trigger;
 import ch.njol.skript.lang.TriggerItem;
+import ch.njol.skript.lang.TriggerWatchdog;
+import ch.njol.skript.lang.parser.ParseCache;
+import ch.njol.skript.lang.parser.ParseStatistics;
 import ch.njol.skript.lang.util.SimpleExpression;
 import ch.njol.skript.localization.Language;
 import ch.njol.skript.localization.Message;
@@ -68,12 +72,14 @@ import ch.njol.skript.timings.SkriptTimings;
 import ch.njol.skript.update.ReleaseManifest;
 import ch.njol.skript.update.ReleaseStatus;
 import ch.njol.skript.update.UpdateManifest;
+import ch.njol.skript.util.AsyncSectionExecutor;
 import ch.njol.skript.util.Date;
 import ch.njol.skript.util.EmptyStacktraceException;
 import ch.njol.skript.util.ExceptionUtils;
 import ch.njol.skript.util.FileUtils;
 import ch.njol.skript.util.Getter;
 import ch.njol.skript.util.Task;
+import ch.njol.skript.util.TimerWheel;
 import ch.njol.skript.util.Utils;
 import ch.njol.skript.util.Version;
 import ch.njol.skript.util.chat.BungeeConverter;
@@ -83,6 +89,7 @@ import ch.njol.util.Closeable;
 import ch.njol.util.Kleenean;
 import ch.njol.util.NullableChecker;
 import ch.njol.util.StringUtils;
+import ch.njol.util.coll.iterator.ArrayIterator;
 import ch.njol.util.coll.iterator.CheckedIterator;
 import ch.njol.util.coll.iterator.EnumerationIterable;
 import com.google.common.collect.Lists;
@@ -136,6 +143,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -146,6 +154,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.logging.Filter;
@@ -709,8 +718,9 @@ public final class Skript extends JavaPlugin implements Listener {
 									// Don't attempt to run inner/anonymous classes as tests
 									classes.removeIf(Class::isAnonymousClass);
 									classes.removeIf(Class::isLocalClass);
-									// Test that requires package access. This is only present when compiling with src/test.
+									// Tests that require package access. These are only present when compiling with src/test.
 									classes.add(Class.forName("ch.njol.skript.variables.FlatFileStorageTest"));
+									classes.add(Class.forName("ch.njol.skript.variables.VariableSubscriptionTest"));
 									size = classes.size();
 									for (Class<?> clazz : classes) {
 										// Reset class SkriptJUnitTest which stores test requirements.
@@ -1222,8 +1232,14 @@ public final class Skript extends JavaPlugin implements Listener {
 			beforeDisable();
 		}
 
+		TimerWheel.getInstance().stop();
+		TriggerWatchdog.stop();
+		AsyncSectionExecutor.stop();
 		Bukkit.getScheduler().cancelTasks(this);
 
+		if (!isAcceptRegistrations() && SkriptConfig.adaptiveSyntaxOrder.value())
+			ParseStatistics.save();
+
 		for (Closeable c : closeOnDisable) {
 			try {
 				c.close();
@@ -1323,6 +1339,26 @@ public final class Skript extends JavaPlugin implements Listener {
 		acceptRegistrations = false;
 
 		Classes.onRegistrationsStop();
+
+		List<SyntaxElementInfo<?>> syntaxes = new ArrayList<>();
+		syntaxes.addAll(statements);
+		syntaxes.addAll(sections);
+		syntaxes.addAll(expressions);
+		syntaxes.addAll(events);
+		syntaxes.addAll(structures);
+		SkriptParser.compilePatterns(syntaxes);
+
+		if (SkriptConfig.adaptiveSyntaxOrder.value()) {
+			ParseStatistics.load();
+			// the new order doesn't change what scripts are parsed as, so it mustn't invalidate their parse caches
+			ParseCache.freezeFingerprint();
+			ParseStatistics.reorder(statements);
+			ParseStatistics.reorder(conditions);
+			ParseStatistics.reorder(effects);
+			ParseStatistics.reorder(sections);
+		}
+
+		SkriptParser.buildKeywordIndex(syntaxes);
 	}
 
 	// ================ ADDONS ================
@@ -1375,10 +1411,10 @@ public final class Skript extends JavaPlugin implements Listener {
 
 	// ================ CONDITIONS & EFFECTS & SECTIONS ================
 
-	private static final Collection<SyntaxElementInfo<? extends Condition>> conditions = new ArrayList<>(50);
-	private static final Collection<SyntaxElementInfo<? extends Effect>> effects = new ArrayList<>(50);
-	private static final Collection<SyntaxElementInfo<? extends Statement>> statements = new ArrayList<>(100);
-	private static final Collection<SyntaxElementInfo<? extends Section>> sections = new ArrayList<>(50);
+	private static final List<SyntaxElementInfo<? extends Condition>> conditions = new ArrayList<>(50);
+	private static final List<SyntaxElementInfo<? extends Effect>> effects = new ArrayList<>(50);
+	private static final List<SyntaxElementInfo<? extends Statement>> statements = new ArrayList<>(100);
+	private static final List<SyntaxElementInfo<? extends Section>> sections = new ArrayList<>(50);
 
 	/**
 	 * registers a {@link Condition}.
@@ -1463,14 +1499,32 @@ public final class Skript extends JavaPlugin implements Listener {
 		for (int i = type.ordinal(); i < ExpressionType.values().length; i++) {
 			expressionTypesStartIndices[i]++;
 		}
+		// expressions registered while testing shift the indices of the others
+		compatibleExpressions.clear();
+		expressionsByReturnTypes.clear();
 	}
 
+	/**
+	 * For each requested return type, the indices in {@link #expressions} of the expressions that can return it.
+	 */
+	private static final Map<Class<?>, BitSet> compatibleExpressions = new ConcurrentHashMap<>();
+
+	/**
+	 * The expressions that can return one of the requested return types, for each requested set of return types.
+	 */
+	private static final Map<List<Class<?>>, ExpressionInfo<?, ?>[]> expressionsByReturnTypes = new ConcurrentHashMap<>();
+
 	@SuppressWarnings("null")
 	public static Iterator<ExpressionInfo<?, ?>> getExpressions() {
 		return expressions.iterator();
 	}
 
 	public static Iterator<ExpressionInfo<?, ?>> getExpressions(final Class<?>... returnTypes) {
+		if (!acceptRegistrations) {
+			// Converters can't change anymore, so the expressions for these return types can be computed once
+			ExpressionInfo<?, ?>[] infos = expressionsByReturnTypes.computeIfAbsent(List.of(returnTypes), Skript::computeExpressions);
+			return new ArrayIterator<>(infos);
+		}
 		return new CheckedIterator<>(getExpressions(), new NullableChecker<ExpressionInfo<?, ?>>() {
 			@Override
 			public boolean check(final @Nullable ExpressionInfo<?, ?> i) {
@@ -1486,6 +1540,37 @@ public final class Skript extends JavaPlugin implements Listener {
 		});
 	}
 
+	/**
+	 * Computes the expressions that can return one of the given return types, in the order they are tried.
+	 */
+	private static ExpressionInfo<?, ?>[] computeExpressions(List<Class<?>> returnTypes) {
+		BitSet compatible = new BitSet(expressions.size());
+		for (Class<?> returnType : returnTypes)
+			compatible.or(compatibleExpressions.computeIfAbsent(returnType, Skript::computeCompatibleExpressions));
+		ExpressionInfo<?, ?>[] infos = new ExpressionInfo[compatible.cardinality()];
+		int i = 0;
+		for (int index = compatible.nextSetBit(0); index >= 0; index = compatible.nextSetBit(index + 1))
+			infos[i++] = expressions.get(index);
+		return infos;
+	}
+
+	/**
+	 * Computes the indices of the expressions that can return the given type,
+	 * either directly, by conversion, or because they return {@link Object}.
+	 */
+	private static BitSet computeCompatibleExpressions(Class<?> returnType) {
+		// expressions often share their return type, so each is only checked once
+		Map<Class<?>, Boolean> convertible = new HashMap<>();
+		BitSet compatible = new BitSet(expressions.size());
+		for (int i = 0; i < expressions.size(); i++) {
+			Class<?> expressionType = expressions.get(i).returnType;
+			if (expressionType == Object.class
+					|| convertible.computeIfAbsent(expressionType, type -> Converters.converterExists(type, returnType)))
+				compatible.set(i);
+		}
+		return compatible;
+	}
+
 	// ================ EVENTS ================
 
 	private static final List<SkriptEventInfo<?>> events = new ArrayList<>(50);
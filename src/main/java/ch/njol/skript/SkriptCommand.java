@@ -22,6 +22,10 @@ import ch.njol.skript.aliases.Aliases;
 import ch.njol.skript.command.CommandHelp;
 import ch.njol.skript.doc.Documentation;
 import ch.njol.skript.doc.HTMLGenerator;
+import ch.njol.skript.lang.SyntaxElementInfo;
+import ch.njol.skript.lang.function.Functions;
+import ch.njol.skript.lang.function.ScriptFunction;
+import ch.njol.skript.lang.parser.ParseStatistics;
 import ch.njol.skript.localization.ArgsMessage;
 import ch.njol.skript.localization.Language;
 import ch.njol.skript.localization.PluralizingArgsMessage;
@@ -30,9 +34,12 @@ import ch.njol.skript.log.TimingLogHandler;
 import ch.njol.skript.test.runner.SkriptTestEvent;
 import ch.njol.skript.test.runner.TestMode;
 import ch.njol.skript.test.runner.TestTracker;
+import ch.njol.skript.util.AsyncSectionExecutor;
 import ch.njol.skript.util.ExceptionUtils;
 import ch.njol.skript.util.FileUtils;
 import ch.njol.skript.util.SkriptColor;
+import ch.njol.skript.util.TimerWheel;
+import ch.njol.skript.variables.VariablesBackup;
 import ch.njol.util.OpenCloseable;
 import ch.njol.util.StringUtils;
 import org.bukkit.Bukkit;
@@ -47,10 +54,13 @@ import org.skriptlang.skript.lang.script.Script;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -59,6 +69,11 @@ public class SkriptCommand implements CommandExecutor {
 	private static final String CONFIG_NODE = "skript command";
 	private static final ArgsMessage m_reloading = new ArgsMessage(CONFIG_NODE + ".reload.reloading");
 
+	/**
+	 * The amount of syntax elements listed by {@code /skript statistics}.
+	 */
+	private static final int STATISTICS_LINES = 20;
+
 	// TODO /skript scripts show/list - lists all enabled and/or disabled scripts in the scripts folder and/or subfolders (maybe add a pattern [using * and **])
 	// TODO document this command on the website
 	private static final CommandHelp SKRIPT_COMMAND_HELP = new CommandHelp("<gray>/<gold>skript", SkriptColor.LIGHT_CYAN, CONFIG_NODE + ".help")
@@ -78,6 +93,12 @@ public class SkriptCommand implements CommandExecutor {
 			.add("check")
 			.add("changes")
 			.add("download")
+		).add(new CommandHelp("variables", SkriptColor.DARK_CYAN)
+			.add("backup")
+			.add(new CommandHelp("restore", SkriptColor.DARK_CYAN)
+				.add("<backup>")
+			)
+		).add("statistics"
 		).add("info"
 		).add("help");
 
@@ -185,9 +206,8 @@ public class SkriptCommand implements CommandExecutor {
 						reloading(sender, "script", scriptFile.getName());
 
 						Script script = ScriptLoader.getScript(scriptFile);
-						if (script != null)
-							ScriptLoader.unloadScript(script);
-						ScriptLoader.loadScripts(scriptFile, OpenCloseable.combine(logHandler, timingLogHandler))
+						OpenCloseable openCloseable = OpenCloseable.combine(logHandler, timingLogHandler);
+						(script != null ? ScriptLoader.reloadScript(script, openCloseable) : ScriptLoader.loadScripts(scriptFile, openCloseable))
 							.thenAccept(scriptInfo ->
 								reloaded(sender, logHandler, timingLogHandler, "script", scriptFile.getName())
 							);
@@ -356,6 +376,99 @@ public class SkriptCommand implements CommandExecutor {
 				}
 			}
 
+			else if (args[0].equalsIgnoreCase("variables")) {
+				List<VariablesBackup> backups = VariablesBackup.getAll();
+				if (backups.isEmpty()) {
+					Skript.error(sender, "No database uses compressed backups. Set 'backup format' to 'compressed' or 'incremental' in the config to use them.");
+					return true;
+				}
+
+				if (args[1].equalsIgnoreCase("backup")) {
+					Skript.info(sender, "Backing up variables...");
+					// the variables are serialized on the main thread, only the writing happens asynchronously
+					List<VariablesBackup.Snapshot> snapshots = new ArrayList<>(backups.size());
+					for (VariablesBackup backup : backups)
+						snapshots.add(backup.snapshot());
+					Bukkit.getScheduler().runTaskAsynchronously(Skript.getInstance(), () -> {
+						for (int i = 0; i < backups.size(); i++) {
+							VariablesBackup backup = backups.get(i);
+							try {
+								Skript.info(sender, "Created the backup " + backup.write(snapshots.get(i)).getName());
+							} catch (IOException e) {
+								Skript.error(sender, "Could not back up " + backup.getStorageFile().getName() + ": " + ExceptionUtils.toString(e));
+							}
+						}
+					});
+				}
+
+				else if (args[1].equalsIgnoreCase("restore")) {
+					String name = StringUtils.join(args, " ", 2, args.length);
+					VariablesBackup owner = null;
+					File backupFile = null;
+					for (VariablesBackup backup : backups) {
+						backupFile = backup.getBackup(name);
+						if (backupFile != null) {
+							owner = backup;
+							break;
+						}
+					}
+					if (owner == null) {
+						Skript.error(sender, "Can't find the backup '" + name + "'");
+						return true;
+					}
+
+					VariablesBackup restoringBackup = owner;
+					File restoredFile = backupFile;
+					Skript.info(sender, "Restoring the variables of " + owner.getStorageFile().getName() + " from " + restoredFile.getName() + "...");
+					// Read on another thread, but deserialize and apply on the main thread
+					Bukkit.getScheduler().runTaskAsynchronously(Skript.getInstance(), () -> {
+						VariablesBackup.Contents contents;
+						try {
+							contents = VariablesBackup.read(restoredFile);
+						} catch (IOException e) {
+							Skript.error(sender, "Could not read the backup " + restoredFile.getName() + ": " + ExceptionUtils.toString(e));
+							return;
+						}
+						Bukkit.getScheduler().runTask(Skript.getInstance(), () -> {
+							int restored = restoringBackup.restore(contents);
+							Skript.info(sender, "Restored " + restored + " variables from " + restoredFile.getName());
+						});
+					});
+				}
+			}
+
+			else if (args[0].equalsIgnoreCase("statistics")) {
+				List<SyntaxElementInfo<?>> infos = ParseStatistics.getSyntaxElements();
+				infos.removeIf(info -> info.getStatistics().getNanos() == 0);
+				List<ScriptFunction<?>> functions = Functions.getCachedFunctions();
+				TimerWheel delays = TimerWheel.getInstance();
+				info(sender, "statistics.delays", delays.getScheduled(), delays.getLastTickResumed(),
+					delays.getMaxTickResumed(), delays.getTotalResumed());
+				info(sender, "statistics.async sections", AsyncSectionExecutor.getActive(), AsyncSectionExecutor.getQueued(),
+					AsyncSectionExecutor.getMaxQueued(), AsyncSectionExecutor.getCompleted(), AsyncSectionExecutor.getRanOnCaller());
+				if (infos.isEmpty() && functions.isEmpty()) {
+					info(sender, "statistics.none");
+					return true;
+				}
+				if (!infos.isEmpty()) {
+					infos.sort(Comparator.comparingLong((SyntaxElementInfo<?> info) -> info.getStatistics().getNanos()).reversed());
+					info(sender, "statistics.header");
+					for (SyntaxElementInfo<?> info : infos.subList(0, Math.min(STATISTICS_LINES, infos.size()))) {
+						ParseStatistics statistics = info.getStatistics();
+						info(sender, "statistics.line", info.getElementClass().getSimpleName(),
+							statistics.getHits(), statistics.getMisses(), String.format(Locale.ENGLISH, "%.1f", statistics.getNanos() / 1_000_000.0));
+					}
+				}
+				if (!functions.isEmpty()) {
+					functions.sort(Comparator.comparingLong((ScriptFunction<?> function) -> function.getCacheHits() + function.getCacheMisses()).reversed());
+					info(sender, "statistics.functions header");
+					for (ScriptFunction<?> function : functions.subList(0, Math.min(STATISTICS_LINES, functions.size()))) {
+						info(sender, "statistics.function line", function.getName(),
+							function.getCacheHits(), function.getCacheMisses(), function.getCacheSize());
+					}
+				}
+			}
+
 			else if (args[0].equalsIgnoreCase("info")) {
 				info(sender, "info.aliases");
 				info(sender, "info.documentation");
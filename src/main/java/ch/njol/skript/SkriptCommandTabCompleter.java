@@ -20,6 +20,7 @@ package ch.njol.skript;
 
 import ch.njol.skript.doc.Documentation;
 import ch.njol.skript.test.runner.TestMode;
+import ch.njol.skript.variables.VariablesBackup;
 import ch.njol.util.StringUtils;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -47,6 +48,14 @@ public class SkriptCommandTabCompleter implements TabCompleter {
 			options.add("check");
 			options.add("changes");
 			options.add("download");
+		} else if (args[0].equalsIgnoreCase("variables") && args.length == 2) {
+			options.add("backup");
+			options.add("restore");
+		} else if (args[0].equalsIgnoreCase("variables") && args[1].equalsIgnoreCase("restore") && args.length == 3) {
+			for (VariablesBackup backup : VariablesBackup.getAll()) {
+				for (File file : backup.getBackups())
+					options.add(file.getName());
+			}
 		} else if (args[0].matches("(?i)(reload|disable|enable)") && args.length >= 2) {
 			File scripts = Skript.getInstance().getScriptsFolder();
 			String scriptsPathString = scripts.toPath().toString();
@@ -116,6 +125,8 @@ public class SkriptCommandTabCompleter implements TabCompleter {
 			options.add("enable");
 			options.add("disable");
 			options.add("update");
+			options.add("variables");
+			options.add("statistics");
 			options.add("info");
 			if (Documentation.getDocsTemplateDirectory().exists())
 				options.add("gen-docs");
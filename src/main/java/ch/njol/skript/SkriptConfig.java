@@ -29,12 +29,14 @@ import ch.njol.skript.hooks.regions.GriefPreventionHook;
 import ch.njol.skript.hooks.regions.PreciousStonesHook;
 import ch.njol.skript.hooks.regions.ResidenceHook;
 import ch.njol.skript.hooks.regions.WorldGuardHook;
+import ch.njol.skript.lang.TriggerWatchdog;
 import ch.njol.skript.lang.function.Function;
 import ch.njol.skript.localization.Language;
 import ch.njol.skript.log.SkriptLogger;
 import ch.njol.skript.log.Verbosity;
 import ch.njol.skript.timings.SkriptTimings;
 import ch.njol.skript.update.ReleaseChannel;
+import ch.njol.skript.util.AsyncSectionExecutor;
 import ch.njol.skript.util.FileUtils;
 import ch.njol.skript.util.Timespan;
 import ch.njol.skript.util.Version;
@@ -252,6 +254,9 @@ public class SkriptConfig {
 	public static final Option<Boolean> caseInsensitiveVariables = new Option<>("case-insensitive variables", true)
 			.setter(t -> Variables.caseInsensitiveVariables = t);
 
+	public static final Option<Boolean> variablesSnapshot = new Option<>("variables snapshot", false)
+			.optional(true);
+
 	public static final Option<Boolean> caseInsensitiveCommands = new Option<>("case-insensitive commands", false)
 		.optional(true);
 	
@@ -283,6 +288,15 @@ public class SkriptConfig {
 			})
 			.optional(true);
 	
+	public static final Option<Boolean> parseCache = new Option<>("parse cache", false)
+			.optional(true);
+	
+	public static final Option<Boolean> incrementalReloading = new Option<>("incremental reloading", false)
+			.optional(true);
+	
+	public static final Option<Boolean> adaptiveSyntaxOrder = new Option<>("adaptive syntax order", false)
+			.optional(true);
+	
 	public static final Option<Boolean> allowUnsafePlatforms = new Option<>("allow unsafe platforms", false)
 			.optional(true);
 
@@ -296,6 +310,12 @@ public class SkriptConfig {
 			.optional(true)
 			.setter(t -> Function.executeWithNulls = t);
 
+	public static final Option<Boolean> cancelDelaysOnUnload = new Option<>("cancel delays on unload", false)
+			.optional(true);
+
+	public static final Option<Integer> functionCacheSize = new Option<>("function cache size", 1000)
+			.optional(true);
+
 	public final static Option<Boolean> disableHookVault = new Option<>("disable hooks.vault", false)
 		.optional(true)
 		.setter(value -> {
@@ -346,6 +366,17 @@ public class SkriptConfig {
 
 	public static final Option<Timespan> longParseTimeWarningThreshold = new Option<>("long parse time warning threshold", new Timespan(0));
 
+	public static final Option<Timespan> loopBudget = new Option<>("loop budget", new Timespan(10))
+			.optional(true);
+
+	public static final Option<Timespan> triggerWatchdogThreshold = new Option<>("trigger watchdog threshold", new Timespan(0))
+			.optional(true)
+			.setter(TriggerWatchdog::setThreshold);
+
+	public static final Option<Integer> asyncSectionThreads = new Option<>("async section threads", 2)
+			.optional(true)
+			.setter(AsyncSectionExecutor::setThreads);
+
 	/**
 	 * This should only be used in special cases
 	 */
@@ -18,6 +18,7 @@
  */
 package ch.njol.skript;
 
+import ch.njol.skript.lang.DiscriminatedEvent;
 import ch.njol.skript.lang.SkriptEvent;
 import ch.njol.skript.lang.Trigger;
 import ch.njol.skript.timings.SkriptTimings;
@@ -39,13 +40,18 @@ import org.eclipse.jdt.annotation.Nullable;
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public final class SkriptEventHandler {
@@ -85,9 +91,197 @@ public final class SkriptEventHandler {
 	/**
 	 * A Multimap tracking what Triggers are paired with what Events.
 	 * Each Event effectively maps to an ArrayList of Triggers.
+	 * Access must be synchronized on this map, as triggers may be registered by multiple loader threads.
 	 */
 	private static final Multimap<Class<? extends Event>, Trigger> triggers = ArrayListMultimap.create();
 
+	/**
+	 * The triggers to execute for an event class, split by priority and by whether they run for cancelled events.
+	 * Built from {@link #triggers} when an event class is first called, see {@link #getDispatchTable(Class)}.
+	 */
+	private static final class DispatchTable {
+
+		/**
+		 * Whether there are no triggers for the event class at all.
+		 */
+		private final boolean empty;
+
+		/**
+		 * The triggers of each priority, indexed by the ordinal of the priority,
+		 * for uncancelled events at index 0 and for cancelled events at index 1.
+		 */
+		private final TriggerList[][] triggers;
+
+		private DispatchTable(List<Trigger> triggers) {
+			this.empty = triggers.isEmpty();
+			EventPriority[] priorities = EventPriority.values();
+			this.triggers = new TriggerList[priorities.length][2];
+			for (EventPriority priority : priorities) {
+				for (int cancelled = 0; cancelled < 2; cancelled++) {
+					boolean isCancelled = cancelled == 1;
+					Trigger[] matching = triggers.stream()
+						.filter(trigger -> trigger.getEvent().getEventPriority() == priority)
+						.filter(trigger -> trigger.getEvent().getListeningBehavior().matches(isCancelled))
+						.toArray(Trigger[]::new);
+					this.triggers[priority.ordinal()][cancelled] = matching.length == 0 ? TriggerList.EMPTY : new TriggerList(matching);
+				}
+			}
+		}
+
+		private TriggerList getTriggers(EventPriority priority, boolean cancelled) {
+			return triggers[priority.ordinal()][cancelled ? 1 : 0];
+		}
+
+	}
+
+	/**
+	 * An ordered list of triggers for one event class, priority and cancel state.
+	 * Triggers of {@link DiscriminatedEvent}s are additionally indexed by their keys,
+	 * so only the triggers whose keys include the key of a called event are checked.
+	 * Triggers are always executed in the order they were registered in.
+	 */
+	private static final class TriggerList {
+
+		private static final TriggerList EMPTY = new TriggerList(new Trigger[0]);
+
+		private static final int[] NO_POSITIONS = new int[0];
+
+		private final Trigger[] triggers;
+
+		/**
+		 * The positions of the triggers that aren't indexed, or null if no trigger is indexed.
+		 */
+		private final int @Nullable [] unindexed;
+
+		/**
+		 * The discriminators used by the indexed triggers.
+		 */
+		private final DiscriminatedEvent.Discriminator[] discriminators;
+
+		/**
+		 * For each discriminator, the positions of all triggers indexed by it.
+		 * These are checked if the discriminator can't determine the key of a called event.
+		 */
+		private final int[][] discriminated;
+
+		/**
+		 * For each discriminator, the positions of the triggers indexed by it by key.
+		 */
+		private final List<Map<Object, int[]>> keyed;
+
+		/**
+		 * Scratch arrays for {@link #execute(Event)}, so dispatching an event on the main thread doesn't allocate.
+		 * They are only used on the main thread and not while an event called by one of the triggers is dispatched.
+		 */
+		private final int[][] candidates;
+		private final int[] next;
+		private boolean scratchInUse;
+
+		private TriggerList(Trigger[] triggers) {
+			this.triggers = triggers;
+
+			List<Integer> unindexed = new ArrayList<>();
+			Map<DiscriminatedEvent.Discriminator, List<Integer>> discriminated = new LinkedHashMap<>();
+			Map<DiscriminatedEvent.Discriminator, Map<Object, List<Integer>>> keyed = new HashMap<>();
+			for (int i = 0; i < triggers.length; i++) {
+				SkriptEvent event = triggers[i].getEvent();
+				Collection<?> keys = event instanceof DiscriminatedEvent ? ((DiscriminatedEvent) event).getDiscriminatorKeys() : null;
+				if (keys == null) {
+					unindexed.add(i);
+					continue;
+				}
+				DiscriminatedEvent.Discriminator discriminator = ((DiscriminatedEvent) event).getDiscriminator();
+				discriminated.computeIfAbsent(discriminator, d -> new ArrayList<>()).add(i);
+				Map<Object, List<Integer>> byKey = keyed.computeIfAbsent(discriminator, d -> new HashMap<>());
+				for (Object key : keys) {
+					List<Integer> positions = byKey.computeIfAbsent(key, k -> new ArrayList<>());
+					if (positions.isEmpty() || positions.get(positions.size() - 1) != i) // keys may contain duplicates
+						positions.add(i);
+				}
+			}
+
+			this.unindexed = discriminated.isEmpty() ? null : toArray(unindexed);
+			this.discriminators = discriminated.keySet().toArray(new DiscriminatedEvent.Discriminator[0]);
+			this.discriminated = new int[discriminators.length][];
+			this.keyed = new ArrayList<>(discriminators.length);
+			for (int i = 0; i < discriminators.length; i++) {
+				this.discriminated[i] = toArray(discriminated.get(discriminators[i]));
+				Map<Object, int[]> byKey = new HashMap<>();
+				keyed.get(discriminators[i]).forEach((key, positions) -> byKey.put(key, toArray(positions)));
+				this.keyed.add(byKey);
+			}
+			this.candidates = new int[discriminators.length + 1][];
+			this.next = new int[discriminators.length + 1];
+		}
+
+		private static int[] toArray(List<Integer> positions) {
+			return positions.isEmpty() ? NO_POSITIONS : positions.stream().mapToInt(Integer::intValue).toArray();
+		}
+
+		/**
+		 * Executes the triggers that may apply to the given event, in the order they were registered in.
+		 */
+		private void execute(Event event) {
+			int[] unindexed = this.unindexed;
+			if (unindexed == null) {
+				for (Trigger trigger : triggers)
+					SkriptEventHandler.execute(trigger, event);
+				return;
+			}
+
+			// async events and events called by triggers while this list is dispatching another event can't use the scratch arrays
+			boolean scratch = !scratchInUse && Bukkit.isPrimaryThread();
+			int[][] candidates = scratch ? this.candidates : new int[discriminators.length + 1][];
+			int[] next = scratch ? this.next : new int[candidates.length];
+			if (scratch) {
+				scratchInUse = true;
+				Arrays.fill(next, 0);
+			}
+			try {
+				// the candidates are the unindexed triggers and the indexed triggers of the event's keys
+				candidates[0] = unindexed;
+				for (int i = 0; i < discriminators.length; i++) {
+					Object key = discriminators[i].getKey(event);
+					candidates[i + 1] = key == null ? discriminated[i] : keyed.get(i).getOrDefault(key, NO_POSITIONS);
+				}
+
+				// merge the sorted positions, as every trigger is in at most one of them
+				while (true) {
+					int min = -1;
+					for (int i = 0; i < candidates.length; i++) {
+						if (next[i] < candidates[i].length && (min == -1 || candidates[i][next[i]] < candidates[min][next[min]]))
+							min = i;
+					}
+					if (min == -1)
+						return;
+					SkriptEventHandler.execute(triggers[candidates[min][next[min]++]], event);
+				}
+			} finally {
+				if (scratch)
+					scratchInUse = false;
+			}
+		}
+
+	}
+
+	/**
+	 * The dispatch tables of the event classes that have been called, by the class of the called event.
+	 * Cleared whenever a trigger is registered or unregistered. Tables are only built and added
+	 * while synchronized on {@link #triggers}, so a table never outlives a change of the triggers it was built from.
+	 */
+	private static final Map<Class<? extends Event>, DispatchTable> dispatchTables = new ConcurrentHashMap<>();
+
+	private static DispatchTable getDispatchTable(Class<? extends Event> event) {
+		DispatchTable table = dispatchTables.get(event);
+		if (table != null)
+			return table;
+		synchronized (triggers) {
+			table = new DispatchTable(getTriggers(event));
+			dispatchTables.put(event, table);
+			return table;
+		}
+	}
+
 	/**
 	 * A utility method to get all Triggers registered under the provided Event class.
 	 * @param event The event to find pairs from.
@@ -96,10 +290,12 @@ public final class SkriptEventHandler {
 	private static List<Trigger> getTriggers(Class<? extends Event> event) {
 		HandlerList eventHandlerList = getHandlerList(event);
 		assert eventHandlerList != null; // It had one at some point so this should remain true
-		return triggers.asMap().entrySet().stream()
-				.filter(entry -> entry.getKey().isAssignableFrom(event) && getHandlerList(entry.getKey()) == eventHandlerList)
-				.flatMap(entry -> entry.getValue().stream())
-				.collect(Collectors.toList()); // forces evaluation now and prevents us from having to call getTriggers again if very high logging is enabled
+		synchronized (triggers) {
+			return triggers.asMap().entrySet().stream()
+					.filter(entry -> entry.getKey().isAssignableFrom(event) && getHandlerList(entry.getKey()) == eventHandlerList)
+					.flatMap(entry -> entry.getValue().stream())
+					.collect(Collectors.toList()); // forces evaluation now and prevents us from having to call getTriggers again if very high logging is enabled
+		}
 	}
 
 	/**
@@ -111,32 +307,21 @@ public final class SkriptEventHandler {
 	 */
 	private static void check(Event event, EventPriority priority) {
 		// get all triggers for this event, return if none
-		List<Trigger> triggers = getTriggers(event.getClass());
-		if (triggers.isEmpty())
+		DispatchTable table = getDispatchTable(event.getClass());
+		if (table.empty)
 			return;
 
 		// Check if this event should be treated as cancelled
 		boolean isCancelled = isCancelled(event);
+		TriggerList triggers = table.getTriggers(priority, isCancelled);
 
 		// This logs events even if there isn't a trigger that's going to run at that priority.
 		// However, there should only be a priority listener IF there's a trigger at that priority.
 		// So the time will be logged even if no triggers pass check(), which is still useful information.
 		logEventStart(event, priority);
 
-		for (Trigger trigger : triggers) {
-			SkriptEvent triggerEvent = trigger.getEvent();
-
-			// check if the trigger is at the right priority
-			if (triggerEvent.getEventPriority() != priority)
-				continue;
-
-			// check if the cancel state of the event is correct
-			if (!triggerEvent.getListeningBehavior().matches(isCancelled))
-				continue;
-
-			// execute the trigger
-			execute(trigger, event);
-		}
+		// the triggers are already of the right priority and for the right cancel state
+		triggers.execute(event);
 
 		logEventEnd();
 	}
@@ -301,13 +486,42 @@ public final class SkriptEventHandler {
 		if (handlerList == null)
 			return;
 
-		triggers.put(event, trigger);
-
 		EventPriority priority = trigger.getEvent().getEventPriority();
 
-		if (!isEventRegistered(handlerList, priority)) { // Check if event is registered
-			PriorityListener listener = listeners[priority.ordinal()];
-			Bukkit.getPluginManager().registerEvent(event, listener, priority, listener.executor, Skript.getInstance());
+		synchronized (triggers) {
+			triggers.put(event, trigger);
+			dispatchTables.clear();
+
+			if (!isEventRegistered(handlerList, priority)) { // Check if event is registered
+				PriorityListener listener = listeners[priority.ordinal()];
+				Bukkit.getPluginManager().registerEvent(event, listener, priority, listener.executor, Skript.getInstance());
+			}
+		}
+	}
+
+	/**
+	 * Moves the given triggers behind all other triggers of their events, keeping the given order,
+	 * so they are executed in the same order as if they had been registered again in that order.
+	 * Triggers that are not registered are ignored.
+	 * @param orderedTriggers The triggers, in the order they should be executed in.
+	 */
+	public static void reorderBukkitEvents(List<Trigger> orderedTriggers) {
+		synchronized (triggers) {
+			for (Trigger trigger : orderedTriggers) {
+				List<Class<? extends Event>> events = new ArrayList<>();
+				Iterator<Entry<Class<? extends Event>, Trigger>> entryIterator = triggers.entries().iterator();
+				while (entryIterator.hasNext()) {
+					Entry<Class<? extends Event>, Trigger> entry = entryIterator.next();
+					if (entry.getValue() == trigger) {
+						events.add(entry.getKey());
+						entryIterator.remove();
+					}
+				}
+				// the listeners stay registered, as the same triggers are added back
+				for (Class<? extends Event> event : events)
+					triggers.put(event, trigger);
+			}
+			dispatchTables.clear();
 		}
 	}
 
@@ -316,36 +530,39 @@ public final class SkriptEventHandler {
 	 * @param trigger The Trigger to unregister events for.
 	 */
 	public static void unregisterBukkitEvents(Trigger trigger) {
-		Iterator<Entry<Class<? extends Event>, Trigger>> entryIterator = triggers.entries().iterator();
-		entryLoop: while (entryIterator.hasNext()) {
-			Entry<Class<? extends Event>, Trigger> entry = entryIterator.next();
-			if (entry.getValue() != trigger)
-				continue;
-			Class<? extends Event> event = entry.getKey();
-
-			// Remove the trigger from the map
-			entryIterator.remove();
-
-			// check if we can unregister the listener
-			EventPriority priority = trigger.getEvent().getEventPriority();
-			for (Trigger eventTrigger : triggers.get(event)) {
-				if (eventTrigger.getEvent().getEventPriority() == priority)
-					continue entryLoop;
-			}
+		synchronized (triggers) {
+			Iterator<Entry<Class<? extends Event>, Trigger>> entryIterator = triggers.entries().iterator();
+			entryLoop: while (entryIterator.hasNext()) {
+				Entry<Class<? extends Event>, Trigger> entry = entryIterator.next();
+				if (entry.getValue() != trigger)
+					continue;
+				Class<? extends Event> event = entry.getKey();
+
+				// Remove the trigger from the map
+				entryIterator.remove();
+				dispatchTables.clear();
+
+				// check if we can unregister the listener
+				EventPriority priority = trigger.getEvent().getEventPriority();
+				for (Trigger eventTrigger : triggers.get(event)) {
+					if (eventTrigger.getEvent().getEventPriority() == priority)
+						continue entryLoop;
+				}
 
-			// We can attempt to unregister this listener
-			HandlerList handlerList = getHandlerList(event);
-			if (handlerList == null)
-				continue;
-			Skript skript = Skript.getInstance();
-			for (RegisteredListener registeredListener : handlerList.getRegisteredListeners()) {
-				Listener listener = registeredListener.getListener();
-				if (
-					registeredListener.getPlugin() == skript
-					&& listener instanceof PriorityListener
-					&& ((PriorityListener) listener).priority == priority
-				) {
-					handlerList.unregister(listener);
+				// We can attempt to unregister this listener
+				HandlerList handlerList = getHandlerList(event);
+				if (handlerList == null)
+					continue;
+				Skript skript = Skript.getInstance();
+				for (RegisteredListener registeredListener : handlerList.getRegisteredListeners()) {
+					Listener listener = registeredListener.getListener();
+					if (
+						registeredListener.getPlugin() == skript
+						&& listener instanceof PriorityListener
+						&& ((PriorityListener) listener).priority == priority
+					) {
+						handlerList.unregister(listener);
+					}
 				}
 			}
 		}
@@ -27,6 +27,9 @@ import ch.njol.skript.config.SectionNode;
 import ch.njol.skript.entity.EntityData;
 import org.bukkit.entity.EntityType;
 import org.skriptlang.skript.lang.script.Script;
+import ch.njol.skript.lang.ParseContext;
+import ch.njol.skript.lang.parser.LiteralParseCache;
+import ch.njol.skript.lang.parser.ParseCache;
 import ch.njol.skript.lang.parser.ParserInstance;
 import ch.njol.skript.localization.ArgsMessage;
 import ch.njol.skript.localization.Language;
@@ -243,6 +246,18 @@ public abstract class Aliases {
 	 */
 	@Nullable
 	public static ItemType parseItemType(String s) {
+		if (!LiteralParseCache.isActive())
+			return parseItemType_i(s);
+		LiteralParseCache.Result result = LiteralParseCache.ITEM_TYPES.get(s, ItemType.class, ParseContext.DEFAULT);
+		if (result != null)
+			return result.getValue() == null ? null : ((ItemType) result.getValue()).clone();
+		ItemType itemType = parseItemType_i(s);
+		LiteralParseCache.ITEM_TYPES.put(s, ItemType.class, ParseContext.DEFAULT, itemType == null ? null : itemType.clone());
+		return itemType;
+	}
+
+	@Nullable
+	private static ItemType parseItemType_i(String s) {
 		if (s.isEmpty())
 			return null;
 		s = "" + s.trim();
@@ -378,6 +393,8 @@ public abstract class Aliases {
 	 */
 	public static void clear() {
 		provider.clearAliases();
+		LiteralParseCache.clearAll();
+		ParseCache.invalidateEnvironment();
 	}
 	
 	/**
@@ -388,6 +405,7 @@ public abstract class Aliases {
 		try {
 			long start = System.currentTimeMillis();
 			loadInternal();
+			ParseCache.invalidateEnvironment();
 			Skript.info("Loaded " + provider.getAliasCount() + " aliases in " + (System.currentTimeMillis() - start) + "ms");
 		} catch (IOException e) {
 			Skript.exception(e);
@@ -508,6 +526,15 @@ public abstract class Aliases {
 			
 			parser.load((SectionNode) n);
 		}
+		ParseCache.invalidateEnvironment();
+	}
+
+	/**
+	 * Gets a fingerprint of the names of all global aliases, which changes whenever aliases are added or removed.
+	 * @return Fingerprint of the global aliases.
+	 */
+	public static String getFingerprint() {
+		return provider.getAliasCount() + ":" + provider.getAliasNamesHash();
 	}
 
 	/**
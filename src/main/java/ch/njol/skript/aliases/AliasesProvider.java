@@ -425,6 +425,14 @@ public class AliasesProvider {
 		return aliases.size();
 	}
 
+	/**
+	 * Only the names are hashed, as the hash codes of the item types aren't the same across restarts.
+	 * @return A hash of the names of all aliases of this provider.
+	 */
+	public int getAliasNamesHash() {
+		return aliases.keySet().hashCode();
+	}
+
 	/**
 	 * Check if this provider has an alias for the given material.
 	 * @param material Material to check alias for
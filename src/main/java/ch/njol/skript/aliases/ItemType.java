@@ -61,6 +61,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -1418,6 +1419,22 @@ public class ItemType implements Unit, Iterable<ItemData>, Container<ItemStack>,
 		return data.getType();
 	}
 
+	/**
+	 * Gets all Materials this ItemType represents.
+	 * Every item or block this ItemType {@link #isOfType(ItemData) is of} has one of these Materials.
+	 * @return The Materials, or null if this ItemType matches any item (i.e. it contains 'anything').
+	 */
+	@Nullable
+	public Set<Material> getMaterials() {
+		Set<Material> materials = EnumSet.noneOf(Material.class);
+		for (ItemData data : types) {
+			if (data.isAnything)
+				return null;
+			materials.add(data.getType());
+		}
+		return materials;
+	}
+
 	/**
 	 * Returns a base item type of this. Essentially, this calls
 	 * {@link ItemData#aliasCopy()} on all datas and creates a new type
@@ -53,11 +53,11 @@ import org.skriptlang.skript.lang.script.Script;
 import java.io.File;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.regex.Pattern;
@@ -79,7 +79,7 @@ public abstract class Commands {
 	 */
 	public static final int CONVERTER_NO_COMMAND_ARGUMENTS = 4;
 
-	private final static Map<String, ScriptCommand> commands = new HashMap<>();
+	private final static Map<String, ScriptCommand> commands = new ConcurrentHashMap<>();
 
 	@Nullable
 	private static SimpleCommandMap commandMap = null;
@@ -127,8 +127,44 @@ public abstract class Commands {
 		}
 	}
 
+	/**
+	 * The arguments of the command that is currently being loaded by this thread.
+	 * Thread-local, as commands of different scripts may be loaded in parallel.
+	 */
+	private static final ThreadLocal<List<Argument<?>>> threadArguments = new ThreadLocal<>();
+
+	/**
+	 * The arguments of the command that was last started or finished loading by any thread.
+	 * Kept for compatibility only: it is still updated, but Skript doesn't read it anymore,
+	 * and it may belong to another script if scripts are loaded in parallel.
+	 *
+	 * @deprecated Use {@link #getCurrentArguments()} and {@link #setCurrentArguments(List)}.
+	 */
+	@Deprecated
+	@Nullable
+	public static volatile List<Argument<?>> currentArguments = null;
+
+	/**
+	 * @return The arguments of the command that is currently being loaded by the calling thread,
+	 * or null if no command is being loaded.
+	 */
 	@Nullable
-	public static List<Argument<?>> currentArguments = null;
+	public static List<Argument<?>> getCurrentArguments() {
+		return threadArguments.get();
+	}
+
+	/**
+	 * Sets the arguments of the command that is currently being loaded by the calling thread.
+	 * @param arguments The arguments, or null once the command has been loaded.
+	 */
+	public static void setCurrentArguments(@Nullable List<Argument<?>> arguments) {
+		if (arguments == null) {
+			threadArguments.remove();
+		} else {
+			threadArguments.set(arguments);
+		}
+		currentArguments = arguments;
+	}
 
 	@SuppressWarnings("null")
 	private final static Pattern escape = Pattern.compile("[" + Pattern.quote("(|)<>%\\") + "]");
@@ -248,7 +284,7 @@ public abstract class Commands {
 		return scriptCommand != null && scriptCommand.getName().equals(command);
 	}
 
-	public static void registerCommand(ScriptCommand command) {
+	public static synchronized void registerCommand(ScriptCommand command) {
 		// Validate that there are no duplicates
 		ScriptCommand existingCommand = commands.get(command.getLabel());
 		if (existingCommand != null && existingCommand.getLabel().equals(command.getLabel())) {
@@ -282,7 +318,7 @@ public abstract class Commands {
 		return numCommands;
 	}
 
-	public static void unregisterCommand(ScriptCommand scriptCommand) {
+	public static synchronized void unregisterCommand(ScriptCommand scriptCommand) {
 		scriptCommand.unregisterHelp();
 		if (commandMap != null) {
 			assert cmKnownCommands != null;// && cmAliases != null;
@@ -387,6 +387,13 @@ public class ScriptCommand implements TabExecutor {
 		return pattern;
 	}
 
+	/**
+	 * @return The trigger containing the code of this command.
+	 */
+	public Trigger getTrigger() {
+		return trigger;
+	}
+
 	@Nullable
 	private transient Command overridden = null;
 	private transient Map<String, Command> overriddenAliases = new HashMap<>();
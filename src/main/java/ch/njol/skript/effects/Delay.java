@@ -19,6 +19,7 @@
 package ch.njol.skript.effects;
 
 import ch.njol.skript.Skript;
+import ch.njol.skript.SkriptConfig;
 import ch.njol.skript.doc.Description;
 import ch.njol.skript.doc.Examples;
 import ch.njol.skript.doc.Name;
@@ -30,12 +31,13 @@ import ch.njol.skript.lang.SkriptParser.ParseResult;
 import ch.njol.skript.lang.Trigger;
 import ch.njol.skript.lang.TriggerItem;
 import ch.njol.skript.timings.SkriptTimings;
+import ch.njol.skript.util.TimerWheel;
 import ch.njol.skript.util.Timespan;
 import ch.njol.skript.variables.Variables;
 import ch.njol.util.Kleenean;
-import org.bukkit.Bukkit;
 import org.bukkit.event.Event;
 import org.eclipse.jdt.annotation.Nullable;
+import org.skriptlang.skript.lang.script.Script;
 
 import java.util.Collections;
 import java.util.Set;
@@ -90,7 +92,7 @@ public class Delay extends Effect {
 			// Back up local variables
 			Object localVars = Variables.removeLocals(event);
 			
-			Bukkit.getScheduler().scheduleSyncDelayedTask(Skript.getInstance(), () -> {
+			scheduleContinuation(this, () -> {
 				Skript.debug(getIndentation() + "... continuing after " + (System.nanoTime() - start) / 1_000_000_000. + "s");
 
 				// Re-set local variables
@@ -123,6 +125,26 @@ public class Delay extends Effect {
 		return "wait for " + duration.toString(event, debug) + (event == null ? "" : "...");
 	}
 
+	/**
+	 * Schedules the continuation of a trigger on the main server thread,
+	 * using Skript's {@link TimerWheel} rather than a task of Bukkit's scheduler.
+	 * If {@link SkriptConfig#cancelDelaysOnUnload} is enabled, the continuation is cancelled
+	 * when the script of the trigger is unloaded.
+	 *
+	 * @param item The item that delays the trigger.
+	 * @param continuation The continuation of the trigger.
+	 * @param ticks The amount of ticks to wait, at least one.
+	 */
+	public static void scheduleContinuation(TriggerItem item, Runnable continuation, long ticks) {
+		Script script = null;
+		if (SkriptConfig.cancelDelaysOnUnload.value()) {
+			Trigger trigger = item.getTrigger();
+			if (trigger != null)
+				script = trigger.getScript();
+		}
+		TimerWheel.getInstance().schedule(continuation, ticks, script);
+	}
+
 	private static final Set<Event> DELAYED =
 		Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 
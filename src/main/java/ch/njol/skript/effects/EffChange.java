@@ -279,6 +279,13 @@ public class EffChange extends Effect {
 		return true;
 	}
 	
+	/**
+	 * @return The expression that is changed by this effect.
+	 */
+	public Expression<?> getChanged() {
+		return changed;
+	}
+
 	@Override
 	protected void execute(Event e) {
 		Object[] delta = changer == null ? null : changer.getArray(e);
@@ -115,4 +115,11 @@ public class EffContinue extends Effect {
 		return "continue";
 	}
 
+	/**
+	 * @return The loop this effect continues.
+	 */
+	public LoopSection getLoop() {
+		return loop;
+	}
+
 }
@@ -64,6 +64,13 @@ public class EffDoIf extends Effect  {
 		return effect != null && condition != null;
 	}
 
+	/**
+	 * @return The effect that is executed if the condition is met.
+	 */
+	public Effect getEffect() {
+		return effect;
+	}
+
 	@Override
 	protected void execute(Event e) {}
 	
@@ -18,6 +18,7 @@
  */
 package ch.njol.skript.events;
 
+import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.data.BlockData;
@@ -33,6 +34,7 @@ import org.bukkit.event.hanging.HangingEvent;
 import org.bukkit.event.hanging.HangingPlaceEvent;
 import org.bukkit.event.player.PlayerBucketEmptyEvent;
 import org.bukkit.event.player.PlayerBucketFillEvent;
+import org.bukkit.inventory.ItemStack;
 import org.eclipse.jdt.annotation.Nullable;
 
 import ch.njol.skript.Skript;
@@ -40,16 +42,21 @@ import ch.njol.skript.aliases.ItemType;
 import org.skriptlang.skript.lang.comparator.Relation;
 import ch.njol.skript.classes.data.DefaultComparators;
 import ch.njol.skript.entity.EntityData;
+import ch.njol.skript.lang.DiscriminatedEvent;
 import ch.njol.skript.lang.Literal;
 import ch.njol.skript.lang.SkriptEvent;
 import ch.njol.skript.lang.SkriptParser.ParseResult;
 import ch.njol.skript.registrations.Classes;
 
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * @author Peter Güttinger
  */
 @SuppressWarnings({"deprecation", "unchecked"})
-public class EvtBlock extends SkriptEvent {
+public class EvtBlock extends SkriptEvent implements DiscriminatedEvent {
 	
 	static {
 		// TODO 'block destroy' event for any kind of block destruction (player, water, trampling, fall (sand, toches, ...), etc) -> BlockPhysicsEvent?
@@ -143,6 +150,49 @@ public class EvtBlock extends SkriptEvent {
 		});
 	}
 	
+	/**
+	 * Gets the material of the block of an event, or null for hanging entities.
+	 */
+	private static final Discriminator DISCRIMINATOR = event -> {
+		if (event instanceof BlockFormEvent)
+			return ((BlockFormEvent) event).getNewState().getType();
+		if (event instanceof BlockEvent)
+			return ((BlockEvent) event).getBlock().getType();
+		if (event instanceof PlayerBucketFillEvent)
+			return ((PlayerBucketFillEvent) event).getBlockClicked().getType();
+		if (event instanceof PlayerBucketEmptyEvent) {
+			ItemStack itemStack = ((PlayerBucketEmptyEvent) event).getItemStack();
+			return itemStack == null ? null : itemStack.getType();
+		}
+		return null;
+	};
+
+	@Override
+	public Discriminator getDiscriminator() {
+		return DISCRIMINATOR;
+	}
+
+	@Override
+	@Nullable
+	public Collection<?> getDiscriminatorKeys() {
+		if (types == null)
+			return null;
+		Set<Material> materials = EnumSet.noneOf(Material.class);
+		for (Object type : types.getAll()) {
+			if (type instanceof ItemType) {
+				Set<Material> itemMaterials = ((ItemType) type).getMaterials();
+				if (itemMaterials == null)
+					return null;
+				materials.addAll(itemMaterials);
+			} else if (type instanceof BlockData) {
+				materials.add(((BlockData) type).getMaterial());
+			} else {
+				return null;
+			}
+		}
+		return materials;
+	}
+	
 	@Override
 	public String toString(final @Nullable Event e, final boolean debug) {
 		return "break/place/burn/fade/form of " + Classes.toString(types);
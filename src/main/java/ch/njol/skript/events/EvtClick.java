@@ -18,6 +18,7 @@
  */
 package ch.njol.skript.events;
 
+import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.entity.ArmorStand;
 import org.bukkit.entity.Entity;
@@ -39,13 +40,20 @@ import ch.njol.skript.aliases.ItemType;
 import ch.njol.skript.bukkitutil.ClickEventTracker;
 import ch.njol.skript.classes.data.DefaultComparators;
 import ch.njol.skript.entity.EntityData;
+import ch.njol.skript.lang.DiscriminatedEvent;
 import ch.njol.skript.lang.Literal;
 import ch.njol.skript.lang.SkriptEvent;
 import ch.njol.skript.lang.SkriptParser.ParseResult;
 import ch.njol.util.Checker;
 import ch.njol.util.coll.CollectionUtils;
 
-public class EvtClick extends SkriptEvent {
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+public class EvtClick extends SkriptEvent implements DiscriminatedEvent {
 
 	/**
 	 * Click types.
@@ -215,6 +223,100 @@ public class EvtClick extends SkriptEvent {
 		return true;
 	}
 
+	/**
+	 * The key of a click on a block or air, made of the type of the click and the material of the clicked block.
+	 */
+	private static final class ClickKey {
+
+		private final int click;
+		private final Material material;
+
+		private ClickKey(int click, Material material) {
+			this.click = click;
+			this.material = material;
+		}
+
+		@Override
+		public String toString() {
+			return (click == LEFT ? "left" : "right") + "click on " + material;
+		}
+
+	}
+
+	/**
+	 * The keys of all clicks, indexed by click type and the ordinal of the clicked material,
+	 * so that getting the key of a click doesn't allocate.
+	 */
+	private static final ClickKey[][] KEYS = new ClickKey[ANY + 1][];
+
+	static {
+		Material[] materials = Material.values();
+		for (int click : new int[] {RIGHT, LEFT}) {
+			KEYS[click] = new ClickKey[materials.length];
+			for (Material material : materials)
+				KEYS[click][material.ordinal()] = new ClickKey(click, material);
+		}
+	}
+
+	/**
+	 * Gets the key of a click on a block or air from its click type and the material of the clicked block.
+	 * Clicks on entities have no key.
+	 * <p>
+	 * The {@link #interactTracker} is only passed the clicks in {@link #check(Event)}, after the click type was checked.
+	 * Two clicks of a player in the same tick (one for each hand) click the same block, so they have the same key
+	 * and the tracker sees the second one whenever a trigger checked the first one.
+	 */
+	private static final Discriminator DISCRIMINATOR = event -> {
+		if (!(event instanceof PlayerInteractEvent))
+			return null;
+		PlayerInteractEvent clickEvent = (PlayerInteractEvent) event;
+		int click;
+		switch (clickEvent.getAction()) {
+			case LEFT_CLICK_AIR:
+			case LEFT_CLICK_BLOCK:
+				click = LEFT;
+				break;
+			case RIGHT_CLICK_AIR:
+			case RIGHT_CLICK_BLOCK:
+				click = RIGHT;
+				break;
+			default:
+				return null;
+		}
+		Block block = clickEvent.getClickedBlock();
+		return KEYS[click][(block == null ? Material.AIR : block.getType()).ordinal()];
+	};
+
+	@Override
+	public Discriminator getDiscriminator() {
+		return DISCRIMINATOR;
+	}
+
+	@Override
+	@Nullable
+	public Collection<?> getDiscriminatorKeys() {
+		if (type == null)
+			return null;
+		// entity datas never match blocks, so they don't add any keys
+		Set<Material> materials = EnumSet.noneOf(Material.class);
+		for (Object object : type.getAll()) {
+			if (object instanceof ItemType) {
+				Set<Material> itemMaterials = ((ItemType) object).getMaterials();
+				if (itemMaterials == null)
+					return null;
+				materials.addAll(itemMaterials);
+			}
+		}
+		List<ClickKey> keys = new ArrayList<>();
+		for (int click : new int[] {RIGHT, LEFT}) {
+			if ((this.click & click) == 0)
+				continue;
+			for (Material material : materials)
+				keys.add(KEYS[click][material.ordinal()]);
+		}
+		return keys;
+	}
+
 	@Override
 	public String toString(@Nullable Event e, boolean debug) {
 		return (click == LEFT ? "left" : click == RIGHT ? "right" : "") + "click" + (type != null ? " on " + type.toString(e, debug) : "") + (tools != null ? " holding " + tools.toString(e, debug) : "");
@@ -24,17 +24,22 @@ import org.bukkit.event.server.ServerCommandEvent;
 import org.eclipse.jdt.annotation.Nullable;
 
 import ch.njol.skript.Skript;
+import ch.njol.skript.lang.DiscriminatedEvent;
 import ch.njol.skript.lang.Literal;
 import ch.njol.skript.lang.SkriptEvent;
 import ch.njol.skript.lang.SkriptParser.ParseResult;
 import ch.njol.util.StringUtils;
 import ch.njol.util.coll.CollectionUtils;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+
 /**
  * @author Peter Güttinger
  */
 @SuppressWarnings("unchecked")
-public class EvtCommand extends SkriptEvent { // TODO condition to check whether a given command exists, & a conditon to check whether it's a custom skript command
+public class EvtCommand extends SkriptEvent implements DiscriminatedEvent { // TODO condition to check whether a given command exists, & a conditon to check whether it's a custom skript command
 	static {
 		Skript.registerEvent("Command", EvtCommand.class, CollectionUtils.array(PlayerCommandPreprocessEvent.class, ServerCommandEvent.class), "command [%-string%]")
 				.description("Called when a player enters a command (not necessarily a Skript command) but you can check if command is a skript command, see <a href='conditions.html#CondIsSkriptCommand'>Is a Skript command condition</a>.")
@@ -75,6 +80,50 @@ public class EvtCommand extends SkriptEvent { // TODO condition to check whether
 				&& (command.contains(" ") || message.length() == command.length() || Character.isWhitespace(message.charAt(command.length()))); // if only the command is given, match that command only
 	}
 	
+	/**
+	 * Gets the lower case first word of the entered command, without the leading slash.
+	 */
+	private static final Discriminator DISCRIMINATOR = event -> {
+		String message;
+		if (event instanceof PlayerCommandPreprocessEvent) {
+			message = ((PlayerCommandPreprocessEvent) event).getMessage();
+			if (message.startsWith("/"))
+				message = message.substring(1);
+		} else {
+			message = ((ServerCommandEvent) event).getCommand();
+		}
+		return getLabel(message);
+	};
+
+	/**
+	 * @return The lower case first word of the given command, or null if it's empty or not ASCII,
+	 * as lower casing anything else might not agree with the case-insensitive comparison of {@link #check(Event)}.
+	 */
+	@Nullable
+	private static String getLabel(String command) {
+		int end = 0;
+		while (end < command.length() && !Character.isWhitespace(command.charAt(end))) {
+			if (command.charAt(end) > 127)
+				return null;
+			end++;
+		}
+		return end == 0 ? null : command.substring(0, end).toLowerCase(Locale.ENGLISH);
+	}
+
+	@Override
+	public Discriminator getDiscriminator() {
+		return DISCRIMINATOR;
+	}
+
+	@Override
+	@Nullable
+	public Collection<?> getDiscriminatorKeys() {
+		if (command == null)
+			return null;
+		String label = getLabel(command);
+		return label == null ? null : Collections.singleton(label);
+	}
+	
 	@Override
 	public String toString(final @Nullable Event e, final boolean debug) {
 		return "command" + (command != null ? " /" + command : "");
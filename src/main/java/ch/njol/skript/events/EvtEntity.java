@@ -19,6 +19,7 @@
 package ch.njol.skript.events;
 
 import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
 import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.event.Event;
@@ -28,6 +29,7 @@ import org.eclipse.jdt.annotation.Nullable;
 
 import ch.njol.skript.Skript;
 import ch.njol.skript.entity.EntityData;
+import ch.njol.skript.lang.DiscriminatedEvent;
 import ch.njol.skript.lang.Literal;
 import ch.njol.skript.lang.SkriptEvent;
 import ch.njol.skript.lang.SkriptParser.ParseResult;
@@ -35,11 +37,15 @@ import ch.njol.skript.log.ErrorQuality;
 import ch.njol.skript.registrations.Classes;
 import ch.njol.util.StringUtils;
 
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * @author Peter Güttinger
  */
 @SuppressWarnings("unchecked")
-public final class EvtEntity extends SkriptEvent {
+public final class EvtEntity extends SkriptEvent implements DiscriminatedEvent {
 	
 	static {
 		Skript.registerEvent("Death", EvtEntity.class, EntityDeathEvent.class, "death [of %-entitydatas%]")
@@ -100,6 +106,41 @@ public final class EvtEntity extends SkriptEvent {
 		return false;
 	}
 	
+	/**
+	 * Gets the type of the entity of an event, or null if its type has no entity class.
+	 */
+	private static final Discriminator DISCRIMINATOR = event -> {
+		Entity entity = event instanceof EntityDeathEvent ? ((EntityDeathEvent) event).getEntity() : ((EntitySpawnEvent) event).getEntity();
+		EntityType type = entity.getType();
+		return type.getEntityClass() == null ? null : type;
+	};
+
+	@Override
+	public Discriminator getDiscriminator() {
+		return DISCRIMINATOR;
+	}
+
+	@Override
+	@Nullable
+	public Collection<?> getDiscriminatorKeys() {
+		if (types == null)
+			return null;
+		// an entity can only be an instance of an entity data if its entity class is a subclass of the entity data's type
+		Set<EntityType> entityTypes = EnumSet.noneOf(EntityType.class);
+		for (EntityType entityType : EntityType.values()) {
+			Class<? extends Entity> entityClass = entityType.getEntityClass();
+			if (entityClass == null)
+				continue;
+			for (EntityData<?> d : types) {
+				if (d.getType().isAssignableFrom(entityClass)) {
+					entityTypes.add(entityType);
+					break;
+				}
+			}
+		}
+		return entityTypes;
+	}
+	
 	@Override
 	public String toString(final @Nullable Event e, final boolean debug) {
 		return (spawn ? "spawn" : "death") + (types != null ? " of " + Classes.toString(types, false) : "");
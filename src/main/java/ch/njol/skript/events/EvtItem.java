@@ -19,6 +19,7 @@
 package ch.njol.skript.events;
 
 import io.papermc.paper.event.player.PlayerStonecutterRecipeSelectEvent;
+import org.bukkit.Material;
 import org.bukkit.event.Event;
 import org.bukkit.event.block.BlockDispenseEvent;
 import org.bukkit.event.entity.EntityDropItemEvent;
@@ -40,14 +41,19 @@ import org.eclipse.jdt.annotation.Nullable;
 import ch.njol.skript.sections.EffSecSpawn;
 import ch.njol.skript.Skript;
 import ch.njol.skript.aliases.ItemType;
+import ch.njol.skript.lang.DiscriminatedEvent;
 import ch.njol.skript.lang.Literal;
 import ch.njol.skript.lang.SkriptEvent;
 import ch.njol.skript.lang.SkriptParser.ParseResult;
 import ch.njol.skript.lang.util.SimpleEvent;
 import ch.njol.util.coll.CollectionUtils;
 
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
 @SuppressWarnings("deprecation")
-public class EvtItem extends SkriptEvent {
+public class EvtItem extends SkriptEvent implements DiscriminatedEvent {
 	
 	private final static boolean hasConsumeEvent = Skript.classExists("org.bukkit.event.player.PlayerItemConsumeEvent");
 	private final static boolean hasPrepareCraftEvent = Skript.classExists("org.bukkit.event.inventory.PrepareItemCraftEvent");
@@ -181,6 +187,17 @@ public class EvtItem extends SkriptEvent {
 			return false;
 		if (types == null)
 			return true;
+		ItemStack itemStack = getItemStack(event);
+		if (itemStack == null)
+			return false;
+		return types.check(event, itemType -> itemType.isOfType(itemStack));
+	}
+
+	/**
+	 * @return The item stack of the given event, or null if it has none.
+	 */
+	@Nullable
+	private static ItemStack getItemStack(Event event) {
 		final ItemStack itemStack;
 		if (event instanceof BlockDispenseEvent) {
 			itemStack = ((BlockDispenseEvent) event).getItem();
@@ -197,7 +214,7 @@ public class EvtItem extends SkriptEvent {
 			if (recipe != null) {
 				itemStack = recipe.getResult();
 			} else {
-				return false;
+				return null;
 			}
 		} else if (HAS_PLAYER_STONECUTTER_RECIPE_SELECT_EVENT && event instanceof PlayerStonecutterRecipeSelectEvent) {
 			itemStack = ((PlayerStonecutterRecipeSelectEvent) event).getStonecuttingRecipe().getResult();
@@ -219,11 +236,40 @@ public class EvtItem extends SkriptEvent {
 			itemStack = ((InventoryMoveItemEvent) event).getItem();
 		} else {
 			assert false;
-			return false;
+			return null;
 		}
-		if (itemStack == null)
-			return false;
-		return types.check(event, itemType -> itemType.isOfType(itemStack));
+		return itemStack;
+	}
+
+	/**
+	 * Gets the material of the item stack of an event.
+	 * Item spawns have no key, as {@link #check(Event)} has to see all of them to make 'last dropped item' possible.
+	 */
+	private static final Discriminator DISCRIMINATOR = event -> {
+		if (event instanceof ItemSpawnEvent)
+			return null;
+		ItemStack itemStack = getItemStack(event);
+		return itemStack == null ? null : itemStack.getType();
+	};
+
+	@Override
+	public Discriminator getDiscriminator() {
+		return DISCRIMINATOR;
+	}
+
+	@Override
+	@Nullable
+	public Collection<?> getDiscriminatorKeys() {
+		if (types == null)
+			return null;
+		Set<Material> materials = EnumSet.noneOf(Material.class);
+		for (ItemType type : types.getAll()) {
+			Set<Material> typeMaterials = type.getMaterials();
+			if (typeMaterials == null)
+				return null;
+			materials.addAll(typeMaterials);
+		}
+		return materials;
 	}
 	
 	@Override
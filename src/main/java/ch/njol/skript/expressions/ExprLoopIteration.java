@@ -112,4 +112,11 @@ public class ExprLoopIteration extends SimpleExpression<Long> {
 		return "loop-iteration" + (loopNumber != -1 ? ("-" + loopNumber) : "");
 	}
 
+	/**
+	 * @return The loop this expression gets the iteration number of.
+	 */
+	public LoopSection getLoop() {
+		return loop;
+	}
+
 }
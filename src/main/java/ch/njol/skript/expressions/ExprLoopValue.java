@@ -191,5 +191,12 @@ public class ExprLoopValue extends SimpleExpression<Object> {
 		}
 		return Classes.getDebugMessage(loop.getCurrent(e));
 	}
+
+	/**
+	 * @return The loop this expression gets the current value of.
+	 */
+	public SecLoop getLoop() {
+		return loop;
+	}
 	
 }
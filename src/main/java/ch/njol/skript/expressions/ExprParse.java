@@ -133,7 +133,7 @@ public class ExprParse extends SimpleExpression<Object> {
 
 			// Compile the SkriptPattern
 			try {
-				this.pattern = PatternCompiler.compile(pattern);
+				this.pattern = PatternCompiler.getPattern(pattern);
 			} catch (MalformedPatternException exception) {
 				// Some checks already done by validatePattern above, but just making sure
 				Skript.error("Malformed pattern: " + exception.getMessage());
@@ -0,0 +1,36 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.lang;
+
+import ch.njol.skript.lang.parser.ParserInstance;
+
+/**
+ * A {@link Section} implementing this interface runs its code off the main thread,
+ * where it may be executed by multiple threads at once, e.g. {@link ch.njol.skript.sections.SecAsync 'async'}.
+ * <p>
+ * As most syntax elements aren't thread-safe, such a section decides which elements can be used in it.
+ * While its code is parsed (see {@link ParserInstance#getCurrentConcurrentSection()}),
+ * every syntax element that was initialised and every function that is called is checked by it,
+ * see {@link SyntaxValidator}.
+ * Loops in its code keep their state in synchronized maps and can't be budgeted,
+ * and its code is never compiled, see {@link TriggerItem#flatten(TriggerSection, boolean)}.
+ */
+public interface ConcurrentSection extends SyntaxValidator {
+
+}
@@ -0,0 +1,67 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.lang;
+
+import org.bukkit.event.Event;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+
+/**
+ * A {@link SkriptEvent} implementing this interface only applies to the Bukkit events with certain keys,
+ * e.g. 'on break of diamond ore' only applies to block breaks whose key, the material of the block, is diamond ore.
+ * <p>
+ * Instead of {@link SkriptEvent#check(Event) checking} every trigger listening to a Bukkit event,
+ * Skript then only checks the triggers whose keys include the key of the called event.
+ * This makes events that are used by many triggers with different keys much cheaper.
+ */
+public interface DiscriminatedEvent {
+
+	/**
+	 * Gets the key of a called Bukkit event.
+	 */
+	@FunctionalInterface
+	interface Discriminator {
+
+		/**
+		 * @param event The called event.
+		 * @return The key of the event, or null if it has no key that can be used,
+		 * in which case all triggers using this discriminator are checked.
+		 */
+		@Nullable
+		Object getKey(Event event);
+
+	}
+
+	/**
+	 * @return The discriminator of this event. Instances of the same event should return the same discriminator.
+	 */
+	Discriminator getDiscriminator();
+
+	/**
+	 * Gets the keys of the called events this event may apply to.
+	 * {@link SkriptEvent#check(Event)} must return false for every event whose key isn't one of these,
+	 * and must not have side effects that other events rely on, as it is not called for events with other keys.
+	 *
+	 * @return The keys, or null if this event may apply to events with any key.
+	 */
+	@Nullable
+	Collection<?> getDiscriminatorKeys();
+
+}
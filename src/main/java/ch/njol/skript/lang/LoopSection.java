@@ -18,8 +18,16 @@
  */
 package ch.njol.skript.lang;
 
+import ch.njol.skript.Skript;
+import ch.njol.skript.SkriptConfig;
+import ch.njol.skript.effects.Delay;
+import ch.njol.skript.lang.parser.ParserInstance;
+import ch.njol.skript.timings.SkriptTimings;
+import ch.njol.skript.variables.Variables;
+import ch.njol.util.Kleenean;
 import org.bukkit.event.Event;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.WeakHashMap;
 
@@ -31,7 +39,29 @@ import java.util.WeakHashMap;
  */
 public abstract class LoopSection extends Section implements SyntaxElement, Debuggable, SectionExitHandler {
 
-	protected final transient Map<Event, Long> currentLoopCounter = new WeakHashMap<>();
+	/**
+	 * How many iterations a budgeted loop runs between checks of its time budget.
+	 */
+	private static final int BUDGET_CHECK_INTERVAL = 64;
+
+	protected final transient Map<Event, Long> currentLoopCounter = newStateMap();
+
+	/**
+	 * The time in nanoseconds at which a budgeted loop started or was last resumed, by event.
+	 */
+	private final transient Map<Event, Long> budgetStart = newStateMap();
+
+	/**
+	 * Creates a map to keep the state of a loop by event in. This must be called while the loop is being parsed,
+	 * e.g. in a field initializer, as loops in a {@link ConcurrentSection} may run on multiple threads at once
+	 * and get a synchronized map.
+	 *
+	 * @return A new map with weak keys.
+	 */
+	protected static <V> Map<Event, V> newStateMap() {
+		Map<Event, V> map = new WeakHashMap<>();
+		return ParserInstance.get().getCurrentConcurrentSection() != null ? Collections.synchronizedMap(map) : map;
+	}
 
 	/**
 	 * @param event The event where the loop is used to return its loop iterations
@@ -53,6 +83,71 @@ public abstract class LoopSection extends Section implements SyntaxElement, Debu
 	@Override
 	public void exit(Event event) {
 		currentLoopCounter.remove(event);
+		budgetStart.remove(event);
+	}
+
+	/**
+	 * Checks whether a budgeted loop has used up its time budget ({@link SkriptConfig#loopBudget}) in the current tick,
+	 * and if it has, schedules the loop to continue with its next iteration in the next tick, like a {@link Delay} would.
+	 * The state of the loop and the local variables are kept. Loops using this must be loaded as if they contain a delay.
+	 * <br>
+	 * This should be called before every iteration.
+	 *
+	 * @param event The event the loop is running with.
+	 * @return Whether the loop yielded, in which case {@link #walk(Event)} must return {@code null}.
+	 */
+	protected boolean yieldIfOverBudget(Event event) {
+		long iteration = currentLoopCounter.getOrDefault(event, 0L);
+		if (iteration == 0) {
+			budgetStart.put(event, System.nanoTime());
+			return false;
+		}
+		if (iteration % BUDGET_CHECK_INTERVAL != 0)
+			return false;
+		Long start = budgetStart.get(event);
+		long budget = SkriptConfig.loopBudget.value().getMilliSeconds() * 1_000_000L;
+		if (start == null || budget <= 0 || System.nanoTime() - start < budget)
+			return false;
+		if (!Skript.getInstance().isEnabled()) // See https://github.com/SkriptLang/Skript/issues/3702
+			return false;
+
+		Delay.addDelayedEvent(event);
+		Object localVars = Variables.removeLocals(event); // Back up local variables
+		Delay.scheduleContinuation(this, () -> {
+			if (localVars != null)
+				Variables.setLocalVariables(event, localVars);
+			budgetStart.put(event, System.nanoTime());
+
+			Object timing = null;
+			if (SkriptTimings.enabled()) { // getTrigger call is not free, do it only if we must
+				Trigger trigger = getTrigger();
+				if (trigger != null)
+					timing = SkriptTimings.start(trigger.getDebugLabel());
+			}
+
+			TriggerItem.walk(this, event);
+			Variables.removeLocals(event); // Clean up local vars, we may be exiting now
+
+			SkriptTimings.stop(timing);
+		}, 1);
+		return true;
+	}
+
+	/**
+	 * Prepares the parser to load the code of a budgeted loop, see {@link #yieldIfOverBudget(Event)}.
+	 * As the loop may continue in a later tick, the code in and after it may run after a delay.
+	 * Budgeted loops can't be used in a {@link ConcurrentSection}, as they continue on the main thread.
+	 *
+	 * @return Whether a budgeted loop may be used here. If not, an error has been printed.
+	 */
+	protected boolean expectBudgetDelay() {
+		if (getParser().getCurrentConcurrentSection() != null) {
+			Skript.error("Budgeted loops can't be used in async sections");
+			return false;
+		}
+		if (getParser().getHasDelayBefore().isFalse())
+			getParser().setHasDelayBefore(Kleenean.UNKNOWN);
+		return true;
 	}
 
 }
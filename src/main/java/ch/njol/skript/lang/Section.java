@@ -176,7 +176,7 @@ public abstract class Section extends TriggerSection implements SyntaxElement {
 	public static Section parse(String expr, @Nullable String defaultError, SectionNode sectionNode, List<TriggerItem> triggerItems) {
 		SectionContext sectionContext = ParserInstance.get().getData(SectionContext.class);
 		return sectionContext.modify(sectionNode, triggerItems,
-			() -> (Section) SkriptParser.parse(expr, (Iterator) Skript.getSections().iterator(), defaultError));
+			() -> (Section) SkriptParser.parse(expr, (Iterator) Skript.getSections().iterator(), defaultError, "section"));
 	}
 
 	static {
@@ -194,6 +194,14 @@ public abstract class SkriptEvent extends Structure {
 		return PRIORITY;
 	}
 
+	/**
+	 * @return The trigger containing this event's code, or null if it has not been loaded.
+	 */
+	@Nullable
+	public Trigger getTrigger() {
+		return trigger;
+	}
+
 	/**
 	 * Checks whether the given Event applies, e.g. the left-click event is only part of the PlayerInteractEvent, and this checks whether the player left-clicked or not. This method
 	 * will only be called for events this SkriptEvent is registered for.
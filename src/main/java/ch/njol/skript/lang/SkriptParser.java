@@ -30,6 +30,7 @@ import ch.njol.skript.expressions.ExprParse;
 import ch.njol.skript.lang.function.ExprFunctionCall;
 import ch.njol.skript.lang.function.FunctionReference;
 import ch.njol.skript.lang.function.Functions;
+import ch.njol.skript.lang.parser.ParseCache;
 import ch.njol.skript.lang.parser.ParserInstance;
 import ch.njol.skript.lang.util.SimpleLiteral;
 import ch.njol.skript.localization.Language;
@@ -38,6 +39,7 @@ import ch.njol.skript.log.ErrorQuality;
 import ch.njol.skript.log.LogEntry;
 import ch.njol.skript.log.ParseLogHandler;
 import ch.njol.skript.log.SkriptLogger;
+import ch.njol.skript.patterns.KeywordIndex;
 import ch.njol.skript.patterns.MalformedPatternException;
 import ch.njol.skript.patterns.PatternCompiler;
 import ch.njol.skript.patterns.SkriptPattern;
@@ -48,6 +50,7 @@ import ch.njol.util.Kleenean;
 import ch.njol.util.NonNullPair;
 import ch.njol.util.StringUtils;
 import ch.njol.util.coll.CollectionUtils;
+import com.google.common.collect.Iterators;
 import com.google.common.primitives.Booleans;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.eclipse.jdt.annotation.Nullable;
@@ -56,6 +59,8 @@ import org.skriptlang.skript.lang.script.Script;
 import org.skriptlang.skript.lang.script.ScriptWarning;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -169,6 +174,23 @@ public class SkriptParser {
 	 */
 	@Nullable
 	public static <T extends SyntaxElement> T parse(String expr, Iterator<? extends SyntaxElementInfo<T>> source, @Nullable String defaultError) {
+		return parse(expr, source, defaultError, null);
+	}
+
+	/**
+	 * Parses a string as one of the given syntax elements.
+	 * <p>
+	 * Can print an error.
+	 *
+	 * @param cacheSource A string identifying the syntax elements of the source for the {@link ParseCache},
+	 * e.g. {@code statement}. The same string must always be used for the same elements.
+	 * If null, the parse cache is not used.
+	 */
+	@Nullable
+	static <T extends SyntaxElement> T parse(
+		String expr, Iterator<? extends SyntaxElementInfo<T>> source,
+		@Nullable String defaultError, @Nullable String cacheSource
+	) {
 		expr = "" + expr.trim();
 		if (expr.isEmpty()) {
 			Skript.error(defaultError);
@@ -176,7 +198,7 @@ public class SkriptParser {
 		}
 		ParseLogHandler log = SkriptLogger.startParseLogHandler();
 		try {
-			T element = new SkriptParser(expr).parse(source);
+			T element = new SkriptParser(expr).parse(source, cacheSource);
 			if (element != null) {
 				log.printLog();
 				return element;
@@ -218,51 +240,52 @@ public class SkriptParser {
 
 	@Nullable
 	private <T extends SyntaxElement> T parse(Iterator<? extends SyntaxElementInfo<? extends T>> source) {
+		return parse(source, null);
+	}
+
+	/**
+	 * @param cacheSource see {@link #parse(String, Iterator, String, String)}
+	 */
+	@Nullable
+	private <T extends SyntaxElement> T parse(Iterator<? extends SyntaxElementInfo<? extends T>> source, @Nullable String cacheSource) {
+		KeywordIndex keywordIndex = SkriptParser.keywordIndex;
+		KeywordIndex.Candidates candidates = keywordIndex == null ? null : keywordIndex.candidates(expr);
+		ParseCache cache = cacheSource == null ? null : ParseCache.getActive();
+		String cacheKey = cache == null ? null : ParseCache.key(cacheSource, expr, flags, context);
 		ParseLogHandler log = SkriptLogger.startParseLogHandler();
 		try {
+			ParseCache.Hint hint = cacheKey == null ? null : cache.getHint(cacheKey);
+			if (hint != null) {
+				// Try the element this expression was parsed as last time first.
+				// Hints are only given while the syntax, the script and the environment (functions and aliases) are unchanged,
+				// in which case the elements before it failed last time and fail again, so this is the element a full search finds.
+				// The elements before it are kept in case something the cache doesn't track changed nonetheless.
+				List<SyntaxElementInfo<? extends T>> skipped = new ArrayList<>();
+				while (source.hasNext()) {
+					SyntaxElementInfo<? extends T> info = source.next();
+					skipped.add(info);
+					if (hint.matches(info)) {
+						T element = parse(info, hint.getPatternIndex(), candidates, log);
+						if (element != null) {
+							cache.record(cacheKey, info, hint.getPatternIndex(), true);
+							log.printLog();
+							return element;
+						}
+						break;
+					}
+				}
+				source = Iterators.concat(skipped.iterator(), source);
+			}
+
 			while (source.hasNext()) {
 				SyntaxElementInfo<? extends T> info = source.next();
-				patternsLoop: for (int patternIndex = 0; patternIndex < info.patterns.length; patternIndex++) {
-					log.clear();
-					try {
-						String pattern = info.patterns[patternIndex];
-						assert pattern != null;
-						ParseResult parseResult;
-						try {
-							parseResult = parse_i(pattern);
-						} catch (MalformedPatternException e) {
-							String message = "pattern compiling exception, element class: " + info.getElementClass().getName();
-							try {
-								JavaPlugin providingPlugin = JavaPlugin.getProvidingPlugin(info.getElementClass());
-								message += " (provided by " + providingPlugin.getName() + ")";
-							} catch (IllegalArgumentException | IllegalStateException ignored) {}
-							throw new RuntimeException(message, e);
-
-						}
-						if (parseResult != null) {
-							assert parseResult.source != null; // parse results from parse_i have a source
-							List<TypePatternElement> types = null;
-							for (int i = 0; i < parseResult.exprs.length; i++) {
-								if (parseResult.exprs[i] == null) {
-									if (types == null)
-										types = parseResult.source.getElements(TypePatternElement.class);;
-									ExprInfo exprInfo = types.get(i).getExprInfo();
-									if (!exprInfo.isOptional) {
-										DefaultExpression<?> expr = getDefaultExpression(exprInfo, info.patterns[patternIndex]);
-										if (!expr.init())
-											continue patternsLoop;
-										parseResult.exprs[i] = expr;
-									}
-								}
-							}
-							T element = info.getElementClass().newInstance();
-							if (element.init(parseResult.exprs, patternIndex, getParser().getHasDelayBefore(), parseResult)) {
-								log.printLog();
-								return element;
-							}
-						}
-					} catch (InstantiationException | IllegalAccessException e) {
-						assert false;
+				for (int patternIndex = 0; patternIndex < info.patterns.length; patternIndex++) {
+					T element = parse(info, patternIndex, candidates, log);
+					if (element != null) {
+						if (cacheKey != null)
+							cache.record(cacheKey, info, patternIndex, false);
+						log.printLog();
+						return element;
 					}
 				}
 			}
@@ -273,6 +296,72 @@ public class SkriptParser {
 		}
 	}
 
+	/**
+	 * Tries to parse the expression as the pattern with the given index of a syntax element.
+	 * Clears the log before trying if the pattern may match.
+	 *
+	 * @return The initialised element, or null if the pattern does not match or the element could not be initialised.
+	 */
+	@Nullable
+	private <T extends SyntaxElement> T parse(
+		SyntaxElementInfo<? extends T> info, int patternIndex,
+		KeywordIndex.@Nullable Candidates candidates, ParseLogHandler log
+	) {
+		String pattern = info.patterns[patternIndex];
+		assert pattern != null;
+		if (candidates != null && !candidates.mayMatch(pattern))
+			return null; // the expression lacks a keyword of this pattern
+		log.clear();
+		// the statistics are only used to order the syntax, don't pay for them otherwise
+		boolean recordStatistics = SkriptConfig.adaptiveSyntaxOrder.value();
+		long start = recordStatistics ? System.nanoTime() : 0;
+		boolean hit = false;
+		try {
+			ParseResult parseResult;
+			try {
+				parseResult = parse_i(info.getCompiledPattern(patternIndex));
+			} catch (MalformedPatternException e) {
+				String message = "pattern compiling exception, element class: " + info.getElementClass().getName();
+				try {
+					JavaPlugin providingPlugin = JavaPlugin.getProvidingPlugin(info.getElementClass());
+					message += " (provided by " + providingPlugin.getName() + ")";
+				} catch (IllegalArgumentException | IllegalStateException ignored) {}
+				throw new RuntimeException(message, e);
+
+			}
+			if (parseResult != null) {
+				assert parseResult.source != null; // parse results from parse_i have a source
+				List<TypePatternElement> types = null;
+				for (int i = 0; i < parseResult.exprs.length; i++) {
+					if (parseResult.exprs[i] == null) {
+						if (types == null)
+							types = parseResult.source.getElements(TypePatternElement.class);;
+						ExprInfo exprInfo = types.get(i).getExprInfo();
+						if (!exprInfo.isOptional) {
+							DefaultExpression<?> expr = getDefaultExpression(exprInfo, pattern);
+							if (!expr.init())
+								return null;
+							parseResult.exprs[i] = expr;
+						}
+					}
+				}
+				T element = info.getElementClass().newInstance();
+				if (element.init(parseResult.exprs, patternIndex, getParser().getHasDelayBefore(), parseResult)) {
+					if (!getParser().validate(element))
+						return null;
+					hit = true;
+					return element;
+				}
+			}
+		} catch (InstantiationException | IllegalAccessException e) {
+			assert false;
+		} finally {
+			if (recordStatistics)
+				info.getStatistics().record(hit, System.nanoTime() - start);
+		}
+		return null;
+	}
+
 	private static <T extends SyntaxElement> @NotNull DefaultExpression<?> getDefaultExpression(ExprInfo exprInfo, String pattern) {
 		DefaultExpression<?> expr = exprInfo.classes[0].getDefaultExpression();
 		if (expr == null)
@@ -312,17 +401,30 @@ public class SkriptParser {
 				if (!inExpression && (character == '{' || character == '}'))
 					return null;
 			}
-			return Variable.newInstance(variableName, returnTypes);
+			Variable<T> variable = Variable.newInstance(variableName, returnTypes);
+			if (variable != null && !getParser().validate(variable))
+				return null;
+			return variable;
 		}
 		return null;
 	}
 
+	/**
+	 * @return The {@link ParseCache} source of expressions returning any of the given types.
+	 */
+	private static String expressionCacheSource(Class<?>[] types) {
+		StringBuilder source = new StringBuilder("expression");
+		for (Class<?> type : types)
+			source.append(':').append(type.getName());
+		return source.toString();
+	}
+
 	@Nullable
 	private static Expression<?> parseExpression(Class<?>[] types, String expr) {;
 		if (expr.startsWith("\"") && expr.length() != 1 && nextQuote(expr, 1) == expr.length() - 1) {
 			return VariableString.newInstance("" + expr.substring(1, expr.length() - 1));
 		} else {
-			return (Expression<?>) parse(expr, (Iterator) Skript.getExpressions(types), null);
+			return (Expression<?>) parse(expr, (Iterator) Skript.getExpressions(types), null, expressionCacheSource(types));
 		}
 	}
 
@@ -384,7 +486,7 @@ public class SkriptParser {
 						return convertedExpression;
 					}
 					// Print errors, if we couldn't get the correct type
-					log.printError(parsedExpression.toString(null, false) + " " + Language.get("is") + " " + notOfType(types), ErrorQuality.NOT_AN_EXPRESSION);
+					log.printError(() -> parsedExpression.toString(null, false) + " " + Language.get("is") + " " + notOfType(types), ErrorQuality.NOT_AN_EXPRESSION);
 					return null;
 				}
 				log.clear();
@@ -574,7 +676,7 @@ public class SkriptParser {
 					}
 
 					// Print errors, if we couldn't get the correct type
-					log.printError(parsedExpression.toString(null, false) + " " + Language.get("is") + " " + notOfType(types), ErrorQuality.NOT_AN_EXPRESSION);
+					log.printError(() -> parsedExpression.toString(null, false) + " " + Language.get("is") + " " + notOfType(types), ErrorQuality.NOT_AN_EXPRESSION);
 					return null;
 				}
 				log.clear();
@@ -967,7 +1069,8 @@ public class SkriptParser {
 				functionReference = new FunctionReference<>(functionName, SkriptLogger.getNode(),
 						currentScript != null ? currentScript.getConfig().getFileName() : null, types, params);
 			}
-			if (!functionReference.validateFunction(true)) {
+			if (!functionReference.validateFunction(true)
+					|| !getParser().validateFunction(functionName, currentScript != null ? currentScript.getConfig().getFileName() : null)) {
 				log.printError();
 				return null;
 			}
@@ -1315,11 +1418,61 @@ public class SkriptParser {
 		return -1;
 	}
 
-	private static final Map<String, SkriptPattern> patterns = new ConcurrentHashMap<>();
+	/**
+	 * The index of the keywords of all registered syntax patterns,
+	 * {@code null} until registrations have stopped.
+	 */
+	@Nullable
+	private static volatile KeywordIndex keywordIndex;
+
+	/**
+	 * Compiles all patterns of the given syntax elements in parallel, and reports the malformed ones.
+	 * Called by Skript when registrations have stopped, so patterns don't have to be compiled while scripts are parsed.
+	 */
+	public static void compilePatterns(Collection<? extends SyntaxElementInfo<?>> infos) {
+		long start = System.currentTimeMillis();
+		Map<SyntaxElementInfo<?>, MalformedPatternException> malformed = new ConcurrentHashMap<>();
+		infos.parallelStream().forEach(info -> {
+			for (int i = 0; i < info.patterns.length; i++) {
+				try {
+					info.getCompiledPattern(i);
+				} catch (MalformedPatternException e) {
+					malformed.put(info, e);
+				}
+			}
+		});
+		malformed.forEach((info, e) -> {
+			String message = "Malformed pattern of " + info.getElementClass().getName();
+			try {
+				message += " (provided by " + JavaPlugin.getProvidingPlugin(info.getElementClass()).getName() + ")";
+			} catch (IllegalArgumentException | IllegalStateException ignored) {}
+			Skript.error(message + ": " + e.getMessage());
+		});
+		Skript.debug("Compiled the patterns of " + infos.size() + " syntax elements in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Builds the {@link KeywordIndex} of the given syntax elements,
+	 * which is used to skip the patterns a statement can't match without trying them.
+	 * Called by Skript when registrations have stopped.
+	 */
+	public static void buildKeywordIndex(Iterable<? extends SyntaxElementInfo<?>> infos) {
+		List<String> allPatterns = new ArrayList<>();
+		for (SyntaxElementInfo<?> info : infos)
+			Collections.addAll(allPatterns, info.patterns);
+		long start = System.currentTimeMillis();
+		KeywordIndex index = new KeywordIndex(allPatterns, PatternCompiler::getPattern);
+		keywordIndex = index;
+		Skript.debug("Indexed the keywords of " + index.size() + " patterns in " + (System.currentTimeMillis() - start) + " ms");
+	}
 
 	@Nullable
 	private ParseResult parse_i(String pattern) {
-		SkriptPattern skriptPattern = patterns.computeIfAbsent(pattern, PatternCompiler::compile);
+		return parse_i(PatternCompiler.getPattern(pattern));
+	}
+
+	@Nullable
+	private ParseResult parse_i(SkriptPattern skriptPattern) {
 		ch.njol.skript.patterns.MatchResult matchResult = skriptPattern.match(expr, flags, context);
 		if (matchResult == null)
 			return null;
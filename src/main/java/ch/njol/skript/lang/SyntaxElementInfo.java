@@ -19,6 +19,12 @@
 package ch.njol.skript.lang;
 
 import ch.njol.skript.SkriptAPIException;
+import ch.njol.skript.lang.parser.ParseStatistics;
+import ch.njol.skript.patterns.MalformedPatternException;
+import ch.njol.skript.patterns.PatternCompiler;
+import ch.njol.skript.patterns.SkriptPattern;
+import ch.njol.skript.patterns.TypePatternElement;
+import org.jetbrains.annotations.ApiStatus;
 
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
@@ -33,12 +39,20 @@ public class SyntaxElementInfo<E extends SyntaxElement> {
 	public final Class<E> elementClass;
 	public final String[] patterns;
 	public final String originClassPath;
+
+	private final ParseStatistics statistics = new ParseStatistics();
+
+	/**
+	 * The compiled {@link #patterns}, filled in as they are compiled.
+	 */
+	private final SkriptPattern[] compiledPatterns;
   
 	public SyntaxElementInfo(String[] patterns, Class<E> elementClass, String originClassPath) throws IllegalArgumentException {
 		if (Modifier.isAbstract(elementClass.getModifiers()))
 			throw new SkriptAPIException("Class " + elementClass.getName() + " is abstract");
     
 		this.patterns = patterns;
+		this.compiledPatterns = new SkriptPattern[patterns.length];
 		this.elementClass = elementClass;
 		this.originClassPath = originClassPath;
 		try {
@@ -74,4 +88,30 @@ public class SyntaxElementInfo<E extends SyntaxElement> {
 	public String getOriginClassPath() {
 		return originClassPath;
 	}
+
+	/**
+	 * Get the compiled form of one of the patterns of this syntax element, compiling it if necessary.
+	 * @param index The index of the pattern
+	 * @return The compiled pattern
+	 * @throws MalformedPatternException If the pattern is malformed
+	 */
+	@ApiStatus.Internal
+	public SkriptPattern getCompiledPattern(int index) throws MalformedPatternException {
+		SkriptPattern pattern = compiledPatterns[index];
+		if (pattern == null) {
+			pattern = PatternCompiler.getPattern(patterns[index]);
+			pattern.getElements(TypePatternElement.class); // computes and stores the list of types
+			compiledPatterns[index] = pattern;
+		}
+		return pattern;
+	}
+
+	/**
+	 * Get how often and for how long the parser tried to parse expressions as this element.
+	 * @return The parse statistics of this element
+	 */
+	@ApiStatus.Internal
+	public ParseStatistics getStatistics() {
+		return statistics;
+	}
 }
@@ -0,0 +1,48 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.lang;
+
+import ch.njol.skript.lang.parser.ParserInstance;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Restricts the syntax that can be used in some code, e.g. in a {@link ConcurrentSection}.
+ * While such code is parsed, every syntax element that was initialised and every function that is called
+ * is checked by the validators of the {@link ParserInstance}, see {@link ParserInstance#validate(SyntaxElement)}.
+ */
+public interface SyntaxValidator {
+
+	/**
+	 * Checks whether a syntax element that was just initialised may be used in the validated code.
+	 *
+	 * @param element The element.
+	 * @return Whether the element may be used. If not, an error has been printed.
+	 */
+	boolean validate(SyntaxElement element);
+
+	/**
+	 * Checks whether a function may be called in the validated code.
+	 *
+	 * @param name The name of the function.
+	 * @param script The name of the script the function is called in.
+	 * @return Whether the function may be called. If not, an error has been printed.
+	 */
+	boolean validateFunction(String name, @Nullable String script);
+
+}
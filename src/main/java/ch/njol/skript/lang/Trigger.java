@@ -18,6 +18,8 @@
  */
 package ch.njol.skript.lang;
 
+import ch.njol.skript.Skript;
+import ch.njol.skript.registrations.Feature;
 import org.skriptlang.skript.lang.script.Script;
 import ch.njol.skript.variables.Variables;
 import org.bukkit.event.Event;
@@ -41,6 +43,7 @@ public class Trigger extends TriggerSection {
 		this.name = name;
 		this.event = event;
 		this.debugLabel = "unknown trigger";
+		flatten(this, script != null && Skript.experiments().isUsing(script, Feature.COMPILED_TRIGGERS));
 	}
 
 	/**
@@ -0,0 +1,425 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.lang;
+
+import ch.njol.skript.Skript;
+import org.bukkit.event.Event;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiles runs of trigger items (see {@link TriggerItem#flatten(TriggerSection, boolean)}) into hidden classes.
+ * This is only used for triggers of scripts using the {@link ch.njol.skript.registrations.Feature#COMPILED_TRIGGERS} experiment.
+ * <p>
+ * Every compiled run holds its items in final fields of its own class and calls {@link TriggerItem#run(Event)} on each of them
+ * from its own call site. As each call site only ever sees one class of items, the JIT can inline the items,
+ * which it can't do in the interpreter, where every item is called from the same call site.
+ * <p>
+ * Hidden classes require Java 15 or newer. On older versions, and if compiling fails, runs are interpreted.
+ */
+final class TriggerCompiler {
+
+	private TriggerCompiler() {}
+
+	/**
+	 * A compiled run of trigger items.
+	 */
+	interface CompiledRun {
+
+		/**
+		 * Runs the items of the run in order, until one of them returns false.
+		 *
+		 * @param event The event to run the items with.
+		 * @return The index of the item that returned false, or -1 if all items returned true.
+		 * @throws ItemException If an item threw an exception, which is the cause of the thrown exception.
+		 */
+		int execute(Event event);
+
+	}
+
+	/**
+	 * Thrown by {@link CompiledRun#execute(Event)} if an item threw an exception,
+	 * so the exception can be reported for the item that threw it.
+	 */
+	static final class ItemException extends RuntimeException {
+
+		/**
+		 * The index of the item that threw the exception in its run.
+		 */
+		final int index;
+
+		private ItemException(Exception cause, int index) {
+			super(null, cause, false, false);
+			this.index = index;
+		}
+
+		@Override
+		public synchronized Exception getCause() {
+			return (Exception) super.getCause();
+		}
+
+	}
+
+	/**
+	 * Called by compiled runs if an item threw an exception.
+	 */
+	static ItemException failed(Exception exception, int index) {
+		return new ItemException(exception, index);
+	}
+
+	/**
+	 * Runs with more items aren't compiled, so the generated code stays far below the maximum method size.
+	 */
+	private static final int MAX_ITEMS = 1024;
+
+	private static final String CLASS_NAME = "ch/njol/skript/lang/CompiledTriggerRun";
+	private static final String ITEM_CLASS = "ch/njol/skript/lang/TriggerItem";
+	private static final String ITEM_DESCRIPTOR = "L" + ITEM_CLASS + ";";
+	private static final String RUN_DESCRIPTOR = "(Lorg/bukkit/event/Event;)Z";
+	private static final String COMPILER_CLASS = "ch/njol/skript/lang/TriggerCompiler";
+	private static final String FAILED_DESCRIPTOR = "(Ljava/lang/Exception;I)Lch/njol/skript/lang/TriggerCompiler$ItemException;";
+
+	@Nullable
+	private static final Method DEFINE_HIDDEN_CLASS;
+	@Nullable
+	private static final Object CLASS_OPTIONS;
+
+	static {
+		Method defineHiddenClass = null;
+		Object classOptions = null;
+		try {
+			Class<?> classOption = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			classOptions = Array.newInstance(classOption, 0);
+			defineHiddenClass = Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, classOptions.getClass());
+		} catch (ReflectiveOperationException ignored) {} // before Java 15
+		DEFINE_HIDDEN_CLASS = defineHiddenClass;
+		CLASS_OPTIONS = classOptions;
+	}
+
+	/**
+	 * @return Whether this Java version supports compiling runs.
+	 */
+	static boolean isSupported() {
+		return DEFINE_HIDDEN_CLASS != null;
+	}
+
+	/**
+	 * Compiles the given run of items.
+	 *
+	 * @param items The items, which must only need {@link TriggerItem#run(Event)} to be executed.
+	 * @return The compiled run, or null if it can't be compiled.
+	 */
+	@Nullable
+	static CompiledRun compile(TriggerItem[] items) {
+		Method defineHiddenClass = DEFINE_HIDDEN_CLASS;
+		if (defineHiddenClass == null || items.length > MAX_ITEMS)
+			return null;
+		try {
+			Lookup lookup = (Lookup) defineHiddenClass.invoke(MethodHandles.lookup(), generate(items.length), true, CLASS_OPTIONS);
+			return (CompiledRun) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class, TriggerItem[].class))
+				.invoke(items.clone());
+		} catch (Throwable throwable) {
+			if (Skript.debug())
+				Skript.debug("Could not compile a run of " + items.length + " trigger items: " + throwable);
+			return null;
+		}
+	}
+
+	/**
+	 * Generates a class implementing {@link CompiledRun} for the given amount of items.
+	 * Its constructor takes the items as an array and stores them in one field each.
+	 */
+	private static byte[] generate(int items) throws IOException {
+		ConstantPool pool = new ConstantPool();
+		int thisClass = pool.classInfo(CLASS_NAME);
+		int superClass = pool.classInfo("java/lang/Object");
+		int compiledRun = pool.classInfo(CompiledRun.class.getName().replace('.', '/'));
+		int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+		int run = pool.methodRef(ITEM_CLASS, "run", RUN_DESCRIPTOR);
+		int exception = pool.classInfo("java/lang/Exception");
+		int failed = pool.methodRef(COMPILER_CLASS, "failed", FAILED_DESCRIPTOR);
+		int[] fields = new int[items];
+		int[] fieldNames = new int[items];
+		for (int i = 0; i < items; i++) {
+			fields[i] = pool.fieldRef(CLASS_NAME, "item" + i, ITEM_DESCRIPTOR);
+			fieldNames[i] = pool.utf8("item" + i);
+		}
+		int fieldDescriptor = pool.utf8(ITEM_DESCRIPTOR);
+		int code = pool.utf8("Code");
+		int stackMapTable = pool.utf8("StackMapTable");
+		int initName = pool.utf8("<init>");
+		int initDescriptor = pool.utf8("([" + ITEM_DESCRIPTOR + ")V");
+		int executeName = pool.utf8("execute");
+		int executeDescriptor = pool.utf8("(Lorg/bukkit/event/Event;)I");
+
+		// constructor: this.item<i> = items[i]
+		Bytecode init = new Bytecode();
+		init.op(0x2a); // aload_0
+		init.op(0xb7).u2(objectInit); // invokespecial
+		for (int i = 0; i < items; i++) {
+			init.op(0x2a); // aload_0
+			init.op(0x2b); // aload_1
+			init.pushInt(i);
+			init.op(0x32); // aaload
+			init.op(0xb5).u2(fields[i]); // putfield
+		}
+		init.op(0xb1); // return
+
+		// execute: if (!this.item<i>.run(event)) return i; ... return -1;
+		// an exception thrown by item i is caught by handler i: throw TriggerCompiler.failed(exception, i);
+		Bytecode execute = new Bytecode();
+		int[] frames = new int[items];
+		int[] callStarts = new int[items];
+		int[] callEnds = new int[items];
+		for (int i = 0; i < items; i++) {
+			callStarts[i] = execute.length();
+			execute.op(0x2a); // aload_0
+			execute.op(0xb4).u2(fields[i]); // getfield
+			execute.op(0x2b); // aload_1
+			execute.op(0xb6).u2(run); // invokevirtual
+			callEnds[i] = execute.length();
+			execute.op(0x9a).u2(3 + Bytecode.pushIntLength(i) + 1); // ifne to the next item
+			execute.pushInt(i);
+			execute.op(0xac); // ireturn
+			frames[i] = execute.length();
+		}
+		execute.op(0x02); // iconst_m1
+		execute.op(0xac); // ireturn
+		Bytecode exceptionTable = new Bytecode();
+		exceptionTable.u2(items);
+		int[] handlers = new int[items];
+		for (int i = 0; i < items; i++) {
+			handlers[i] = execute.length();
+			execute.pushInt(i);
+			execute.op(0xb8).u2(failed); // invokestatic
+			execute.op(0xbf); // athrow
+			exceptionTable.u2(callStarts[i]).u2(callEnds[i]).u2(handlers[i]).u2(exception);
+		}
+
+		// the locals are the same at every jump target and the stack is empty, except for the exception at the handlers
+		Bytecode frameTable = new Bytecode();
+		frameTable.u2(frames.length + handlers.length);
+		int previous = -1;
+		for (int offset : frames) {
+			int delta = offset - previous - 1;
+			if (delta < 64) {
+				frameTable.op(delta); // same_frame
+			} else {
+				frameTable.op(251).u2(delta); // same_frame_extended
+			}
+			previous = offset;
+		}
+		for (int offset : handlers) {
+			int delta = offset - previous - 1;
+			if (delta < 64) {
+				frameTable.op(64 + delta); // same_locals_1_stack_item_frame
+			} else {
+				frameTable.op(247).u2(delta); // same_locals_1_stack_item_frame_extended
+			}
+			frameTable.op(7).u2(exception); // Object_variable_info
+			previous = offset;
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0xCAFEBABE);
+		out.writeShort(0); // minor version
+		out.writeShort(55); // major version (Java 11)
+		pool.write(out);
+		out.writeShort(0x0010 | 0x0020); // final, super
+		out.writeShort(thisClass);
+		out.writeShort(superClass);
+		out.writeShort(1); // interfaces
+		out.writeShort(compiledRun);
+
+		out.writeShort(items); // fields
+		for (int i = 0; i < items; i++) {
+			out.writeShort(0x0002 | 0x0010); // private final
+			out.writeShort(fieldNames[i]);
+			out.writeShort(fieldDescriptor);
+			out.writeShort(0); // attributes
+		}
+
+		out.writeShort(2); // methods
+		out.writeShort(0x0001); // public
+		out.writeShort(initName);
+		out.writeShort(initDescriptor);
+		out.writeShort(1); // attributes
+		writeCode(out, code, 3, 2, init, null, null, 0);
+
+		out.writeShort(0x0001); // public
+		out.writeShort(executeName);
+		out.writeShort(executeDescriptor);
+		out.writeShort(1); // attributes
+		writeCode(out, code, 2, 2, execute, exceptionTable, frameTable, stackMapTable);
+
+		out.writeShort(0); // class attributes
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void writeCode(DataOutputStream out, int codeName, int maxStack, int maxLocals, Bytecode code,
+								  @Nullable Bytecode exceptionTable, @Nullable Bytecode frames, int stackMapTableName) throws IOException {
+		int exceptionTableLength = exceptionTable == null ? 2 : exceptionTable.length();
+		int attributesLength = frames == null ? 0 : 6 + frames.length();
+		out.writeShort(codeName);
+		out.writeInt(2 + 2 + 4 + code.length() + exceptionTableLength + 2 + attributesLength);
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.length());
+		code.writeTo(out);
+		if (exceptionTable == null) {
+			out.writeShort(0); // exception table
+		} else {
+			exceptionTable.writeTo(out);
+		}
+		if (frames == null) {
+			out.writeShort(0); // attributes
+		} else {
+			out.writeShort(1); // attributes
+			out.writeShort(stackMapTableName);
+			out.writeInt(frames.length());
+			frames.writeTo(out);
+		}
+	}
+
+	/**
+	 * A constant pool which only contains each constant once.
+	 * All entries have to be added before the pool is written.
+	 */
+	private static final class ConstantPool {
+
+		private final Map<String, Integer> indices = new HashMap<>();
+		private final Bytecode entries = new Bytecode();
+		private int count = 1;
+
+		private int add(String key, Bytecode entry) {
+			Integer index = indices.get(key);
+			if (index != null)
+				return index;
+			entries.append(entry);
+			indices.put(key, count);
+			return count++;
+		}
+
+		int utf8(String value) {
+			Integer index = indices.get("Utf8:" + value);
+			if (index != null)
+				return index;
+			Bytecode entry = new Bytecode().op(1);
+			entry.utf(value);
+			return add("Utf8:" + value, entry);
+		}
+
+		int classInfo(String name) {
+			int nameIndex = utf8(name);
+			return add("Class:" + name, new Bytecode().op(7).u2(nameIndex));
+		}
+
+		private int nameAndType(String name, String descriptor) {
+			int nameIndex = utf8(name);
+			int descriptorIndex = utf8(descriptor);
+			return add("NameAndType:" + name + ":" + descriptor, new Bytecode().op(12).u2(nameIndex).u2(descriptorIndex));
+		}
+
+		int fieldRef(String owner, String name, String descriptor) {
+			int ownerIndex = classInfo(owner);
+			int nameAndType = nameAndType(name, descriptor);
+			return add("Field:" + owner + "." + name + ":" + descriptor, new Bytecode().op(9).u2(ownerIndex).u2(nameAndType));
+		}
+
+		int methodRef(String owner, String name, String descriptor) {
+			int ownerIndex = classInfo(owner);
+			int nameAndType = nameAndType(name, descriptor);
+			return add("Method:" + owner + "." + name + ":" + descriptor, new Bytecode().op(10).u2(ownerIndex).u2(nameAndType));
+		}
+
+		void write(DataOutputStream out) throws IOException {
+			out.writeShort(count);
+			entries.writeTo(out);
+		}
+
+	}
+
+	/**
+	 * A growable byte buffer for code and class file structures.
+	 */
+	private static final class Bytecode {
+
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		Bytecode op(int value) {
+			bytes.write(value);
+			return this;
+		}
+
+		Bytecode u2(int value) {
+			bytes.write(value >>> 8);
+			bytes.write(value);
+			return this;
+		}
+
+		void utf(String value) {
+			try {
+				new DataOutputStream(bytes).writeUTF(value);
+			} catch (IOException e) {
+				throw new IllegalStateException(e); // can't happen for a ByteArrayOutputStream
+			}
+		}
+
+		void pushInt(int value) {
+			if (value <= 5) {
+				op(0x03 + value); // iconst_<value>
+			} else if (value <= Byte.MAX_VALUE) {
+				op(0x10).op(value); // bipush
+			} else {
+				op(0x11).u2(value); // sipush
+			}
+		}
+
+		static int pushIntLength(int value) {
+			return value <= 5 ? 1 : value <= Byte.MAX_VALUE ? 2 : 3;
+		}
+
+		void append(Bytecode other) {
+			byte[] otherBytes = other.bytes.toByteArray();
+			bytes.write(otherBytes, 0, otherBytes.length);
+		}
+
+		int length() {
+			return bytes.size();
+		}
+
+		void writeTo(DataOutputStream out) throws IOException {
+			bytes.writeTo(out);
+		}
+
+	}
+
+}
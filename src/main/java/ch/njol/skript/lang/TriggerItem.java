@@ -26,6 +26,8 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.skriptlang.skript.lang.script.Script;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Represents a trigger item, i.e. a trigger section, a condition or an effect.
@@ -42,6 +44,18 @@ public abstract class TriggerItem implements Debuggable {
 	@Nullable
 	private TriggerItem next = null;
 
+	/**
+	 * The run of consecutive simple items this item is part of, see {@link #flatten(TriggerSection, boolean)}.
+	 * Null if this item isn't part of such a run.
+	 */
+	@Nullable
+	private TriggerRun flattened = null;
+
+	/**
+	 * The index of this item in the items of {@link #flattened}.
+	 */
+	private int flattenedIndex;
+
 	protected TriggerItem() {}
 
 	protected TriggerItem(TriggerSection parent) {
@@ -83,9 +97,55 @@ public abstract class TriggerItem implements Debuggable {
 	 */
 	public static boolean walk(TriggerItem start, Event event) {
 		TriggerItem triggerItem = start;
+		TriggerWatchdog.enter(start);
 		try {
-			while (triggerItem != null)
-				triggerItem = triggerItem.walk(event);
+			while (triggerItem != null) {
+				TriggerRun run = triggerItem.flattened;
+				if (run == null) {
+					triggerItem = triggerItem.walk(event);
+					continue;
+				}
+
+				// a run of simple items, see flatten(TriggerSection, boolean): run them without going through walk
+				boolean debug = Skript.debug();
+				TriggerItem[] flattened = run.items;
+				int index = triggerItem.flattenedIndex;
+				if (index == 0 && !debug) {
+					TriggerCompiler.CompiledRun compiled = run.getCompiled();
+					if (compiled != null) {
+						int failed;
+						try {
+							failed = compiled.execute(event);
+						} catch (TriggerCompiler.ItemException ex) {
+							// report the exception for the item that threw it, not for the start of the run
+							triggerItem = flattened[ex.index];
+							throw ex.getCause();
+						}
+						if (failed == -1) {
+							triggerItem = flattened[flattened.length - 1].next;
+						} else {
+							TriggerSection parent = flattened[failed].parent;
+							triggerItem = parent == null ? null : parent.getNext();
+						}
+						continue;
+					}
+				}
+				while (true) {
+					if (!triggerItem.run(event)) {
+						if (debug)
+							triggerItem.debug(event, false);
+						TriggerSection parent = triggerItem.parent;
+						triggerItem = parent == null ? null : parent.getNext();
+						break;
+					}
+					if (debug)
+						triggerItem.debug(event, true);
+					triggerItem = triggerItem.next;
+					// leave the run at its end, or if it was relinked since it was flattened
+					if (++index == flattened.length || flattened[index] != triggerItem)
+						break;
+				}
+			}
 
 			return true;
 		} catch (StackOverflowError err) {
@@ -109,10 +169,66 @@ public abstract class TriggerItem implements Debuggable {
 			// not all Throwables are Exceptions, but we usually don't want to catch them (without rethrowing)
 			Skript.markErrored();
 			throw throwable;
+		} finally {
+			TriggerWatchdog.exit();
 		}
 		return false;
 	}
 
+	/**
+	 * Whether items of a class use the default {@link #walk(Event)}, i.e. only {@link #run(Event)} has to be called to execute them.
+	 */
+	private static final ClassValue<Boolean> SIMPLE_ITEMS = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			for (Class<?> c = type; c != TriggerItem.class; c = c.getSuperclass()) {
+				try {
+					c.getDeclaredMethod("walk", Event.class);
+					return false;
+				} catch (NoSuchMethodException ignored) { }
+			}
+			return true;
+		}
+	};
+
+	/**
+	 * Lowers the items of a section and its subsections into flat runs,
+	 * which {@link #walk(TriggerItem, Event)} executes with a loop over an array instead of calling {@link #walk(Event)} for each item.
+	 * A run consists of consecutive items of the same section which use the default {@link #walk(Event)},
+	 * i.e. plain effects and conditions. Only the flat runs are added, the tree of items itself is not changed.
+	 *
+	 * @param section The section to flatten, usually a {@link Trigger}.
+	 * @param compile Whether runs may be compiled once they are executed often, see {@link TriggerCompiler}.
+	 * Runs in {@link ConcurrentSection}s are never compiled.
+	 */
+	static void flatten(TriggerSection section, boolean compile) {
+		List<TriggerItem> run = new ArrayList<>();
+		TriggerItem item = section.first;
+		while (item != null && item.parent == section) {
+			if (SIMPLE_ITEMS.get(item.getClass())) {
+				run.add(item);
+			} else {
+				setFlattened(run, compile);
+				// concurrent sections run their code on several threads at once, which shouldn't race to compile it
+				if (item instanceof TriggerSection)
+					flatten((TriggerSection) item, compile && !(item instanceof ConcurrentSection));
+			}
+			item = item.next;
+		}
+		setFlattened(run, compile);
+	}
+
+	private static void setFlattened(List<TriggerItem> items, boolean compile) {
+		if (items.size() > 1) { // a single item doesn't benefit from being flattened
+			TriggerRun run = new TriggerRun(items.toArray(new TriggerItem[0]), compile);
+			for (int i = 0; i < run.items.length; i++) {
+				run.items[i].flattened = run;
+				run.items[i].flattenedIndex = i;
+			}
+		}
+		items.clear();
+	}
+
 	/**
 	 * how much to indent each level
 	 */
@@ -0,0 +1,83 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.lang;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A run of consecutive items of a section that only need {@link TriggerItem#run(org.bukkit.event.Event)} to be executed,
+ * see {@link TriggerItem#flatten(TriggerSection, boolean)}.
+ */
+final class TriggerRun {
+
+	/**
+	 * How often a run has to be executed before it is compiled.
+	 */
+	private static final int COMPILE_THRESHOLD = 1000;
+
+	private static final AtomicIntegerFieldUpdater<TriggerRun> EXECUTIONS =
+		AtomicIntegerFieldUpdater.newUpdater(TriggerRun.class, "executions");
+
+	final TriggerItem[] items;
+
+	/**
+	 * Whether this run may be compiled.
+	 */
+	private final boolean compile;
+
+	/**
+	 * How often this run was executed from its start, or -1 once it is being compiled (or was compiled, or failed to be compiled).
+	 * Executions that race with each other may only be counted once, which is fine for a threshold,
+	 * but the count never leaves -1, so a run is only compiled once.
+	 */
+	private volatile int executions;
+
+	@Nullable
+	private volatile TriggerCompiler.CompiledRun compiled;
+
+	TriggerRun(TriggerItem[] items, boolean compile) {
+		this.items = items;
+		this.compile = compile && TriggerCompiler.isSupported();
+	}
+
+	/**
+	 * Records an execution of this run from its start. Once it was executed often enough,
+	 * it is compiled asynchronously, so the execution reaching the threshold doesn't have to wait for it.
+	 *
+	 * @return The compiled run, or null if it should be interpreted.
+	 */
+	@Nullable
+	TriggerCompiler.CompiledRun getCompiled() {
+		if (!compile)
+			return null;
+		int executions = this.executions;
+		if (executions == -1)
+			return compiled;
+		if (executions + 1 < COMPILE_THRESHOLD) {
+			EXECUTIONS.compareAndSet(this, executions, executions + 1);
+		} else if (EXECUTIONS.compareAndSet(this, executions, -1)) {
+			CompletableFuture.runAsync(() -> compiled = TriggerCompiler.compile(items));
+		}
+		return null;
+	}
+
+}
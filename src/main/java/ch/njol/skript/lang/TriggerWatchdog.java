@@ -0,0 +1,137 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.lang;
+
+import ch.njol.skript.Skript;
+import ch.njol.skript.util.Timespan;
+import org.bukkit.Bukkit;
+import org.eclipse.jdt.annotation.Nullable;
+import org.skriptlang.skript.lang.script.Script;
+
+import java.io.File;
+
+/**
+ * Reports triggers that keep the main server thread busy for longer than a configured threshold,
+ * e.g. because they loop over a lot of values without being {@code budgeted}.
+ * <p>
+ * The outermost {@link TriggerItem#walk(TriggerItem, org.bukkit.event.Event)} on the main thread is tracked,
+ * and a separate thread periodically checks how long it has been running.
+ * Every execution is reported at most once. Nothing is tracked while the watchdog is disabled.
+ */
+public final class TriggerWatchdog {
+
+	private TriggerWatchdog() {}
+
+	/**
+	 * The threshold in nanoseconds, or {@code 0} if the watchdog is disabled.
+	 */
+	private static volatile long threshold;
+
+	@Nullable
+	private static Thread thread;
+
+	/**
+	 * How deep the main thread currently is in nested walks. Only changed by the main thread.
+	 */
+	private static int depth;
+
+	@Nullable
+	private static volatile TriggerItem current;
+	private static volatile long startTime;
+
+	/**
+	 * Enables the watchdog, or disables it if the threshold is zero.
+	 *
+	 * @param threshold How long a trigger may run before it is reported.
+	 */
+	public static synchronized void setThreshold(Timespan threshold) {
+		TriggerWatchdog.threshold = threshold.getMilliSeconds() * 1_000_000L;
+		if (TriggerWatchdog.threshold > 0 && thread == null) {
+			Thread thread = new Thread(TriggerWatchdog::watch, "Skript trigger watchdog");
+			thread.setDaemon(true);
+			thread.start();
+			TriggerWatchdog.thread = thread;
+		}
+	}
+
+	/**
+	 * Disables the watchdog and stops its thread.
+	 */
+	public static synchronized void stop() {
+		threshold = 0;
+		if (thread != null)
+			thread.interrupt();
+		thread = null;
+	}
+
+	static void enter(TriggerItem start) {
+		if (threshold == 0 || !Bukkit.isPrimaryThread())
+			return;
+		if (depth++ == 0) {
+			startTime = System.nanoTime();
+			current = start;
+		}
+	}
+
+	static void exit() {
+		// the watchdog may have been enabled or disabled during a walk, so this doesn't depend on the threshold:
+		// a walk that was entered has to be left even if the watchdog was disabled since, and one that wasn't mustn't be
+		if (depth == 0 || !Bukkit.isPrimaryThread())
+			return;
+		if (--depth == 0)
+			current = null;
+	}
+
+	private static void watch() {
+		long reported = 0;
+		while (!Thread.currentThread().isInterrupted()) {
+			long threshold = TriggerWatchdog.threshold;
+			try {
+				Thread.sleep(threshold == 0 ? 1000 : Math.max(10, Math.min(threshold / 2_000_000, 1000)));
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			TriggerItem item = current;
+			long start = startTime;
+			if (item == null || threshold == 0 || start == reported)
+				continue;
+			long elapsed = System.nanoTime() - start;
+			if (elapsed < threshold)
+				continue;
+			reported = start;
+			Skript.warning("The trigger " + describe(item) + " has been running for " + elapsed / 1_000_000 + " ms on the main thread."
+				+ " Consider using a budgeted loop or a delay to spread its work over multiple ticks.");
+		}
+	}
+
+	private static String describe(TriggerItem item) {
+		Trigger trigger = item.getTrigger();
+		if (trigger == null)
+			return "'" + item.toString(null, false) + "'";
+		String description = "'" + trigger.getDebugLabel() + "'";
+		Script script = trigger.getScript();
+		if (script != null) {
+			File file = script.getConfig().getFile();
+			description += " (" + (file != null ? file.getName() : script.getConfig().getFileName()) + ", line " + trigger.getLineNumber() + ")";
+		}
+		return description;
+	}
+
+}
@@ -22,6 +22,7 @@ import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -494,11 +495,22 @@ public class Variable<T> implements Expression<T> {
 		Variables.setVariable("" + name.toString(event), value, event, local);
 	}
 
-	private void setIndex(Event event, String index, @Nullable Object value) {
+	/**
+	 * Changes multiple indices of this list variable at once.
+	 *
+	 * @param values the indices mapped to their new values, {@code null} values delete the index.
+	 */
+	private void setIndices(Event event, Map<String, Object> values) {
 		assert list;
+		if (values.isEmpty())
+			return;
 		String name = this.name.toString(event);
 		assert name.endsWith(SEPARATOR + "*") : name + "; " + this.name;
-		Variables.setVariable(name.substring(0, name.length() - 1) + index, value, event, local);
+		String prefix = name.substring(0, name.length() - 1);
+		Map<String, Object> changes = new LinkedHashMap<>((int) (values.size() / 0.75f) + 1);
+		for (Entry<String, Object> entry : values.entrySet())
+			changes.put(prefix + entry.getKey(), entry.getValue());
+		Variables.setVariables(changes, event, local);
 	}
 
 	@Override
@@ -513,39 +525,27 @@ public class Variable<T> implements Expression<T> {
 	public void change(Event event, @Nullable Object[] delta, ChangeMode mode) throws UnsupportedOperationException {
 		switch (mode) {
 			case DELETE:
-				if (list) {
-					ArrayList<String> toDelete = new ArrayList<>();
-					Map<String, Object> map = (Map<String, Object>) getRaw(event);
-					if (map == null)
-						return;
-					for (Entry<String, Object> entry : map.entrySet()) {
-						if (entry.getKey() != null){
-							toDelete.add(entry.getKey());
-						}
-					}
-					for (String index : toDelete) {
-						assert index != null;
-						setIndex(event, index, null);
-					}
-				}
-
+				if (list && getRaw(event) == null)
+					return;
+				// deleting a list variable deletes all of its elements as well
 				set(event, null);
 				break;
 			case SET:
 				assert delta != null;
 				if (list) {
-					set(event, null);
+					Map<String, Object> values = new LinkedHashMap<>((int) (delta.length / 0.75f) + 1);
 					int i = 1;
 					for (Object value : delta) {
 						if (value instanceof Object[]) {
 							for (int j = 0; j < ((Object[]) value).length; j++) {
-								setIndex(event, "" + i + SEPARATOR + (j + 1), ((Object[]) value)[j]);
+								values.put("" + i + SEPARATOR + (j + 1), ((Object[]) value)[j]);
 							}
 						} else {
-							setIndex(event, "" + i, value);
+							values.put("" + i, value);
 						}
 						i++;
 					}
+					Variables.replaceBranch(name.toString(event), values, event, local);
 				} else if (delta.length > 0) {
 					// if length = 0, likely a failure in casting
 					// (eg, set vector length of {_notvector} to 1, which casts delta to Vector[], resulting in an empty Vector array)
@@ -578,7 +578,9 @@ public class Variable<T> implements Expression<T> {
 					if (mode == ChangeMode.REMOVE) {
 						if (map == null)
 							return;
-						ArrayList<String> toRemove = new ArrayList<>(); // prevents CMEs
+						// the removals are only applied at the end, so equal values in the delta find the same element,
+						// e.g. removing 1 and 1 from (1, 1, 1) only removes the first 1
+						Map<String, Object> toRemove = new LinkedHashMap<>(); // prevents CMEs
 						for (Object value : delta) {
 							for (Entry<String, Object> entry : map.entrySet()) {
 								if (Relation.EQUAL.isImpliedBy(Comparators.compare(entry.getValue(), value))) {
@@ -587,39 +589,39 @@ public class Variable<T> implements Expression<T> {
 										continue; // This is NOT a part of list variable
 
 									// Otherwise, we'll mark that key to be set to null
-									toRemove.add(key);
+									toRemove.put(key, null);
 									break;
 								}
 							}
 						}
-						for (String index : toRemove) {
-							assert index != null;
-							setIndex(event, index, null);
-						}
+						setIndices(event, toRemove);
 					} else if (mode == ChangeMode.REMOVE_ALL) {
 						if (map == null)
 							return;
-						ArrayList<String> toRemove = new ArrayList<>(); // prevents CMEs
+						Map<String, Object> toRemove = new LinkedHashMap<>(); // prevents CMEs
 						for (Entry<String, Object> i : map.entrySet()) {
+							if (i.getKey() == null)
+								continue; // This is NOT a part of list variable
 							for (Object value : delta) {
-								if (Relation.EQUAL.isImpliedBy(Comparators.compare(i.getValue(), value)))
-									toRemove.add(i.getKey());
+								if (Relation.EQUAL.isImpliedBy(Comparators.compare(i.getValue(), value))) {
+									toRemove.put(i.getKey(), null);
+									break;
+								}
 							}
 						}
-						for (String index : toRemove) {
-							assert index != null;
-							setIndex(event, index, null);
-						}
+						setIndices(event, toRemove);
 					} else {
 						assert mode == ChangeMode.ADD;
+						Map<String, Object> toAdd = new LinkedHashMap<>((int) (delta.length / 0.75f) + 1);
 						int i = 1;
 						for (Object value : delta) {
 							if (map != null)
 								while (map.containsKey("" + i))
 									i++;
-							setIndex(event, "" + i, value);
+							toAdd.put("" + i, value);
 							i++;
 						}
+						setIndices(event, toAdd);
 					}
 				} else {
 					Object originalValue = get(event);
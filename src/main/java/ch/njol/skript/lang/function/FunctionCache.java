@@ -0,0 +1,163 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.lang.function;
+
+import ch.njol.skript.registrations.Classes;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of the results of a {@link Signature#isCached() cached} function, keyed by its arguments.
+ * The least recently used results are evicted first, and all results are discarded
+ * once {@link Functions#invalidateCaches()} was called.
+ * <p>
+ * Arguments and results are cloned when they are stored, and results again when they are returned,
+ * so neither the caller nor the function can modify cached values.
+ */
+final class FunctionCache {
+
+	/**
+	 * Stored for functions that returned nothing, to tell them apart from missing entries.
+	 */
+	private static final Object[] NO_RESULT = new Object[0];
+
+	private final Map<Arguments, Object[]> results;
+	private int version = Functions.getCacheVersion();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	FunctionCache(int capacity) {
+		results = new LinkedHashMap<Arguments, Object[]>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Arguments, Object[]> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Looks up the result of the function for the given arguments.
+	 *
+	 * @param arguments The arguments of the call, with default values already applied.
+	 * @return A copy of the cached result, {@link #NO_RESULT} if the function returned nothing,
+	 * or null if the result is not cached.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T @Nullable [] get(Object[][] arguments) {
+		Object[] result;
+		synchronized (this) {
+			checkVersion();
+			result = results.get(new Arguments(arguments));
+		}
+		if (result == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return (T[]) (result == NO_RESULT ? NO_RESULT : copy(result));
+	}
+
+	/**
+	 * Stores the result of the function for the given arguments.
+	 *
+	 * @param arguments The arguments of the call, with default values already applied.
+	 * @param result The result of the call.
+	 */
+	void put(Object[][] arguments, Object @Nullable [] result) {
+		Object[][] storedArguments = new Object[arguments.length][];
+		for (int i = 0; i < arguments.length; i++)
+			storedArguments[i] = copy(arguments[i]);
+		Object[] storedResult = result == null || result.length == 0 ? NO_RESULT : copy(result);
+		synchronized (this) {
+			checkVersion();
+			results.put(new Arguments(storedArguments), storedResult);
+		}
+	}
+
+	/**
+	 * @return Whether the given result of {@link #get(Object[][])} means that the function returned nothing.
+	 */
+	static boolean isEmpty(Object[] result) {
+		return result == NO_RESULT;
+	}
+
+	/**
+	 * Clears the results if they were invalidated since they were stored.
+	 */
+	private void checkVersion() {
+		int currentVersion = Functions.getCacheVersion();
+		if (version != currentVersion) {
+			results.clear();
+			version = currentVersion;
+		}
+	}
+
+	private static Object[] copy(Object[] values) {
+		Object[] copy = values.clone();
+		for (int i = 0; i < copy.length; i++) {
+			if (!FunctionReference.isImmutable(copy[i].getClass()))
+				copy[i] = Classes.clone(copy[i]);
+		}
+		return copy;
+	}
+
+	long getHits() {
+		return hits.sum();
+	}
+
+	long getMisses() {
+		return misses.sum();
+	}
+
+	synchronized int size() {
+		checkVersion();
+		return results.size();
+	}
+
+	/**
+	 * The arguments of a call, compared by their values.
+	 */
+	private static final class Arguments {
+
+		private final Object[][] values;
+		private final int hash;
+
+		Arguments(Object[][] values) {
+			this.values = values;
+			this.hash = Arrays.deepHashCode(values);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof Arguments && Arrays.deepEquals(values, ((Arguments) object).values);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+	}
+
+}
@@ -20,6 +20,7 @@ package ch.njol.skript.lang.function;
 
 import org.bukkit.event.Event;
 import org.bukkit.event.HandlerList;
+import org.eclipse.jdt.annotation.Nullable;
 
 public final class FunctionEvent<T> extends Event {
 	
@@ -27,6 +28,14 @@ public final class FunctionEvent<T> extends Event {
 	private final static HandlerList handlers = new HandlerList();
 	
 	private final Function<? extends T> function;
+
+	/**
+	 * The values returned by this invocation of the function.
+	 * They are stored here rather than in the function, so the same function can be executed
+	 * recursively and from multiple threads at once.
+	 */
+	private Object @Nullable [] returnValues;
+	private boolean returnValueSet;
 	
 	public FunctionEvent(Function<? extends T> function) {
 		this.function = function;
@@ -35,6 +44,16 @@ public final class FunctionEvent<T> extends Event {
 	public Function<? extends T> getFunction() {
 		return function;
 	}
+
+	void setReturnValues(Object @Nullable [] values) {
+		assert !returnValueSet;
+		returnValueSet = true;
+		returnValues = values;
+	}
+
+	Object @Nullable [] getReturnValues() {
+		return returnValues;
+	}
 	
 	@Override
 	public HandlerList getHandlers() {
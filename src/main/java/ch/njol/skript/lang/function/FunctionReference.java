@@ -73,6 +73,12 @@ public class FunctionReference<T> implements Contract {
 	 */
 	private final Expression<?>[] parameters;
 
+	/**
+	 * Whether the values of each parameter have to be cloned before they are passed to the function,
+	 * or null if all of them have to be cloned. Values of immutable types are passed as they are.
+	 */
+	private boolean @Nullable [] cloneParameters;
+
 	/**
 	 * Indicates if the caller expects this function to return a single value.
 	 * Used for verifying correctness of the function signature.
@@ -263,6 +269,10 @@ public class FunctionReference<T> implements Contract {
 			}
 		}
 		
+		cloneParameters = new boolean[parameters.length];
+		for (int i = 0; i < parameters.length; i++)
+			cloneParameters[i] = !isImmutable(parameters[i].getReturnType());
+
 		signature = (Signature<? extends T>) sign;
 		sign.calls.add(this);
 
@@ -273,6 +283,13 @@ public class FunctionReference<T> implements Contract {
 		return true;
 	}
 
+	/**
+	 * @return Whether values of the given type never have to be cloned, as they can't be modified.
+	 */
+	static boolean isImmutable(Class<?> type) {
+		return Number.class.isAssignableFrom(type) || type == String.class || type == Boolean.class;
+	}
+
 	@Nullable
 	public Function<? extends T> getFunction() {
 		return function;
@@ -297,6 +314,7 @@ public class FunctionReference<T> implements Contract {
 		}
 		
 		// Prepare parameter values for calling
+		boolean[] cloneParameters = this.cloneParameters;
 		Object[][] params = new Object[singleListParam ? 1 : parameters.length][];
 		if (singleListParam && parameters.length > 1) { // All parameters to one list
 			List<Object> l = new ArrayList<>();
@@ -311,6 +329,11 @@ public class FunctionReference<T> implements Contract {
 		} else { // Use parameters in normal way
 			for (int i = 0; i < parameters.length; i++) {
 				Object[] array = parameters[i].getArray(e);
+				if (cloneParameters != null && !cloneParameters[i]) {
+					// script functions don't modify the arrays, but java functions might
+					params[i] = function instanceof ScriptFunction ? array : Arrays.copyOf(array, array.length);
+					continue;
+				}
 				params[i] = Arrays.copyOf(array, array.length);
 				// Don't allow mutating across function boundary; same hack is applied to variables
 				for (int j = 0; j < params[i].length; j++) {
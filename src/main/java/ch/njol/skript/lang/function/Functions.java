@@ -25,6 +25,7 @@ import ch.njol.skript.classes.ClassInfo;
 import ch.njol.skript.config.SectionNode;
 import ch.njol.skript.lang.ParseContext;
 import ch.njol.skript.lang.SkriptParser;
+import ch.njol.skript.lang.parser.ParseCache;
 import ch.njol.skript.log.SkriptLogger;
 import ch.njol.skript.registrations.Classes;
 import ch.njol.skript.util.Utils;
@@ -35,10 +36,10 @@ import org.skriptlang.skript.lang.script.Script;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Static methods to work with functions.
@@ -53,13 +54,20 @@ public abstract class Functions {
 
 	private Functions() {}
 
+	/**
+	 * @deprecated This is always null. Functions may be loaded by several threads at once,
+	 * so there is no single function that is currently being loaded.
+	 */
+	@Deprecated
 	@Nullable
 	public static ScriptFunction<?> currentFunction = null;
 
 	/**
 	 * Function namespaces.
+	 * Concurrent, as signatures are registered and looked up while scripts are loaded in parallel.
+	 * Modifications should still go through the synchronized methods of this class.
 	 */
-	private static final Map<Namespace.Key, Namespace> namespaces = new HashMap<>();
+	private static final Map<Namespace.Key, Namespace> namespaces = new ConcurrentHashMap<>();
 
 	/**
 	 * Namespace of Java functions.
@@ -74,10 +82,16 @@ public abstract class Functions {
 	/**
 	 * Namespaces of functions that are globally available.
 	 */
-	private static final Map<String, Namespace> globalFunctions = new HashMap<>();
+	private static final Map<String, Namespace> globalFunctions = new ConcurrentHashMap<>();
 
 	static boolean callFunctionEvents = false;
 
+	/**
+	 * Incremented whenever scripts or functions are (re)loaded, which invalidates the results of all cached functions.
+	 * @see FunctionCache
+	 */
+	private static volatile int cacheVersion;
+
 	/**
 	 * Registers a function written in Java.
 	 *
@@ -141,8 +155,27 @@ public abstract class Functions {
 	 * @see Functions#registerSignature(Signature)
 	 */
 	@Nullable
-	@SuppressWarnings({"unchecked", "null"})
 	public static Signature<?> parseSignature(String script, String name, String args, @Nullable String returnType, boolean local) {
+		return parseSignature(script, name, args, returnType, local, false);
+	}
+
+	/**
+	 * Parses the signature from the given arguments.
+	 * @param script Script file name (<b>might</b> be used for some checks).
+	 * @param name The name of the function.
+	 * @param args The parameters of the function. See {@link Parameter#parse(String)}
+	 * @param returnType The return type of the function
+	 * @param local If the signature of function is local.
+	 * @param cached If the results of the function should be cached by its arguments.
+	 * @return Parsed signature or null if something went wrong.
+	 * @see Functions#registerSignature(Signature)
+	 */
+	@Nullable
+	@SuppressWarnings({"unchecked", "null"})
+	public static Signature<?> parseSignature(String script, String name, String args, @Nullable String returnType, boolean local, boolean cached) {
+		if (cached && returnType == null)
+			return signError("A cached function must return a value, as its body is only executed when its result isn't cached");
+
 		List<Parameter<?>> parameters = Parameter.parse(args);
 		if (parameters == null)
 			return null;
@@ -162,17 +195,18 @@ public abstract class Functions {
 			if (returnClass == null)
 				return signError("Cannot recognise the type '" + returnType + "'");
 		}
-		return new Signature<>(script, name, parameters.toArray(new Parameter[0]), local, (ClassInfo<Object>) returnClass, singleReturn, null);
+		return new Signature<>(script, name, parameters.toArray(new Parameter[0]), local, (ClassInfo<Object>) returnClass, singleReturn, null, null, cached);
 	}
 
 	/**
 	 * Registers the signature.
+	 * This is synchronized, as it is the point where the signatures of scripts loaded in parallel are merged.
 	 * @param signature The signature to register.
 	 * @return Signature of function, or null if something went wrong.
 	 * @see Functions#parseSignature(String, String, String, String, boolean)
 	 */
 	@Nullable
-	public static Signature<?> registerSignature(Signature<?> signature) {
+	public static synchronized Signature<?> registerSignature(Signature<?> signature) {
 		// Ensure there are no duplicate functions
 		if (signature.local) {
 			Namespace namespace = getScriptNamespace(signature.script);
@@ -194,8 +228,10 @@ public abstract class Functions {
 		Namespace.Key namespaceKey = new Namespace.Key(Namespace.Origin.SCRIPT, signature.script);
 		Namespace namespace = namespaces.computeIfAbsent(namespaceKey, k -> new Namespace());
 		namespace.addSignature(signature);
-		if (!signature.local)
+		if (!signature.local) {
 			globalFunctions.put(signature.name, namespace);
+			ParseCache.invalidateEnvironment();
+		}
 
 		Skript.debug("Registered function signature: " + signature.name);
 
@@ -369,7 +405,7 @@ public abstract class Functions {
 	 * @return How many functions were removed
 	 */
 	@Deprecated
-	public static int clearFunctions(String script) {
+	public static synchronized int clearFunctions(String script) {
 		// Get and remove function namespace of script
 		Namespace namespace = namespaces.remove(new Namespace.Key(Namespace.Origin.SCRIPT, script));
 		if (namespace == null) { // No functions defined
@@ -378,26 +414,32 @@ public abstract class Functions {
 
 		// Remove references to this namespace from global functions
 		globalFunctions.values().removeIf(loopedNamespaced -> loopedNamespaced == namespace);
+		ParseCache.invalidateEnvironment();
 
 		// Queue references to signatures we have for revalidation
 		// Can't validate here, because other scripts might be loaded soon
 		for (Signature<?> sign : namespace.getSignatures()) {
-			for (FunctionReference<?> ref : sign.calls) {
-				if (!script.equals(ref.script)) {
-					toValidate.add(ref);
+			synchronized (sign.calls) {
+				for (FunctionReference<?> ref : sign.calls) {
+					if (!script.equals(ref.script)) {
+						toValidate.add(ref);
+					}
 				}
 			}
 		}
 		return namespace.getSignatures().size();
 	}
 
-	public static void unregisterFunction(Signature<?> signature) {
+	public static synchronized void unregisterFunction(Signature<?> signature) {
+		invalidateCaches();
 		Iterator<Namespace> namespaceIterator = namespaces.values().iterator();
 		while (namespaceIterator.hasNext()) {
 			Namespace namespace = namespaceIterator.next();
 			if (namespace.removeSignature(signature)) {
-				if (!signature.local)
+				if (!signature.local) {
 					globalFunctions.remove(signature.getName());
+					ParseCache.invalidateEnvironment();
+				}
 
 				// remove the namespace if it is empty
 				if (namespace.getSignatures().isEmpty())
@@ -407,13 +449,33 @@ public abstract class Functions {
 			}
 		}
 
-		for (FunctionReference<?> ref : signature.calls) {
-			if (!signature.script.equals(ref.script))
-				toValidate.add(ref);
+		synchronized (signature.calls) {
+			for (FunctionReference<?> ref : signature.calls) {
+				if (!signature.script.equals(ref.script))
+					toValidate.add(ref);
+			}
+		}
+	}
+
+	/**
+	 * Queues the calls to the given signature that were made from the script declaring it for revalidation.
+	 * Calls from other scripts are already queued by {@link #unregisterFunction(Signature)},
+	 * but calls from the same script also need to be revalidated if the function is reloaded without the rest of its script.
+	 * Remember to call {@link #validateFunctions()} after calling this.
+	 *
+	 * @param signature The signature of the function that is reloaded.
+	 */
+	public static synchronized void queueLocalCalls(Signature<?> signature) {
+		synchronized (signature.calls) {
+			for (FunctionReference<?> ref : signature.calls) {
+				if (signature.script.equals(ref.script))
+					toValidate.add(ref);
+			}
 		}
 	}
 
-	public static void validateFunctions() {
+	public static synchronized void validateFunctions() {
+		invalidateCaches();
 		for (FunctionReference<?> c : toValidate)
 			c.validateFunction(false);
 		toValidate.clear();
@@ -423,15 +485,59 @@ public abstract class Functions {
 	 * Clears all function calls and removes script functions.
 	 */
 	@Deprecated
-	public static void clearFunctions() {
+	public static synchronized void clearFunctions() {
 		// Keep Java functions, remove everything else
 		globalFunctions.values().removeIf(namespace -> namespace != javaNamespace);
 		namespaces.clear();
+		ParseCache.invalidateEnvironment();
 
 		assert toValidate.isEmpty() : toValidate;
 		toValidate.clear();
 	}
 
+	/**
+	 * @return The signatures of all global functions, including the ones written in Java.
+	 */
+	public static synchronized Collection<Signature<?>> getGlobalSignatures() {
+		List<Signature<?>> signatures = new ArrayList<>(globalFunctions.size());
+		for (Map.Entry<String, Namespace> entry : globalFunctions.entrySet()) {
+			Signature<?> signature = entry.getValue().getSignature(entry.getKey(), false);
+			if (signature != null)
+				signatures.add(signature);
+		}
+		return signatures;
+	}
+
+	/**
+	 * Invalidates the cached results of all cached functions.
+	 * This is done whenever scripts are loaded or functions change,
+	 * as the functions called by a cached function may have changed as well.
+	 */
+	public static void invalidateCaches() {
+		cacheVersion++; // only the change matters, so a lost update is fine
+	}
+
+	/**
+	 * @return The current version of the results of cached functions, see {@link #invalidateCaches()}.
+	 */
+	static int getCacheVersion() {
+		return cacheVersion;
+	}
+
+	/**
+	 * @return All loaded script functions whose results are cached.
+	 */
+	public static List<ScriptFunction<?>> getCachedFunctions() {
+		List<ScriptFunction<?>> functions = new ArrayList<>();
+		for (Namespace namespace : namespaces.values()) {
+			for (Function<?> function : namespace.getFunctions()) {
+				if (function instanceof ScriptFunction && function.getSignature().cached)
+					functions.add((ScriptFunction<?>) function);
+			}
+		}
+		return functions;
+	}
+
 	@SuppressWarnings({"unchecked"})
 	public static Collection<JavaFunction<?>> getJavaFunctions() {
 		// We know there are only Java functions in that namespace
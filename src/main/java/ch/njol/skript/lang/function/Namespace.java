@@ -19,9 +19,9 @@
 package ch.njol.skript.lang.function;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.Nullable;
 
@@ -153,8 +153,9 @@ public class Namespace {
 	private final Map<Info, Function<?>> functions;
 
 	public Namespace() {
-		this.signatures = new HashMap<>();
-		this.functions = new HashMap<>();
+		// concurrent, as functions may be looked up while other scripts are loaded in parallel
+		this.signatures = new ConcurrentHashMap<>();
+		this.functions = new ConcurrentHashMap<>();
 	}
 	
 	@Nullable
@@ -170,17 +171,13 @@ public class Namespace {
 
 	public void addSignature(Signature<?> sign) {
 		Info info = new Info(sign.getName(), sign.local);
-		if (signatures.containsKey(info))
+		if (signatures.putIfAbsent(info, sign) != null)
 			throw new IllegalArgumentException("function name already used");
-		signatures.put(info, sign);
 	}
 
 	public boolean removeSignature(Signature<?> sign) {
 		Info info = new Info(sign.getName(), sign.local);
-		if (signatures.get(info) != sign)
-			return false;
-		signatures.remove(info);
-		return true;
+		return signatures.remove(info, sign);
 	}
 	
 	@SuppressWarnings("null")
@@ -18,6 +18,7 @@
  */
 package ch.njol.skript.lang.function;
 
+import ch.njol.skript.SkriptConfig;
 import ch.njol.skript.classes.ClassInfo;
 import ch.njol.skript.lang.Expression;
 import ch.njol.skript.lang.ReturnHandler;
@@ -33,10 +34,30 @@ import ch.njol.skript.variables.Variables;
 
 public class ScriptFunction<T> extends Function<T> implements ReturnHandler<T> {
 
+	/**
+	 * How many names of the elements of list parameters are created in advance, see {@link #listParameterNames}.
+	 */
+	private static final int CACHED_LIST_NAMES = 8;
+
+	/**
+	 * The innermost invocation of a script function on each thread,
+	 * for return values that are not set with the function's own event.
+	 */
+	private static final ThreadLocal<FunctionEvent<?>> CURRENT_INVOCATION = new ThreadLocal<>();
+
 	private final Trigger trigger;
 
-	private boolean returnValueSet;
-	private T @Nullable [] returnValues;
+	/**
+	 * The names of the first elements of each list parameter, i.e. {@code parameter::1}, {@code parameter::2}, etc.,
+	 * so they don't have to be created for every call.
+	 */
+	private final String[][] listParameterNames;
+
+	/**
+	 * The results of this function by their arguments, if it is {@link Signature#isCached() cached}.
+	 */
+	@Nullable
+	private final FunctionCache cache;
 
 	/**
 	 * @deprecated use {@link ScriptFunction#ScriptFunction(Signature, SectionNode)}
@@ -49,35 +70,101 @@ public class ScriptFunction<T> extends Function<T> implements ReturnHandler<T> {
 	public ScriptFunction(Signature<T> sign, SectionNode node) {
 		super(sign);
 
-		Functions.currentFunction = this;
-		try {
-			trigger = loadReturnableTrigger(node, "function " + sign.getName(), new SimpleEvent());
-		} finally {
-			Functions.currentFunction = null;
-		}
+		trigger = loadReturnableTrigger(node, "function " + sign.getName(), new SimpleEvent());
 		trigger.setLineNumber(node.getLine());
+
+		Parameter<?>[] parameters = sign.getParameters();
+		listParameterNames = new String[parameters.length][];
+		for (int i = 0; i < parameters.length; i++) {
+			listParameterNames[i] = new String[parameters[i].single ? 0 : CACHED_LIST_NAMES];
+			for (int j = 0; j < listParameterNames[i].length; j++)
+				listParameterNames[i][j] = parameters[i].name + "::" + (j + 1);
+		}
+
+		cache = sign.isCached() ? new FunctionCache(Math.max(1, SkriptConfig.functionCacheSize.value())) : null;
 	}
 
 	// REMIND track possible types of local variables (including undefined variables) (consider functions, commands, and EffChange) - maybe make a general interface for this purpose
 	// REM: use patterns, e.g. {_a%b%} is like "a.*", and thus subsequent {_axyz} may be set and of that type.
 	@Override
 	public T @Nullable [] execute(final FunctionEvent<?> e, final Object[][] params) {
+		FunctionCache cache = this.cache;
+		if (cache != null) {
+			T[] cached = cache.get(params);
+			if (cached != null)
+				return FunctionCache.isEmpty(cached) ? null : cached;
+		}
+
 		Parameter<?>[] parameters = getSignature().getParameters();
+		int count = 0;
+		for (int i = 0; i < parameters.length; i++)
+			count += parameters[i].single ? Math.min(params[i].length, 1) : params[i].length;
+
+		// set all parameters at once, in the same order as they would be set one by one
+		String[] names = new String[count];
+		Object[] values = new Object[count];
+		int index = 0;
 		for (int i = 0; i < parameters.length; i++) {
 			Parameter<?> p = parameters[i];
 			Object[] val = params[i];
 			if (p.single && val.length > 0) {
-				Variables.setVariable(p.name, val[0], e, true);
+				names[index] = p.name;
+				values[index++] = val[0];
 			} else {
+				String[] listNames = listParameterNames[i];
 				for (int j = 0; j < val.length; j++) {
-					Variables.setVariable(p.name + "::" + (j + 1), val[j], e, true);
+					names[index] = j < listNames.length ? listNames[j] : p.name + "::" + (j + 1);
+					values[index++] = val[j];
 				}
 			}
 		}
+		Variables.createLocalVariables(e, names, values, count);
 		
-		trigger.execute(e);
+		FunctionEvent<?> previousInvocation = CURRENT_INVOCATION.get();
+		CURRENT_INVOCATION.set(e);
+		try {
+			trigger.execute(e);
+		} finally {
+			CURRENT_INVOCATION.set(previousInvocation);
+		}
 		ClassInfo<T> returnType = getReturnType();
-		return returnType != null ? returnValues : null;
+		if (returnType == null)
+			return null;
+		//noinspection unchecked - the values were converted to the return type by EffReturn
+		T @Nullable [] returnValues = (T[]) e.getReturnValues();
+		if (cache != null)
+			cache.put(params, returnValues);
+		return returnValues;
+	}
+
+	/**
+	 * @return The trigger containing the code of this function.
+	 */
+	public Trigger getTrigger() {
+		return trigger;
+	}
+
+	/**
+	 * @return How often the result of this function was taken from its cache,
+	 * or {@code 0} if it is not {@link Signature#isCached() cached}.
+	 */
+	public long getCacheHits() {
+		return cache != null ? cache.getHits() : 0;
+	}
+
+	/**
+	 * @return How often this function had to be executed as its result was not cached,
+	 * or {@code 0} if it is not {@link Signature#isCached() cached}.
+	 */
+	public long getCacheMisses() {
+		return cache != null ? cache.getMisses() : 0;
+	}
+
+	/**
+	 * @return The amount of results currently cached for this function.
+	 */
+	public int getCacheSize() {
+		return cache != null ? cache.size() : 0;
 	}
 
 	/**
@@ -86,23 +173,32 @@ public class ScriptFunction<T> extends Function<T> implements ReturnHandler<T> {
 	@Deprecated
 	@ApiStatus.Internal
 	public final void setReturnValue(@Nullable T[] values) {
-		assert !returnValueSet;
-		returnValueSet = true;
-		this.returnValues = values;
+		FunctionEvent<?> invocation = CURRENT_INVOCATION.get();
+		assert invocation != null && invocation.getFunction() == this;
+		if (invocation != null)
+			invocation.setReturnValues(values);
 	}
 
+	/**
+	 * Return values are stored in the {@link FunctionEvent} of each invocation, so there is nothing to reset.
+	 */
 	@Override
 	public boolean resetReturnValue() {
-		returnValueSet = false;
-		returnValues = null;
 		return true;
 	}
 
 	@Override
 	public final void returnValues(Event event, Expression<? extends T> value) {
-		assert !returnValueSet;
-		returnValueSet = true;
-		this.returnValues = value.getArray(event);
+		FunctionEvent<?> invocation;
+		if (event instanceof FunctionEvent && ((FunctionEvent<?>) event).getFunction() == this) {
+			invocation = (FunctionEvent<?>) event;
+		} else { // returned from a section that is executed with its own event
+			invocation = CURRENT_INVOCATION.get();
+			assert invocation != null && invocation.getFunction() == this;
+			if (invocation == null)
+				return;
+		}
+		invocation.setReturnValues(value.getArray(event));
 	}
 
 	@Override
@@ -67,6 +67,7 @@ public class Signature<T> {
 	
 	/**
 	 * References (function calls) to function with this signature.
+	 * Synchronized, as scripts calling this function may be loaded in parallel.
 	 */
 	final Collection<FunctionReference<?>> calls;
 
@@ -82,13 +83,20 @@ public class Signature<T> {
 	@Nullable
 	final Contract contract;
 
+	/**
+	 * Whether the results of this function are cached by its arguments.
+	 * The body of such a function can't have side effects, see {@link ch.njol.skript.structures.StructFunction}.
+	 */
+	final boolean cached;
+
 	public Signature(String script,
 					 String name,
 					 Parameter<?>[] parameters, boolean local,
 					 @Nullable ClassInfo<T> returnType,
 					 boolean single,
 					 @Nullable String originClassPath,
-					 @Nullable Contract contract) {
+					 @Nullable Contract contract,
+					 boolean cached) {
 		this.script = script;
 		this.name = name;
 		this.parameters = parameters;
@@ -97,8 +105,19 @@ public class Signature<T> {
 		this.single = single;
 		this.originClassPath = originClassPath;
 		this.contract = contract;
+		this.cached = cached;
 
-		calls = Collections.newSetFromMap(new WeakHashMap<>());
+		calls = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+	}
+
+	public Signature(String script,
+					 String name,
+					 Parameter<?>[] parameters, boolean local,
+					 @Nullable ClassInfo<T> returnType,
+					 boolean single,
+					 @Nullable String originClassPath,
+					 @Nullable Contract contract) {
+		this(script, name, parameters, local, returnType, single, originClassPath, contract, false);
 	}
 
 	public Signature(String script,
@@ -149,6 +168,10 @@ public class Signature<T> {
 		return contract;
 	}
 
+	public boolean isCached() {
+		return cached;
+	}
+
 	/**
 	 * Gets maximum number of parameters that the function described by this
 	 * signature is able to take.
@@ -0,0 +1,217 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.lang.parser;
+
+import ch.njol.skript.Skript;
+import ch.njol.skript.aliases.Aliases;
+import ch.njol.skript.lang.ParseContext;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of the results of parsing literals, e.g. whether {@code player} can be parsed as a number.
+ * <p>
+ * The same words are parsed as literals on almost every line of a script, which mostly fails.
+ * While scripts are {@link #start() being loaded}, a cache remembers the result of each string,
+ * type and {@link ParseContext}, and is cleared once the loading is done, as results may depend on
+ * the state of the server (e.g. the loaded worlds). Results are not cached for scripts that define
+ * their own aliases, and all caches are cleared when the aliases are reloaded.
+ * <p>
+ * Each cache holds at most {@value #MAX_SIZE} results, and is cleared when it is full.
+ */
+@ApiStatus.Internal
+public final class LiteralParseCache {
+
+	private static final int MAX_SIZE = 10000;
+
+	/**
+	 * Strings that {@link ch.njol.skript.registrations.Classes#parse(String, Class, ParseContext)} failed to parse
+	 * without logging an error. Successful results are not cached, as they may be mutable.
+	 */
+	public static final LiteralParseCache CLASSES = new LiteralParseCache("classes");
+
+	/**
+	 * Results of {@link Aliases#parseItemType(String)}. Item types are mutable, so the results must be cloned.
+	 */
+	public static final LiteralParseCache ITEM_TYPES = new LiteralParseCache("item types");
+
+	/**
+	 * Results of {@link ch.njol.skript.util.Timespan#parse(String)}.
+	 */
+	public static final LiteralParseCache TIMESPANS = new LiteralParseCache("timespans");
+
+	private static final LiteralParseCache[] CACHES = {CLASSES, ITEM_TYPES, TIMESPANS};
+
+	/**
+	 * The amount of script loads in progress.
+	 */
+	private static final AtomicInteger loads = new AtomicInteger();
+
+	/**
+	 * A cached result, whose value is null if parsing failed.
+	 */
+	public static final class Result {
+
+		private static final Result FAILURE = new Result(null);
+
+		@Nullable
+		private final Object value;
+
+		private Result(@Nullable Object value) {
+			this.value = value;
+		}
+
+		/**
+		 * @return The parsed value, or null if parsing failed.
+		 */
+		@Nullable
+		public Object getValue() {
+			return value;
+		}
+
+	}
+
+	private static final class Key {
+
+		private final String string;
+		private final Class<?> type;
+		private final ParseContext context;
+
+		private Key(String string, Class<?> type, ParseContext context) {
+			this.string = string;
+			this.type = type;
+			this.context = context;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object)
+				return true;
+			if (!(object instanceof Key))
+				return false;
+			Key other = (Key) object;
+			return string.equals(other.string) && type == other.type && context == other.context;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(string, type, context);
+		}
+
+	}
+
+	private final String name;
+	private final Map<Key, Result> results = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	private LiteralParseCache(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Starts using the caches for a script load. Every call must be followed by a call to {@link #stop()}.
+	 */
+	public static void start() {
+		loads.incrementAndGet();
+	}
+
+	/**
+	 * Stops using the caches for a script load, and clears them if no other load is in progress.
+	 */
+	public static void stop() {
+		if (loads.decrementAndGet() > 0)
+			return;
+		for (LiteralParseCache cache : CACHES) {
+			if (Skript.debug())
+				Skript.debug("Literal cache of " + cache.name + ": " + cache.getHits() + " hits, " + cache.getMisses() + " misses");
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Clears all caches, e.g. because the aliases were reloaded.
+	 */
+	public static void clearAll() {
+		for (LiteralParseCache cache : CACHES)
+			cache.clear();
+	}
+
+	/**
+	 * @return Whether the caches may be used on the current thread, i.e. whether it is loading a script
+	 * that doesn't define its own aliases.
+	 */
+	public static boolean isActive() {
+		if (loads.get() == 0)
+			return false;
+		ParserInstance parser = ParserInstance.get();
+		return parser.isActive() && Aliases.getScriptAliases(parser.getCurrentScript()) == null;
+	}
+
+	/**
+	 * @param string The parsed string.
+	 * @param type The type the string was parsed as.
+	 * @param context The context the string was parsed in.
+	 * @return The cached result, or null if there is none.
+	 */
+	@Nullable
+	public Result get(String string, Class<?> type, ParseContext context) {
+		Result result = results.get(new Key(string, type, context));
+		(result != null ? hits : misses).increment();
+		return result;
+	}
+
+	/**
+	 * Caches the result of parsing a string.
+	 *
+	 * @param value The parsed value, or null if parsing failed.
+	 */
+	public void put(String string, Class<?> type, ParseContext context, @Nullable Object value) {
+		if (results.size() >= MAX_SIZE)
+			results.clear();
+		results.put(new Key(string, type, context), value == null ? Result.FAILURE : new Result(value));
+	}
+
+	private void clear() {
+		results.clear();
+		hits.reset();
+		misses.reset();
+	}
+
+	/**
+	 * @return How often a result was found in this cache since it was last cleared.
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return How often no result was found in this cache since it was last cleared.
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+}
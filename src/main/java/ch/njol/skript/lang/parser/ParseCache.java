@@ -0,0 +1,471 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.lang.parser;
+
+import ch.njol.skript.Skript;
+import ch.njol.skript.SkriptAddon;
+import ch.njol.skript.aliases.Aliases;
+import ch.njol.skript.classes.ClassInfo;
+import ch.njol.skript.config.Config;
+import ch.njol.skript.lang.ParseContext;
+import ch.njol.skript.lang.SyntaxElementInfo;
+import ch.njol.skript.lang.TriggerSection;
+import ch.njol.skript.lang.function.Functions;
+import ch.njol.skript.lang.function.Parameter;
+import ch.njol.skript.lang.function.Signature;
+import ch.njol.skript.util.FileUtils;
+import ch.njol.util.Kleenean;
+import ch.njol.util.NonNullPair;
+import org.bukkit.event.Event;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+import org.skriptlang.skript.lang.experiment.Experiment;
+import org.skriptlang.skript.lang.experiment.ExperimentSet;
+import org.skriptlang.skript.lang.script.Script;
+import org.skriptlang.skript.lang.script.ScriptData;
+import org.skriptlang.skript.lang.structure.Structure;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A persistent cache of which syntax element and pattern each line of a script was parsed as.
+ * <p>
+ * When a script is loaded again, the parser tries the remembered element and pattern first,
+ * instead of trying every registered syntax element in order.
+ * The remembered element is still matched and initialised as usual, so a hint that no longer applies
+ * simply fails, after which the parser falls back to the full search.
+ * <p>
+ * A cache is only used if both the contents of the script file and the {@link #getFingerprint() fingerprint}
+ * of the registered syntax are the same as when it was written. As the elements tried before the remembered one
+ * may succeed or fail depending on the state of the parser, hints are keyed by that state as well
+ * (see {@link #key(String, String, int, ParseContext)}), so a hint is only used where the same element won before.
+ * They may also depend on what other scripts and files define, so the hints of a cache are only used
+ * while the {@link #getEnvironment() environment} is the same as when they were written.
+ * Under these conditions, the remembered element is the one a full search would find first.
+ * Only the hints that were used or
+ * found while loading the script are written back, so stale hints don't accumulate.
+ */
+@ApiStatus.Internal
+public final class ParseCache implements ScriptData {
+
+	private static final int MAGIC = 0x534B5043; // "SKPC"
+	private static final int FORMAT_VERSION = 3;
+
+	/**
+	 * Keys longer than this are not cached, as they could not be written by {@link DataOutputStream#writeUTF(String)}.
+	 */
+	private static final int MAX_KEY_LENGTH = 16384;
+
+	/**
+	 * The syntax element and pattern an expression was parsed as.
+	 */
+	public static final class Hint {
+
+		private final String elementClass;
+		private final int patternIndex;
+		private final int patternHash;
+
+		private Hint(String elementClass, int patternIndex, int patternHash) {
+			this.elementClass = elementClass;
+			this.patternIndex = patternIndex;
+			this.patternHash = patternHash;
+		}
+
+		/**
+		 * @return Whether the given syntax element is the element of this hint.
+		 */
+		public boolean matches(SyntaxElementInfo<?> info) {
+			return info.getElementClass().getName().equals(elementClass)
+				&& patternIndex < info.patterns.length
+				&& info.patterns[patternIndex].hashCode() == patternHash;
+		}
+
+		public int getPatternIndex() {
+			return patternIndex;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (this == object)
+				return true;
+			if (!(object instanceof Hint))
+				return false;
+			Hint other = (Hint) object;
+			return patternIndex == other.patternIndex && patternHash == other.patternHash && elementClass.equals(other.elementClass);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(elementClass, patternIndex, patternHash);
+		}
+
+	}
+
+	@Nullable
+	private static volatile String fingerprint;
+
+	/**
+	 * The last computed {@link #getEnvironment() environment}, and the {@link #environmentVersion} it was computed at.
+	 */
+	@Nullable
+	private static volatile NonNullPair<Integer, String> environment;
+
+	private static final AtomicInteger environmentVersion = new AtomicInteger();
+
+	/**
+	 * The file this cache is stored in.
+	 */
+	private final File file;
+
+	/**
+	 * The hash of the contents of the script when it was loaded.
+	 */
+	private final String scriptHash;
+
+	/**
+	 * The hints read from the cache file.
+	 */
+	private final Map<String, Hint> loadedHints;
+
+	/**
+	 * The {@link #getEnvironment() environment} the hints read from the cache file were written in.
+	 */
+	@Nullable
+	private final String loadedEnvironment;
+
+	/**
+	 * The hints used or found while loading the script, which are written back to the cache file.
+	 */
+	private final Map<String, Hint> hints = new ConcurrentHashMap<>();
+
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+
+	private ParseCache(File file, String scriptHash, Map<String, Hint> loadedHints, @Nullable String loadedEnvironment) {
+		this.file = file;
+		this.scriptHash = scriptHash;
+		this.loadedHints = loadedHints;
+		this.loadedEnvironment = loadedEnvironment;
+	}
+
+	/**
+	 * @return The folder parse caches are stored in.
+	 */
+	public static File getCacheFolder() {
+		return new File(Skript.getInstance().getDataFolder(), "cache");
+	}
+
+	/**
+	 * @return The parse cache of the script the current thread is loading, or null if there is none.
+	 */
+	@Nullable
+	public static ParseCache getActive() {
+		ParserInstance parser = ParserInstance.get();
+		if (!parser.isActive())
+			return null;
+		return parser.getCurrentScript().getData(ParseCache.class);
+	}
+
+	/**
+	 * Reads the parse cache of the given script and attaches it to the script.
+	 * If the cache does not exist, is corrupt or stale, an empty cache is attached instead.
+	 *
+	 * @param script The script to read the cache of. Its config must have a file.
+	 */
+	public static void attach(Script script) {
+		Config config = script.getConfig();
+		File scriptFile = config.getFile();
+		assert scriptFile != null;
+		try {
+			String scriptHash = hash(Files.readAllBytes(scriptFile.toPath()));
+			File file = new File(getCacheFolder(), hash(scriptFile.getAbsolutePath().getBytes(StandardCharsets.UTF_8)) + ".cache");
+			ParseCache cache = file.exists() ? read(file, scriptHash) : null;
+			script.addData(cache != null ? cache : new ParseCache(file, scriptHash, Collections.emptyMap(), null));
+		} catch (IOException e) {
+			Skript.warning("Could not read the parse cache of " + config.getFileName() + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes the hints of the given script's parse cache, if it has one and any hint changed,
+	 * and detaches the cache from the script.
+	 */
+	public static void detach(Script script) {
+		ParseCache cache = script.getData(ParseCache.class);
+		if (cache == null)
+			return;
+		script.removeData(ParseCache.class);
+
+		if (Skript.debug())
+			Skript.debug("Parse cache of " + script.getConfig().getFileName() + ": " + cache.hits + " hits, " + cache.misses + " misses");
+		if (cache.hints.equals(cache.loadedHints))
+			return;
+		try {
+			cache.write();
+		} catch (IOException e) {
+			Skript.warning("Could not write the parse cache of " + script.getConfig().getFileName() + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Creates the key of an expression. Besides the expression, it contains the state of the parser
+	 * that decides which syntax element the expression is parsed as:
+	 * the current events, structure and sections, whether there was a delay before,
+	 * and the experiments the script is using.
+	 *
+	 * @param source A string identifying the syntax elements the expression is parsed as, e.g. {@code statement}.
+	 * @param expr The expression.
+	 * @param flags The parse flags.
+	 * @param context The parse context.
+	 * @return The key, or null if the expression should not be cached.
+	 */
+	@Nullable
+	public static String key(String source, String expr, int flags, ParseContext context) {
+		if (expr.length() > MAX_KEY_LENGTH)
+			return null;
+		// the elements tried before the remembered one may depend on the event and delays
+		ParserInstance parser = ParserInstance.get();
+		StringBuilder key = new StringBuilder(source.length() + expr.length() + 32)
+			.append(source).append('\u0000')
+			.append(flags).append('\u0000')
+			.append(context.ordinal()).append('\u0000');
+		Class<? extends Event>[] events = parser.getCurrentEvents();
+		if (events != null) {
+			for (Class<? extends Event> event : events)
+				key.append(event.getName()).append(',');
+		}
+		key.append('\u0000');
+		Structure structure = parser.getCurrentStructure();
+		if (structure != null)
+			key.append(structure.getClass().getName());
+		key.append('\u0000');
+		for (TriggerSection section : parser.getCurrentSections())
+			key.append(section.getClass().getName()).append(',');
+		key.append('\u0000');
+		ExperimentSet experiments = parser.getCurrentScript().getData(ExperimentSet.class);
+		if (experiments != null) {
+			for (Experiment experiment : experiments)
+				key.append(experiment.codeName()).append(',');
+		}
+		Kleenean delay = parser.getHasDelayBefore();
+		return key.append('\u0000').append(delay.ordinal()).append('\u0000').append(expr).toString();
+	}
+
+	/**
+	 * @param key The key of the expression, see {@link #key(String, String, int, ParseContext)}.
+	 * @return The hint for the expression, or null if there is none.
+	 */
+	@Nullable
+	public Hint getHint(String key) {
+		Hint hint = hints.get(key);
+		if (hint != null || loadedHints.isEmpty())
+			return hint;
+		// the environment isn't final when the cache is read, as the scripts being loaded still register their functions then
+		return getEnvironment().equals(loadedEnvironment) ? loadedHints.get(key) : null;
+	}
+
+	/**
+	 * Records that an expression was parsed as the given syntax element.
+	 *
+	 * @param key The key of the expression, see {@link #key(String, String, int, ParseContext)}.
+	 * @param hit Whether the element was found using the expression's hint.
+	 */
+	public void record(String key, SyntaxElementInfo<?> info, int patternIndex, boolean hit) {
+		(hit ? hits : misses).incrementAndGet();
+		hints.put(key, new Hint(info.getElementClass().getName(), patternIndex, info.patterns[patternIndex].hashCode()));
+	}
+
+	/**
+	 * The fingerprint of everything the result of parsing depends on, apart from the script itself:
+	 * the versions of Skript and its addons, as well as all registered syntax elements.
+	 * It is computed once, after registrations have stopped.
+	 *
+	 * @return The fingerprint of the registered syntax.
+	 */
+	public static String getFingerprint() {
+		String fingerprint = ParseCache.fingerprint;
+		if (fingerprint != null)
+			return fingerprint;
+		fingerprint = computeFingerprint();
+		if (!Skript.isAcceptRegistrations())
+			ParseCache.fingerprint = fingerprint;
+		return fingerprint;
+	}
+
+	/**
+	 * The fingerprint of what parsing depends on besides the registered syntax and the script itself,
+	 * which may change while the server is running: the signatures of all global functions, and the names of all aliases.
+	 * It is computed again after {@link #invalidateEnvironment()} was called.
+	 *
+	 * @return The fingerprint of the environment scripts are parsed in.
+	 */
+	public static String getEnvironment() {
+		int version = environmentVersion.get();
+		NonNullPair<Integer, String> cached = environment;
+		if (cached != null && cached.getFirst() == version)
+			return cached.getSecond();
+		List<Signature<?>> signatures = new ArrayList<>(Functions.getGlobalSignatures());
+		signatures.sort(Comparator.comparing(Signature::getName));
+		StringBuilder builder = new StringBuilder();
+		builder.append(Aliases.getFingerprint()).append('\n');
+		for (Signature<?> signature : signatures) {
+			builder.append(signature.getName()).append('(');
+			for (Parameter<?> parameter : signature.getParameters())
+				builder.append(parameter).append(',');
+			ClassInfo<?> returnType = signature.getReturnType();
+			builder.append(')').append(returnType == null ? "" : returnType.getCodeName()).append(signature.isSingle()).append('\n');
+		}
+		// if the environment changes while this is computed, the version changes as well and it is computed again next time
+		String hash = hash(builder.toString().getBytes(StandardCharsets.UTF_8));
+		environment = new NonNullPair<>(version, hash);
+		return hash;
+	}
+
+	/**
+	 * Marks the {@link #getEnvironment() environment} as changed.
+	 * This must be called whenever global functions or aliases are added or removed.
+	 */
+	public static void invalidateEnvironment() {
+		environmentVersion.incrementAndGet();
+	}
+
+	/**
+	 * Computes the {@link #getFingerprint() fingerprint} of the registered syntax now and keeps it,
+	 * so it isn't affected by later changes to the order of the registered syntax elements.
+	 * Must be called after registrations have stopped.
+	 */
+	public static void freezeFingerprint() {
+		assert !Skript.isAcceptRegistrations();
+		fingerprint = computeFingerprint();
+	}
+
+	private static String computeFingerprint() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(Skript.getVersion()).append('\n');
+		for (SkriptAddon addon : Skript.getAddons())
+			builder.append(addon.getName()).append(' ').append(addon.version).append('\n');
+		appendSyntax(builder, Skript.getStructures().iterator());
+		appendSyntax(builder, Skript.getEvents().iterator());
+		appendSyntax(builder, Skript.getStatements().iterator());
+		appendSyntax(builder, Skript.getSections().iterator());
+		appendSyntax(builder, Skript.getExpressions());
+		return hash(builder.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void appendSyntax(StringBuilder builder, Iterator<? extends SyntaxElementInfo<?>> infos) {
+		while (infos.hasNext()) {
+			SyntaxElementInfo<?> info = infos.next();
+			builder.append(info.getElementClass().getName());
+			for (String pattern : info.patterns)
+				builder.append('\u0000').append(pattern);
+			builder.append('\n');
+		}
+	}
+
+	private static String hash(byte[] bytes) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every Java platform supports SHA-256
+		}
+		StringBuilder hex = new StringBuilder(64);
+		for (byte b : digest.digest(bytes))
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		return hex.toString();
+	}
+
+	/**
+	 * Reads a cache file.
+	 *
+	 * @return The cache, or null if the file is not a valid cache for the script with the given hash.
+	 */
+	@Nullable
+	private static ParseCache read(File file, String scriptHash) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+				return null;
+			if (!in.readUTF().equals(getFingerprint()) || !in.readUTF().equals(scriptHash))
+				return null;
+			String environment = in.readUTF();
+			int count = in.readInt();
+			if (count < 0 || count > file.length())
+				return null;
+			Map<String, Hint> hints = new HashMap<>((int) (count / 0.75f) + 1);
+			for (int i = 0; i < count; i++) {
+				String key = in.readUTF();
+				String elementClass = in.readUTF();
+				int patternIndex = in.readInt();
+				int patternHash = in.readInt();
+				if (patternIndex < 0)
+					return null;
+				hints.put(key, new Hint(elementClass, patternIndex, patternHash));
+			}
+			return new ParseCache(file, scriptHash, hints, environment);
+		} catch (EOFException e) {
+			return null; // truncated
+		}
+	}
+
+	private void write() throws IOException {
+		File folder = file.getParentFile();
+		if (!folder.isDirectory() && !folder.mkdirs())
+			throw new IOException("Could not create the folder " + folder);
+		File temp = new File(folder, file.getName() + ".temp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(getFingerprint());
+			out.writeUTF(scriptHash);
+			out.writeUTF(getEnvironment());
+			out.writeInt(hints.size());
+			for (Map.Entry<String, Hint> entry : hints.entrySet()) {
+				Hint hint = entry.getValue();
+				out.writeUTF(entry.getKey());
+				out.writeUTF(hint.elementClass);
+				out.writeInt(hint.patternIndex);
+				out.writeInt(hint.patternHash);
+			}
+		}
+		FileUtils.move(temp, file, true);
+	}
+
+}
@@ -0,0 +1,107 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.lang.parser;
+
+import ch.njol.skript.config.Node;
+import ch.njol.skript.lang.ParseContext;
+import ch.njol.skript.log.LogEntry;
+import ch.njol.skript.log.SkriptLogger;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Remembers which sub-expressions of the statement currently being parsed could not be parsed,
+ * so the backtracking of {@link ch.njol.skript.patterns.TypePatternElement} doesn't parse them again
+ * when trying other split points, patterns or syntax elements.
+ * <p>
+ * A memo is only valid for a single line, as the result of parsing depends on the parser's state.
+ * It is discarded whenever the {@link ParserInstance#setNode(Node) node} changes.
+ * Successfully parsed expressions are not remembered, as they are initialised for, and may be changed by,
+ * the syntax element using them.
+ */
+@ApiStatus.Internal
+public final class ParseMemo {
+
+	/**
+	 * A failed parse attempt, along with the best error it logged.
+	 */
+	private static final class Failure {
+
+		@Nullable
+		private final Level level;
+		private final int quality;
+		@Nullable
+		private final String message;
+
+		Failure(@Nullable LogEntry error) {
+			this.level = error == null ? null : error.getLevel();
+			this.quality = error == null ? 0 : error.getQuality();
+			this.message = error == null ? null : error.getMessage();
+		}
+
+	}
+
+	private final Map<String, Failure> failures = new HashMap<>();
+
+	ParseMemo() {}
+
+	/**
+	 * Creates the key of a parse attempt.
+	 *
+	 * @param expr the parsed text.
+	 * @param types a string identifying the requested types, e.g. the pattern element's string representation.
+	 * @param flags the parse flags.
+	 * @param context the parse context.
+	 * @return the key.
+	 */
+	public static String key(String expr, String types, int flags, ParseContext context) {
+		return types + '\u0000' + flags + '\u0000' + context.ordinal() + '\u0000' + expr;
+	}
+
+	/**
+	 * Checks whether the parse attempt with the given key failed before,
+	 * and logs the error it logged again if so.
+	 *
+	 * @param key the {@link #key(String, String, int, ParseContext) key} of the parse attempt.
+	 * @return whether the attempt is known to fail.
+	 */
+	public boolean replayFailure(String key) {
+		Failure failure = failures.get(key);
+		if (failure == null)
+			return false;
+		if (failure.level != null && failure.message != null)
+			SkriptLogger.log(new LogEntry(failure.level, failure.quality, failure.message));
+		return true;
+	}
+
+	/**
+	 * Remembers that the parse attempt with the given key failed.
+	 *
+	 * @param key the {@link #key(String, String, int, ParseContext) key} of the parse attempt.
+	 * @param error the best error logged by the attempt, or {@code null} if it didn't log any.
+	 */
+	public void failed(String key, @Nullable LogEntry error) {
+		failures.put(key, new Failure(error));
+	}
+
+}
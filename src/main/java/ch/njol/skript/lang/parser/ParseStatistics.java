@@ -0,0 +1,264 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.lang.parser;
+
+import ch.njol.skript.Skript;
+import ch.njol.skript.lang.SyntaxElementInfo;
+import ch.njol.skript.patterns.MalformedPatternException;
+import ch.njol.skript.util.FileUtils;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How often and for how long the parser tried to parse expressions as a {@link SyntaxElementInfo syntax element}.
+ * <p>
+ * An attempt is counted for every pattern of the element that an expression was matched against,
+ * patterns the expression lacks a keyword of are skipped without being counted.
+ * The time of an attempt includes parsing the sub-expressions of the element.
+ * <p>
+ * The counts of earlier boots can be {@link #load() loaded} and {@link #save() saved} to the cache folder,
+ * and used to {@link #reorder(List) reorder} syntax elements so the frequently used ones are tried first.
+ */
+@ApiStatus.Internal
+public final class ParseStatistics {
+
+	private static final String FILE_NAME = "syntax statistics.txt";
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder nanos = new LongAdder();
+
+	/**
+	 * The counts of earlier boots, see {@link #load()}.
+	 */
+	private volatile long previousHits, previousMisses, previousNanos;
+
+	/**
+	 * Records an attempt to parse an expression as a pattern of the element.
+	 *
+	 * @param hit Whether the expression was parsed as the element.
+	 * @param nanos How long the attempt took, in nanoseconds.
+	 */
+	public void record(boolean hit, long nanos) {
+		(hit ? hits : misses).increment();
+		this.nanos.add(nanos);
+	}
+
+	/**
+	 * @return How often an expression was parsed as the element, including earlier boots if they were loaded.
+	 */
+	public long getHits() {
+		return previousHits + hits.sum();
+	}
+
+	/**
+	 * @return How often a pattern of the element was tried without success, including earlier boots if they were loaded.
+	 */
+	public long getMisses() {
+		return previousMisses + misses.sum();
+	}
+
+	/**
+	 * @return The total time spent on trying the element in nanoseconds, including earlier boots if they were loaded.
+	 */
+	public long getNanos() {
+		return previousNanos + nanos.sum();
+	}
+
+	private static File getFile() {
+		return new File(ParseCache.getCacheFolder(), FILE_NAME);
+	}
+
+	/**
+	 * @return All registered syntax elements whose statistics are kept.
+	 */
+	public static List<SyntaxElementInfo<?>> getSyntaxElements() {
+		List<SyntaxElementInfo<?>> infos = new ArrayList<>();
+		infos.addAll(Skript.getStructures());
+		infos.addAll(Skript.getEvents());
+		infos.addAll(Skript.getStatements());
+		infos.addAll(Skript.getSections());
+		Skript.getExpressions().forEachRemaining(infos::add);
+		return infos;
+	}
+
+	/**
+	 * Loads the counts of earlier boots into the statistics of all registered syntax elements.
+	 * Elements are identified by their class, so the counts stay with an element if others are added or removed.
+	 */
+	public static void load() {
+		File file = getFile();
+		if (!file.exists())
+			return;
+		Map<String, long[]> counts = new HashMap<>();
+		try {
+			for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+				String[] split = line.split("\t");
+				if (split.length != 4)
+					continue;
+				try {
+					counts.put(split[0], new long[] {Long.parseLong(split[1]), Long.parseLong(split[2]), Long.parseLong(split[3])});
+				} catch (NumberFormatException ignored) {}
+			}
+		} catch (IOException e) {
+			Skript.warning("Could not read the syntax statistics: " + e.getMessage());
+			return;
+		}
+		for (SyntaxElementInfo<?> info : getSyntaxElements()) {
+			long[] count = counts.get(info.getElementClass().getName());
+			if (count == null)
+				continue;
+			ParseStatistics statistics = info.getStatistics();
+			statistics.previousHits = count[0];
+			statistics.previousMisses = count[1];
+			statistics.previousNanos = count[2];
+		}
+	}
+
+	/**
+	 * Saves the counts of all registered syntax elements, including the ones of earlier boots.
+	 */
+	public static void save() {
+		File file = getFile();
+		File folder = file.getParentFile();
+		if (!folder.isDirectory() && !folder.mkdirs()) {
+			Skript.warning("Could not create the folder " + folder);
+			return;
+		}
+		File temp = new File(folder, FILE_NAME + ".temp");
+		Set<String> saved = new HashSet<>();
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+				for (SyntaxElementInfo<?> info : getSyntaxElements()) {
+					String name = info.getElementClass().getName();
+					ParseStatistics statistics = info.getStatistics();
+					if (!saved.add(name) || statistics.getHits() + statistics.getMisses() == 0)
+						continue; // the first element of a class is the one that was loaded
+					writer.write(name + "\t" + statistics.getHits() + "\t" + statistics.getMisses() + "\t" + statistics.getNanos());
+					writer.newLine();
+				}
+			}
+			FileUtils.move(temp, file, true);
+		} catch (IOException e) {
+			Skript.warning("Could not save the syntax statistics: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Reorders syntax elements so that the ones with the most hits are tried first.
+	 * <p>
+	 * As the parser uses the first element an expression can be parsed as, two elements only switch places
+	 * if no expression can match both of them: if each pattern of both elements starts with some literal text,
+	 * and none of these texts of one element is a prefix of one of the other element's.
+	 * All other elements keep their registration order relative to each other, so the parse results don't change.
+	 *
+	 * @param infos The syntax elements, in the order they were registered.
+	 */
+	public static <T extends SyntaxElementInfo<?>> void reorder(List<T> infos) {
+		int size = infos.size();
+		List<String[]> startingKeywords = new ArrayList<>(size);
+		for (T info : infos)
+			startingKeywords.add(getStartingKeywords(info));
+
+		// an element must come after all earlier registered elements it overlaps with
+		List<List<Integer>> successors = new ArrayList<>(size);
+		int[] predecessors = new int[size];
+		for (int i = 0; i < size; i++) {
+			List<Integer> overlapping = new ArrayList<>();
+			for (int j = i + 1; j < size; j++) {
+				if (mayOverlap(startingKeywords.get(i), startingKeywords.get(j))) {
+					overlapping.add(j);
+					predecessors[j]++;
+				}
+			}
+			successors.add(overlapping);
+		}
+
+		long[] hits = new long[size];
+		for (int i = 0; i < size; i++)
+			hits[i] = infos.get(i).getStatistics().getHits();
+		PriorityQueue<Integer> available = new PriorityQueue<>(
+			Comparator.<Integer>comparingLong(i -> -hits[i]).thenComparingInt(i -> i)
+		);
+		for (int i = 0; i < size; i++) {
+			if (predecessors[i] == 0)
+				available.add(i);
+		}
+		List<T> reordered = new ArrayList<>(size);
+		while (!available.isEmpty()) {
+			int next = available.poll();
+			reordered.add(infos.get(next));
+			for (int successor : successors.get(next)) {
+				if (--predecessors[successor] == 0)
+					available.add(successor);
+			}
+		}
+		assert reordered.size() == size;
+		for (int i = 0; i < size; i++)
+			infos.set(i, reordered.get(i));
+	}
+
+	/**
+	 * @return The starting keywords of all patterns of the element, or null if any pattern lacks one.
+	 */
+	@Nullable
+	private static String[] getStartingKeywords(SyntaxElementInfo<?> info) {
+		String[] keywords = new String[info.patterns.length];
+		for (int i = 0; i < keywords.length; i++) {
+			String keyword;
+			try {
+				keyword = info.getCompiledPattern(i).getStartingKeyword();
+			} catch (MalformedPatternException e) {
+				return null;
+			}
+			if (keyword == null)
+				return null;
+			keywords[i] = keyword;
+		}
+		return keywords;
+	}
+
+	private static boolean mayOverlap(@Nullable String[] first, @Nullable String[] second) {
+		if (first == null || second == null)
+			return true;
+		for (String a : first) {
+			for (String b : second) {
+				if (a.startsWith(b) || b.startsWith(a))
+					return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -23,9 +23,12 @@ import ch.njol.skript.Skript;
 import ch.njol.skript.SkriptAPIException;
 import ch.njol.skript.config.Config;
 import ch.njol.skript.config.Node;
+import ch.njol.skript.lang.ConcurrentSection;
 import ch.njol.skript.lang.Expression;
 import ch.njol.skript.lang.SkriptEvent;
 import ch.njol.skript.lang.SkriptParser;
+import ch.njol.skript.lang.SyntaxElement;
+import ch.njol.skript.lang.SyntaxValidator;
 import ch.njol.skript.lang.TriggerSection;
 import ch.njol.skript.log.HandlerList;
 import ch.njol.skript.structures.StructOptions.OptionsData;
@@ -105,6 +108,8 @@ public final class ParserInstance implements Experimented {
 		this.currentEventName = null;
 		this.currentEvents = null;
 		this.currentSections = new ArrayList<>();
+		this.currentConcurrentSection = null;
+		this.syntaxValidator = null;
 		this.hasDelayBefore = Kleenean.FALSE;
 		this.node = null;
 		dataMap.clear();
@@ -284,6 +289,81 @@ public final class ParserInstance implements Experimented {
 	 */
 	public void setCurrentSections(List<TriggerSection> currentSections) {
 		this.currentSections = currentSections;
+		this.currentConcurrentSection = findConcurrentSection(currentSections);
+	}
+
+	/**
+	 * The innermost of the current sections that is a {@link ConcurrentSection}.
+	 * It is kept here as it is checked for every parsed syntax element.
+	 */
+	@Nullable
+	private ConcurrentSection currentConcurrentSection;
+
+	/**
+	 * @return The innermost section this ParserInstance is currently within that is a {@link ConcurrentSection},
+	 * which every syntax element parsed now has to be {@link ConcurrentSection#validate(SyntaxElement) validated} by.
+	 * This only reflects changes of the current sections made through {@link #setCurrentSections(List)}.
+	 */
+	@Nullable
+	public ConcurrentSection getCurrentConcurrentSection() {
+		return currentConcurrentSection;
+	}
+
+	@Nullable
+	private static ConcurrentSection findConcurrentSection(List<TriggerSection> sections) {
+		for (int i = sections.size(); i-- > 0;) {
+			TriggerSection section = sections.get(i);
+			if (section instanceof ConcurrentSection)
+				return (ConcurrentSection) section;
+		}
+		return null;
+	}
+
+	@Nullable
+	private SyntaxValidator syntaxValidator;
+
+	/**
+	 * Sets a validator that checks all code parsed from now on, in addition to the current {@link ConcurrentSection}.
+	 * This is used by structures that restrict the syntax of their code, which have to remove it again once the code is loaded.
+	 *
+	 * @param syntaxValidator The validator, or null to remove it.
+	 */
+	public void setSyntaxValidator(@Nullable SyntaxValidator syntaxValidator) {
+		this.syntaxValidator = syntaxValidator;
+	}
+
+	/**
+	 * @return The validator set by {@link #setSyntaxValidator(SyntaxValidator)}, or null if there is none.
+	 */
+	@Nullable
+	public SyntaxValidator getSyntaxValidator() {
+		return syntaxValidator;
+	}
+
+	/**
+	 * Checks whether a syntax element that was just initialised may be used where code is currently parsed,
+	 * as decided by the {@link #getSyntaxValidator() syntax validator} and the {@link #getCurrentConcurrentSection() current concurrent section}.
+	 *
+	 * @param element The element.
+	 * @return Whether the element may be used. If not, an error has been printed.
+	 */
+	public boolean validate(SyntaxElement element) {
+		if (syntaxValidator != null && !syntaxValidator.validate(element))
+			return false;
+		return currentConcurrentSection == null || currentConcurrentSection.validate(element);
+	}
+
+	/**
+	 * Checks whether a function may be called where code is currently parsed, see {@link #validate(SyntaxElement)}.
+	 *
+	 * @param name The name of the function.
+	 * @param script The name of the script the function is called in.
+	 * @return Whether the function may be called. If not, an error has been printed.
+	 */
+	public boolean validateFunction(String name, @Nullable String script) {
+		if (syntaxValidator != null && !syntaxValidator.validateFunction(name, script))
+			return false;
+		return currentConcurrentSection == null || currentConcurrentSection.validateFunction(name, script);
 	}
 
 	/**
@@ -397,6 +477,7 @@ public final class ParserInstance implements Experimented {
 	 */
 	public void setNode(@Nullable Node node) {
 		this.node = (node == null || node.getParent() == null) ? null : node;
+		parseMemo = null;
 	}
 
 	/**
@@ -408,6 +489,23 @@ public final class ParserInstance implements Experimented {
 		return node;
 	}
 
+	@Nullable
+	private ParseMemo parseMemo;
+
+	/**
+	 * @return The memo of the line currently being parsed, created on first use.
+	 * Null if no node is currently being handled, as the memo is only valid for a single line.
+	 */
+	@ApiStatus.Internal
+	@Nullable
+	public ParseMemo getParseMemo() {
+		if (node == null)
+			return null;
+		if (parseMemo == null)
+			parseMemo = new ParseMemo();
+		return parseMemo;
+	}
+
 	private String indentation = "";
 
 	public void setIndentation(String indentation) {
@@ -588,7 +686,7 @@ public final class ParserInstance implements Experimented {
 			parser.currentStructure = this.currentStructure;
 			parser.currentEventName = this.currentEventName;
 			parser.currentEvents = this.currentEvents;
-			parser.currentSections = this.currentSections;
+			parser.setCurrentSections(this.currentSections);
 			parser.hasDelayBefore = this.hasDelayBefore;
 			parser.dataMap.clear();
 			parser.dataMap.putAll(this.dataMap);
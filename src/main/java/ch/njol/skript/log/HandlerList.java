@@ -18,35 +18,65 @@
  */
 package ch.njol.skript.log;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.NoSuchElementException;
 
 import org.eclipse.jdt.annotation.Nullable;
 
 /**
+ * A stack of log handlers, with the most recently started handler first.
+ * <p>
+ * Handlers are started and stopped for nearly every parse attempt, usually in stack order,
+ * so this is backed by an array that is searched from the top by identity.
+ *
  * @author Peter Güttinger
  */
 public class HandlerList implements Iterable<LogHandler> {
 	
-	private final LinkedList<LogHandler> list = new LinkedList<>();
+	private LogHandler[] handlers = new LogHandler[16];
+	private int size;
 	
 	public void add(LogHandler h) {
-		list.addFirst(h);
+		if (size == handlers.length)
+			handlers = Arrays.copyOf(handlers, size * 2);
+		handlers[size++] = h;
 	}
 	
 	@Nullable
 	public LogHandler remove() {
-		return list.pop();
+		if (size == 0)
+			throw new NoSuchElementException();
+		LogHandler handler = handlers[--size];
+		handlers[size] = null;
+		return handler;
 	}
 	
-	@SuppressWarnings("null")
 	@Override
 	public Iterator<LogHandler> iterator() {
-		return list.iterator();
+		return new Iterator<LogHandler>() {
+			private int next = size - 1;
+			
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+			
+			@Override
+			public LogHandler next() {
+				if (next < 0)
+					throw new NoSuchElementException();
+				return handlers[next--];
+			}
+		};
 	}
 	
 	public boolean contains(LogHandler h) {
-		return list.contains(h);
+		for (int i = size - 1; i >= 0; i--) {
+			if (handlers[i] == h)
+				return true;
+		}
+		return false;
 	}
 	
 }
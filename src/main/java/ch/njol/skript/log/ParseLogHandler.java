@@ -24,6 +24,7 @@ import org.jetbrains.annotations.Contract;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 public class ParseLogHandler extends LogHandler {
@@ -133,13 +134,25 @@ public class ParseLogHandler extends LogHandler {
 	}
 	
 	public void printError(String def, ErrorQuality quality) {
+		printError(() -> def, quality);
+	}
+
+	/**
+	 * Prints the best error, or the given error if no error of at least the given quality has been logged.
+	 * The given error is only created if it is printed, which makes this cheaper
+	 * than {@link #printError(String, ErrorQuality)} for messages that are expensive to build.
+	 *
+	 * @param def Supplies the error to log if no error of at least the given quality has been logged
+	 * @param quality The quality of the given error
+	 */
+	public void printError(Supplier<String> def, ErrorQuality quality) {
 		printedErrorOrLog = true;
 		stop();
 		LogEntry error = this.error;
 		if (error != null && error.quality >= quality.quality())
 			SkriptLogger.log(error);
 		else
-			SkriptLogger.log(new LogEntry(SkriptLogger.SEVERE, quality, def));
+			SkriptLogger.log(new LogEntry(SkriptLogger.SEVERE, quality, def.get()));
 		for (LogEntry e : log)
 			e.discarded("not printed");
 	}
@@ -97,7 +97,7 @@ abstract class Keyword {
 	/**
 	 * A keyword implementation that requires a specific string to be present.
 	 */
-	private static final class SimpleKeyword extends Keyword {
+	static final class SimpleKeyword extends Keyword {
 
 		private final String keyword;
 		private final boolean starting, ending;
@@ -108,6 +108,18 @@ abstract class Keyword {
 			this.ending = ending;
 		}
 
+		String getKeyword() {
+			return keyword;
+		}
+
+		boolean isStarting() {
+			return starting;
+		}
+
+		boolean isEnding() {
+			return ending;
+		}
+
 		@Override
 		public boolean isPresent(String expr) {
 			if (starting)
@@ -0,0 +1,180 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.patterns;
+
+import ch.njol.skript.patterns.Keyword.SimpleKeyword;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * An index of the keywords of many patterns, used to quickly find the patterns an expression may match.
+ * <p>
+ * Each pattern is indexed by one of its {@link Keyword keywords}: the keyword the pattern starts with if there is one,
+ * otherwise its longest keyword that must be contained in or end the expression. An expression can only match
+ * the patterns whose indexed keyword it contains, which are found with a single walk over tries of all keywords.
+ * Patterns without any such keyword are always {@link Candidates#mayMatch(String) candidates}.
+ * <p>
+ * The index only rules patterns out, matching a candidate still checks all of its keywords.
+ */
+public final class KeywordIndex {
+
+	/**
+	 * A node of a trie over keywords.
+	 */
+	private static final class Node {
+
+		private final Map<Character, Node> children = new HashMap<>(4);
+		private final BitSet patterns = new BitSet();
+		private boolean terminal;
+
+		Node add(String keyword, int patternId) {
+			Node node = this;
+			for (int i = 0; i < keyword.length(); i++)
+				node = node.children.computeIfAbsent(keyword.charAt(i), c -> new Node());
+			node.terminal = true;
+			node.patterns.set(patternId);
+			return node;
+		}
+
+	}
+
+	private final Map<String, Integer> ids = new HashMap<>();
+
+	/**
+	 * The patterns that have no indexable keyword.
+	 */
+	private final BitSet unindexed = new BitSet();
+
+	private final Node starting = new Node();
+	private final Node ending = new Node(); // keywords are added reversed
+	private final Node contained = new Node();
+
+	/**
+	 * Builds an index of the given patterns.
+	 *
+	 * @param patterns the patterns.
+	 * @param compiler compiles patterns, e.g. through a cache. Patterns that fail to compile are not indexed.
+	 */
+	public KeywordIndex(Iterable<String> patterns, Function<String, SkriptPattern> compiler) {
+		for (String pattern : patterns) {
+			if (ids.containsKey(pattern))
+				continue;
+			SkriptPattern skriptPattern;
+			try {
+				skriptPattern = compiler.apply(pattern);
+			} catch (MalformedPatternException e) {
+				continue; // the error is reported when the pattern is used
+			}
+			int id = ids.size();
+			ids.put(pattern, id);
+			index(skriptPattern.getKeywords(), id);
+		}
+	}
+
+	private void index(Keyword[] keywords, int id) {
+		SimpleKeyword best = null;
+		for (Keyword keyword : keywords) {
+			if (!(keyword instanceof SimpleKeyword))
+				continue;
+			SimpleKeyword simpleKeyword = (SimpleKeyword) keyword;
+			if (simpleKeyword.isStarting()) {
+				best = simpleKeyword;
+				break;
+			}
+			if (best == null || simpleKeyword.getKeyword().length() > best.getKeyword().length())
+				best = simpleKeyword;
+		}
+
+		if (best == null) {
+			unindexed.set(id);
+		} else if (best.isStarting()) {
+			starting.add(best.getKeyword(), id);
+		} else if (best.isEnding()) {
+			ending.add(new StringBuilder(best.getKeyword()).reverse().toString(), id);
+		} else {
+			contained.add(best.getKeyword(), id);
+		}
+	}
+
+	/**
+	 * @return the amount of indexed patterns.
+	 */
+	public int size() {
+		return ids.size();
+	}
+
+	/**
+	 * Finds the patterns the given expression may match.
+	 *
+	 * @param expr the expression, which must already be trimmed.
+	 * @return the candidate patterns.
+	 */
+	public Candidates candidates(String expr) {
+		String lowerExpr = expr.toLowerCase(Locale.ENGLISH);
+		BitSet candidates = (BitSet) unindexed.clone();
+
+		walk(starting, lowerExpr, 0, 1, candidates);
+		walk(ending, lowerExpr, lowerExpr.length() - 1, -1, candidates);
+		for (int i = 0; i < lowerExpr.length(); i++)
+			walk(contained, lowerExpr, i, 1, candidates);
+
+		return new Candidates(candidates);
+	}
+
+	/**
+	 * Walks the given trie along the expression, adding the patterns of all keywords found.
+	 */
+	private static void walk(Node node, String expr, int start, int step, BitSet candidates) {
+		for (int i = start; i >= 0 && i < expr.length(); i += step) {
+			node = node.children.get(expr.charAt(i));
+			if (node == null)
+				return;
+			if (node.terminal)
+				candidates.or(node.patterns);
+		}
+	}
+
+	/**
+	 * The patterns an expression may match, see {@link #candidates(String)}.
+	 */
+	public final class Candidates {
+
+		private final BitSet patterns;
+
+		private Candidates(BitSet patterns) {
+			this.patterns = patterns;
+		}
+
+		/**
+		 * @param pattern a pattern.
+		 * @return {@code false} if the expression cannot match the given pattern,
+		 * {@code true} if it may match it or the pattern is not indexed.
+		 */
+		public boolean mayMatch(String pattern) {
+			Integer id = ids.get(pattern);
+			return id == null || patterns.get(id);
+		}
+
+	}
+
+}
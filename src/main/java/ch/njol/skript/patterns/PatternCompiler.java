@@ -21,6 +21,8 @@ package ch.njol.skript.patterns;
 import ch.njol.skript.lang.SkriptParser;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -33,6 +35,11 @@ import java.util.regex.PatternSyntaxException;
  */
 public class PatternCompiler {
 
+	/**
+	 * The compiled patterns, shared by everything that matches patterns.
+	 */
+	private static final Map<String, SkriptPattern> patterns = new ConcurrentHashMap<>();
+
 	/**
 	 * @return an empty {@link PatternElement}
 	 */
@@ -57,6 +64,16 @@ public class PatternCompiler {
 		}
 	}
 
+	/**
+	 * Gets the compiled form of a pattern, compiling it only if it wasn't compiled before.
+	 * The returned pattern is shared, so it must not be modified.
+	 *
+	 * @throws MalformedPatternException when the given pattern is malformed.
+	 */
+	public static SkriptPattern getPattern(String pattern) throws MalformedPatternException {
+		return patterns.computeIfAbsent(pattern, PatternCompiler::compile);
+	}
+
 	/**
 	 * Compiles the given pattern String into a pattern.<br>
 	 * The {@code expressionOffset} is to keep track of which index the next
@@ -68,6 +68,26 @@ public class SkriptPattern {
 		return match(expr, SkriptParser.ALL_FLAGS, ParseContext.DEFAULT);
 	}
 
+	/**
+	 * @return the keywords an expression must contain to match this pattern.
+	 */
+	Keyword[] getKeywords() {
+		return keywords;
+	}
+
+	/**
+	 * @return the literal text every expression matching this pattern starts with, in lower case,
+	 * or null if the pattern has no such text.
+	 */
+	@Nullable
+	public String getStartingKeyword() {
+		for (Keyword keyword : keywords) {
+			if (keyword instanceof Keyword.SimpleKeyword && ((Keyword.SimpleKeyword) keyword).isStarting())
+				return ((Keyword.SimpleKeyword) keyword).getKeyword().toLowerCase(Locale.ENGLISH);
+		}
+		return null;
+	}
+
 	@Override
 	public String toString() {
 		return first.toFullString();
@@ -25,6 +25,7 @@ import ch.njol.skript.lang.Literal;
 import ch.njol.skript.lang.SkriptParser;
 import ch.njol.skript.lang.SkriptParser.ExprInfo;
 import ch.njol.skript.lang.UnparsedLiteral;
+import ch.njol.skript.lang.parser.ParseMemo;
 import ch.njol.skript.lang.parser.ParserInstance;
 import ch.njol.skript.log.ErrorQuality;
 import ch.njol.skript.log.ParseLogHandler;
@@ -48,6 +49,9 @@ public class TypePatternElement extends PatternElement {
 
 	private final int expressionIndex;
 
+	@Nullable
+	private String string;
+
 	public TypePatternElement(ClassInfo<?>[] classes, boolean[] isPlural, boolean isNullable, int flagMask, int time, int expressionIndex) {
 		this.classes = classes;
 		this.isPlural = isPlural;
@@ -159,7 +163,19 @@ public class TypePatternElement extends PatternElement {
 				if (newMatchResult != null) {
 					ParseLogHandler expressionLogHandler = SkriptLogger.startParseLogHandler();
 					try {
-						Expression<?> expression = new SkriptParser(expr.substring(matchResult.exprOffset, newExprOffset), matchResult.flags & flagMask, matchResult.parseContext).parseExpression(exprInfo);
+						String subExpr = expr.substring(matchResult.exprOffset, newExprOffset);
+						int flags = matchResult.flags & flagMask;
+						// the same text is often tried again for other patterns, don't parse it again if it failed before
+						ParseMemo memo = ParserInstance.get().getParseMemo();
+						String memoKey = memo == null ? null : ParseMemo.key(subExpr.trim(), toString(), flags, matchResult.parseContext);
+						Expression<?> expression;
+						if (memo != null && memo.replayFailure(memoKey)) {
+							expression = null;
+						} else {
+							expression = new SkriptParser(subExpr, flags, matchResult.parseContext).parseExpression(exprInfo);
+							if (expression == null && memo != null)
+								memo.failed(memoKey, expressionLogHandler.getError());
+						}
 						if (expression != null) {
 							if (time != 0) {
 								if (expression instanceof Literal)
@@ -244,6 +260,13 @@ public class TypePatternElement extends PatternElement {
 
 	@Override
 	public String toString() {
+		String string = this.string;
+		if (string == null)
+			this.string = string = buildString();
+		return string;
+	}
+
+	private String buildString() {
 		StringBuilder stringBuilder = new StringBuilder().append("%");
 		if (isNullable)
 			stringBuilder.append("-");
@@ -34,7 +34,9 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import ch.njol.skript.command.Commands;
@@ -53,6 +55,7 @@ import ch.njol.skript.classes.Parser;
 import ch.njol.skript.classes.Serializer;
 import ch.njol.skript.lang.DefaultExpression;
 import ch.njol.skript.lang.ParseContext;
+import ch.njol.skript.lang.parser.LiteralParseCache;
 import ch.njol.skript.localization.Language;
 import ch.njol.skript.log.ParseLogHandler;
 import ch.njol.skript.log.SkriptLogger;
@@ -82,7 +85,7 @@ public abstract class Classes {
 	private static ClassInfo<?>[] classInfos = null;
 	private final static List<ClassInfo<?>> tempClassInfos = new ArrayList<>();
 	private final static HashMap<Class<?>, ClassInfo<?>> exactClassInfos = new HashMap<>();
-	private final static HashMap<Class<?>, ClassInfo<?>> superClassInfos = new HashMap<>();
+	private final static Map<Class<?>, ClassInfo<?>> superClassInfos = new ConcurrentHashMap<>(); // filled lazily, possibly by multiple loader threads
 	private final static HashMap<String, ClassInfo<?>> classInfosByCodeName = new HashMap<>();
 	
 	/**
@@ -505,6 +508,9 @@ public abstract class Classes {
 	@SuppressWarnings({"rawtypes", "unchecked"})
 	@Nullable
 	public static <T> T parse(final String s, final Class<T> c, final ParseContext context) {
+		boolean cache = LiteralParseCache.isActive();
+		if (cache && LiteralParseCache.CLASSES.get(s, c, context) != null)
+			return null; // only failures without an error are cached
 		final ParseLogHandler log = SkriptLogger.startParseLogHandler();
 		try {
 			T t = parseSimple(s, c, context);
@@ -527,6 +533,8 @@ public abstract class Classes {
 					}
 				}
 			}
+			if (cache && !log.hasError())
+				LiteralParseCache.CLASSES.put(s, c, context, null);
 			log.printError();
 		} finally {
 			log.stop();
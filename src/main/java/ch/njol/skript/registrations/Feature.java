@@ -29,6 +29,8 @@ import org.skriptlang.skript.lang.experiment.LifeCycle;
  * Experimental feature toggles as provided by Skript itself.
  */
 public enum Feature implements Experiment {
+	COMPILED_TRIGGERS("compiled triggers", LifeCycle.EXPERIMENTAL, "compiled trigger[s]"),
+	ASYNC_SECTIONS("async sections", LifeCycle.EXPERIMENTAL, "async section[s]"),
 	;
 
 	private final String codeName;
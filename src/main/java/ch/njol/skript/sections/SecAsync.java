@@ -0,0 +1,310 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.sections;
+
+import ch.njol.skript.Skript;
+import ch.njol.skript.config.SectionNode;
+import ch.njol.skript.conditions.CondAlphanumeric;
+import ch.njol.skript.conditions.CondChance;
+import ch.njol.skript.conditions.CondCompare;
+import ch.njol.skript.conditions.CondContains;
+import ch.njol.skript.conditions.CondIsSet;
+import ch.njol.skript.conditions.CondMatches;
+import ch.njol.skript.conditions.CondStartsEndsWith;
+import ch.njol.skript.doc.Description;
+import ch.njol.skript.doc.Examples;
+import ch.njol.skript.doc.Name;
+import ch.njol.skript.doc.Since;
+import ch.njol.skript.effects.Delay;
+import ch.njol.skript.effects.EffChange;
+import ch.njol.skript.effects.EffContinue;
+import ch.njol.skript.effects.EffDoIf;
+import ch.njol.skript.effects.EffReplace;
+import ch.njol.skript.expressions.ExprAlphabetList;
+import ch.njol.skript.expressions.ExprAmount;
+import ch.njol.skript.expressions.ExprCharacterFromCodepoint;
+import ch.njol.skript.expressions.ExprCharacters;
+import ch.njol.skript.expressions.ExprCodepoint;
+import ch.njol.skript.expressions.ExprDefaultValue;
+import ch.njol.skript.expressions.ExprElement;
+import ch.njol.skript.expressions.ExprHash;
+import ch.njol.skript.expressions.ExprIndexOf;
+import ch.njol.skript.expressions.ExprIndices;
+import ch.njol.skript.expressions.ExprJoinSplit;
+import ch.njol.skript.expressions.ExprLength;
+import ch.njol.skript.expressions.ExprLoopIteration;
+import ch.njol.skript.expressions.ExprLoopValue;
+import ch.njol.skript.expressions.ExprNumberOfCharacters;
+import ch.njol.skript.expressions.ExprNumbers;
+import ch.njol.skript.expressions.ExprPercent;
+import ch.njol.skript.expressions.ExprRandomNumber;
+import ch.njol.skript.expressions.ExprRepeat;
+import ch.njol.skript.expressions.ExprReversedList;
+import ch.njol.skript.expressions.ExprRound;
+import ch.njol.skript.expressions.ExprShuffledList;
+import ch.njol.skript.expressions.ExprSortedList;
+import ch.njol.skript.expressions.ExprSpecialNumber;
+import ch.njol.skript.expressions.ExprStringCase;
+import ch.njol.skript.expressions.ExprSubstring;
+import ch.njol.skript.expressions.ExprTernary;
+import ch.njol.skript.expressions.ExprTimes;
+import ch.njol.skript.expressions.ExprWhether;
+import ch.njol.skript.expressions.LitNewLine;
+import ch.njol.skript.expressions.LitPi;
+import ch.njol.skript.expressions.arithmetic.ExprArithmetic;
+import ch.njol.skript.lang.ConcurrentSection;
+import ch.njol.skript.lang.Debuggable;
+import ch.njol.skript.lang.Expression;
+import ch.njol.skript.lang.LoopSection;
+import ch.njol.skript.lang.Section;
+import ch.njol.skript.lang.SkriptParser.ParseResult;
+import ch.njol.skript.lang.SyntaxElement;
+import ch.njol.skript.lang.Trigger;
+import ch.njol.skript.lang.TriggerItem;
+import ch.njol.skript.lang.TriggerSection;
+import ch.njol.skript.lang.Variable;
+import ch.njol.skript.lang.function.Function;
+import ch.njol.skript.lang.function.Functions;
+import ch.njol.skript.lang.function.JavaFunction;
+import ch.njol.skript.lang.util.ContextlessEvent;
+import ch.njol.skript.registrations.Feature;
+import ch.njol.skript.timings.SkriptTimings;
+import ch.njol.skript.util.AsyncSectionExecutor;
+import ch.njol.skript.variables.Variables;
+import ch.njol.util.Kleenean;
+import org.bukkit.event.Event;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Name("Async")
+@Description({
+	"Runs its code on one of Skript's worker threads, so long computations don't keep the server busy. " +
+		"The code after the section continues on the main thread once the section is done, as if there was a delay.",
+	"As most of Skript and Minecraft isn't thread-safe, only pure computations can be used in this section: " +
+		"local variables, maths, texts, lists, comparisons, loops and mathematical functions. " +
+		"Global variables, event values and anything that affects the server can't be used. " +
+		"Local variables keep their values when the section starts and ends.",
+	"The amount of threads is set by 'async section threads' in the config. " +
+		"If all of them are busy and too many sections are waiting for a thread, the section runs on the main thread instead.",
+	"This section is experimental and requires 'using async sections' in the script."
+})
+@Examples({
+	"using async sections",
+	"",
+	"command /sumofsquares <integer>:",
+	"\ttrigger:",
+	"\t\tset {_max} to arg-1",
+	"\t\tasync:",
+	"\t\t\tset {_sum} to 0",
+	"\t\t\tloop {_max} times:",
+	"\t\t\t\tadd loop-value ^ 2 to {_sum}",
+	"\t\tsend \"The sum of the first %{_max}% squares is %{_sum}%\" to sender"
+})
+@Since("INSERT VERSION")
+public class SecAsync extends Section implements ConcurrentSection {
+
+	static {
+		Skript.registerSection(SecAsync.class, "async");
+	}
+
+	/**
+	 * The syntax elements that may be used in async sections, see {@link #registerThreadSafe(Class[])}.
+	 */
+	private static final Set<Class<? extends SyntaxElement>> THREAD_SAFE = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The names of the Java functions that may be used in async sections, see {@link #registerThreadSafeFunctions(String...)}.
+	 */
+	private static final Set<String> THREAD_SAFE_FUNCTIONS = ConcurrentHashMap.newKeySet();
+
+	static {
+		registerThreadSafe(SecConditional.class, SecLoop.class, SecWhile.class,
+			EffChange.class, EffContinue.class, EffDoIf.class, EffReplace.class,
+			CondAlphanumeric.class, CondChance.class, CondCompare.class, CondContains.class,
+			CondIsSet.class, CondMatches.class, CondStartsEndsWith.class,
+			ExprAlphabetList.class, ExprAmount.class, ExprArithmetic.class, ExprCharacterFromCodepoint.class,
+			ExprCharacters.class, ExprCodepoint.class, ExprDefaultValue.class, ExprElement.class, ExprHash.class,
+			ExprIndexOf.class, ExprIndices.class, ExprJoinSplit.class, ExprLength.class, ExprLoopIteration.class,
+			ExprLoopValue.class, ExprNumberOfCharacters.class, ExprNumbers.class, ExprPercent.class,
+			ExprRandomNumber.class, ExprRepeat.class, ExprReversedList.class, ExprRound.class,
+			ExprShuffledList.class, ExprSortedList.class, ExprSpecialNumber.class, ExprStringCase.class,
+			ExprSubstring.class, ExprTernary.class, ExprTimes.class, ExprWhether.class, LitNewLine.class, LitPi.class);
+		registerThreadSafeFunctions("floor", "round", "ceil", "ceiling", "abs", "mod", "exp", "ln", "log", "sqrt",
+			"sin", "cos", "tan", "asin", "acos", "atan", "atan2", "sum", "product", "max", "min", "clamp",
+			"isNaN", "concat", "vector", "rgb", "calcExperience");
+	}
+
+	/**
+	 * Registers syntax elements that may be used in async sections.
+	 * Only register elements that don't use anything but the values of their expressions and local variables,
+	 * and that don't keep any state of their own while they are executed, as they may be executed on multiple threads at once.
+	 *
+	 * @param elements The classes of the syntax elements.
+	 */
+	@SafeVarargs
+	public static void registerThreadSafe(Class<? extends SyntaxElement>... elements) {
+		Collections.addAll(THREAD_SAFE, elements);
+	}
+
+	/**
+	 * Registers Java functions that may be used in async sections, see {@link #registerThreadSafe(Class[])}.
+	 *
+	 * @param names The names of the functions.
+	 */
+	public static void registerThreadSafeFunctions(String... names) {
+		Collections.addAll(THREAD_SAFE_FUNCTIONS, names);
+	}
+
+	@Nullable
+	private TriggerItem actualNext;
+
+	@Override
+	public boolean init(Expression<?>[] exprs,
+						int matchedPattern,
+						Kleenean isDelayed,
+						ParseResult parseResult,
+						SectionNode sectionNode,
+						List<TriggerItem> triggerItems) {
+		if (!getParser().hasExperiment(Feature.ASYNC_SECTIONS)) {
+			Skript.error("Async sections are experimental. Add 'using async sections' to your script to use them");
+			return false;
+		}
+		// the trigger continues after a delay, both in and after this section
+		getParser().setHasDelayBefore(Kleenean.TRUE);
+		loadCode(sectionNode);
+		return true;
+	}
+
+	@Override
+	@Nullable
+	protected TriggerItem walk(Event event) {
+		debug(event, true);
+
+		Delay.addDelayedEvent(event); // Mark this event as delayed
+		Object localVars = Variables.removeLocals(event); // The local variables are handed to the worker thread as they are
+
+		if (!Skript.getInstance().isEnabled()) // See https://github.com/SkriptLang/Skript/issues/3702
+			return null;
+
+		AsyncSectionExecutor.execute(() -> execute(event, localVars));
+		return null;
+	}
+
+	/**
+	 * Runs the code of this section, and then schedules the rest of the trigger to continue on the main thread.
+	 * The code runs with an event of its own, as the trigger removes the local variables of its event
+	 * on the main thread once this section has been walked, which may happen while the code is already running.
+	 * No event values can be used in this section, so the code can't tell the difference.
+	 */
+	private void execute(Event event, @Nullable Object localVars) {
+		Event context = ContextlessEvent.get();
+		if (localVars != null)
+			Variables.setLocalVariables(context, localVars);
+
+		if (first != null)
+			TriggerItem.walk(first, context);
+
+		Object results = Variables.removeLocals(context); // Hand the local variables back to the main thread
+		if (actualNext == null)
+			return;
+
+		Delay.scheduleContinuation(this, () -> {
+			if (results != null)
+				Variables.setLocalVariables(event, results);
+
+			Object timing = null;
+			if (SkriptTimings.enabled()) { // getTrigger call is not free, do it only if we must
+				Trigger trigger = getTrigger();
+				if (trigger != null)
+					timing = SkriptTimings.start(trigger.getDebugLabel());
+			}
+
+			TriggerItem.walk(actualNext, event);
+			Variables.removeLocals(event); // Clean up local vars, we may be exiting now
+
+			SkriptTimings.stop(timing);
+		}, 1);
+	}
+
+	@Override
+	public SecAsync setNext(@Nullable TriggerItem next) {
+		// the last item of this section must not walk on to the next item, as that has to happen on the main thread
+		actualNext = next;
+		return this;
+	}
+
+	@Override
+	public String toString(@Nullable Event event, boolean debug) {
+		return "async";
+	}
+
+	/**
+	 * Only local variables and the elements registered with {@link #registerThreadSafe(Class[])} may be used in async sections,
+	 * and loops outside of the section may not be referred to.
+	 */
+	@Override
+	public boolean validate(SyntaxElement element) {
+		if (element instanceof Variable) {
+			if (((Variable<?>) element).isLocal())
+				return true;
+			Skript.error("Global variables can't be used in async sections, as they aren't thread-safe. Use a local variable instead");
+			return false;
+		}
+
+		if (!THREAD_SAFE.contains(element.getClass())) {
+			String description = element instanceof Debuggable ? ((Debuggable) element).toString(null, false) : element.getClass().getSimpleName();
+			Skript.error("'" + description + "' can't be used in async sections, as it isn't thread-safe");
+			return false;
+		}
+
+		LoopSection loop = null;
+		if (element instanceof ExprLoopValue) {
+			loop = ((ExprLoopValue) element).getLoop();
+		} else if (element instanceof ExprLoopIteration) {
+			loop = ((ExprLoopIteration) element).getLoop();
+		} else if (element instanceof EffContinue) {
+			loop = ((EffContinue) element).getLoop();
+		}
+		if (loop != null) {
+			List<TriggerSection> sections = getParser().getCurrentSections();
+			if (sections.indexOf(loop) < sections.indexOf(this)) {
+				Skript.error("Loops outside of an async section can't be used in it");
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Only the Java functions registered with {@link #registerThreadSafeFunctions(String...)} may be called in async sections.
+	 */
+	@Override
+	public boolean validateFunction(String name, @Nullable String script) {
+		Function<?> function = Functions.getFunction(name, script);
+		if (function instanceof JavaFunction && THREAD_SAFE_FUNCTIONS.contains(function.getName()))
+			return true;
+		Skript.error("The function '" + name + "' can't be used in async sections, as it isn't thread-safe");
+		return false;
+	}
+
+}
@@ -41,7 +41,6 @@ import org.eclipse.jdt.annotation.Nullable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 
 @Name("Loop")
 @Description({
@@ -61,7 +60,12 @@ import java.util.WeakHashMap;
 	"<b>List Variables</b>",
 	"When looping list variables, you can also use <code>loop-index</code> in addition to <code>loop-value</code> inside " +
 		"the loop. <code>loop-value</code> is the value of the currently looped variable, and <code>loop-index</code> " +
-		"is the last part of the variable's name (the part where the list variable has its asterisk *)."
+		"is the last part of the variable's name (the part where the list variable has its asterisk *).",
+	"",
+	"<b>Budgeted Loops</b>",
+	"A budgeted loop continues in the next tick once it ran longer than the 'loop budget' set in the config, " +
+		"instead of freezing the server while it loops over a lot of values. " +
+		"The loop continues where it left off, as if there was a delay between two of its iterations."
 })
 @Examples({
 	"loop all players:",
@@ -77,24 +81,29 @@ import java.util.WeakHashMap;
 	"",
 	"loop {Coins::*}:",
 	"\tset {Coins::%loop-index%} to loop-value + 5 # Same as \"add 5 to {Coins::%loop-index%}\" where loop-index is the uuid of " +
-		"the player and loop-value is the actually coins value such as 200"
+		"the player and loop-value is the actually coins value such as 200",
+	"",
+	"budgeted loop {scores::*}:",
+	"\tset {scores::%loop-index%} to loop-value * 0.9"
 })
-@Since("1.0")
+@Since("1.0, INSERT VERSION (budgeted)")
 public class SecLoop extends LoopSection {
 
 	static {
-		Skript.registerSection(SecLoop.class, "loop %objects%");
+		Skript.registerSection(SecLoop.class, "[:budgeted] loop %objects%");
 	}
 
 	@SuppressWarnings("NotNullFieldNotInitialized")
 	private Expression<?> expr;
 
-	private final transient Map<Event, Object> current = new WeakHashMap<>();
-	private final transient Map<Event, Iterator<?>> currentIter = new WeakHashMap<>();
+	private final transient Map<Event, Object> current = newStateMap();
+	private final transient Map<Event, Iterator<?>> currentIter = newStateMap();
 
 	@Nullable
 	private TriggerItem actualNext;
 
+	private boolean budgeted;
+
 	@Override
 	@SuppressWarnings("unchecked")
 	public boolean init(Expression<?>[] exprs,
@@ -103,9 +112,10 @@ public class SecLoop extends LoopSection {
 						ParseResult parseResult,
 						SectionNode sectionNode,
 						List<TriggerItem> triggerItems) {
+		budgeted = parseResult.hasTag("budgeted");
 		expr = LiteralUtils.defendExpression(exprs[0]);
 		if (!LiteralUtils.canInitSafely(expr)) {
-			Skript.error("Can't understand this loop: '" + parseResult.expr.substring(5) + "'");
+			Skript.error("Can't understand this loop: '" + parseResult.expr + "'");
 			return false;
 		}
 
@@ -121,6 +131,8 @@ public class SecLoop extends LoopSection {
 			return false;
 		}
 
+		if (budgeted && !expectBudgetDelay())
+			return false;
 		loadOptionalCode(sectionNode);
 		super.setNext(this);
 
@@ -145,6 +157,8 @@ public class SecLoop extends LoopSection {
 			debug(event, false);
 			return actualNext;
 		} else {
+			if (budgeted && yieldIfOverBudget(event))
+				return null;
 			current.put(event, iter.next());
 			currentLoopCounter.put(event, (currentLoopCounter.getOrDefault(event, 0L)) + 1);
 			return walk(event, true);
@@ -153,7 +167,7 @@ public class SecLoop extends LoopSection {
 
 	@Override
 	public String toString(@Nullable Event event, boolean debug) {
-		return "loop " + expr.toString(event, debug);
+		return (budgeted ? "budgeted " : "") + "loop " + expr.toString(event, debug);
 	}
 
 	@Nullable
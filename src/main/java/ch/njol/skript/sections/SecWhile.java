@@ -54,12 +54,16 @@ import java.util.WeakHashMap;
 	"while player is online:",
 	"\tgive player 1 dirt",
 	"\twait 1 second # without using a delay effect the server will crash",
+	"",
+	"# A budgeted loop continues in the next tick once it ran longer than the 'loop budget' set in the config.",
+	"budgeted while {_x} < 1000000:",
+	"\tadd 1 to {_x}"
 })
-@Since("2.0, 2.6 (do while)")
+@Since("2.0, 2.6 (do while), INSERT VERSION (budgeted)")
 public class SecWhile extends LoopSection {
 
 	static {
-		Skript.registerSection(SecWhile.class, "[(:do)] while <.+>");
+		Skript.registerSection(SecWhile.class, "[:budgeted] [(:do)] while <.+>");
 	}
 
 	@SuppressWarnings("NotNullFieldNotInitialized")
@@ -70,6 +74,7 @@ public class SecWhile extends LoopSection {
 
 	private boolean doWhile;
 	private boolean ranDoWhile = false;
+	private boolean budgeted;
 
 	@Override
 	public boolean init(Expression<?>[] exprs,
@@ -85,6 +90,13 @@ public class SecWhile extends LoopSection {
 			return false;
 
 		doWhile = parseResult.hasTag("do");
+		budgeted = parseResult.hasTag("budgeted");
+		if (budgeted && !expectBudgetDelay())
+			return false;
+		if (doWhile && getParser().getCurrentConcurrentSection() != null) {
+			Skript.error("'do while' loops can't be used in async sections");
+			return false;
+		}
 		loadOptionalCode(sectionNode);
 		super.setNext(this);
 		return true;
@@ -93,6 +105,8 @@ public class SecWhile extends LoopSection {
 	@Nullable
 	@Override
 	protected TriggerItem walk(Event event) {
+		if (budgeted && yieldIfOverBudget(event))
+			return null;
 		if ((doWhile && !ranDoWhile) || condition.check(event)) {
 			ranDoWhile = true;
 			currentLoopCounter.put(event, (currentLoopCounter.getOrDefault(event, 0L)) + 1);
@@ -117,7 +131,7 @@ public class SecWhile extends LoopSection {
 
 	@Override
 	public String toString(@Nullable Event event, boolean debug) {
-		return (doWhile ? "do " : "") + "while " + condition.toString(event, debug);
+		return (budgeted ? "budgeted " : "") + (doWhile ? "do " : "") + "while " + condition.toString(event, debug);
 	}
 
 	@Override
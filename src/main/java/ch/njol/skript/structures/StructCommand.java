@@ -208,7 +208,8 @@ public class StructCommand extends Structure {
 		String arguments = matcher.group(3) == null ? "" : matcher.group(3);
 		StringBuilder pattern = new StringBuilder();
 
-		List<Argument<?>> currentArguments = Commands.currentArguments = new ArrayList<>(); //Mirre
+		List<Argument<?>> currentArguments = new ArrayList<>(); //Mirre
+		Commands.setCurrentArguments(currentArguments);
 		matcher = ARGUMENT_PATTERN.matcher(arguments);
 		int lastEnd = 0;
 		int optionals = 0;
@@ -299,13 +300,13 @@ public class StructCommand extends Structure {
 		if (Skript.debug() || node.debug())
 			Skript.debug("command " + desc + ":");
 
-		Commands.currentArguments = currentArguments;
+		Commands.setCurrentArguments(currentArguments);
 		try {
 			scriptCommand = new ScriptCommand(getParser().getCurrentScript(), command, pattern.toString(), currentArguments, description, prefix,
 				usage, aliases, permission, permissionMessage, cooldown, cooldownMessage, cooldownBypass, cooldownStorage,
 				executableBy, entryContainer.get("trigger", SectionNode.class, false));
 		} finally {
-			Commands.currentArguments = null;
+			Commands.setCurrentArguments(null);
 		}
 
 		if (Skript.logVeryHigh() && !Skript.debug())
@@ -325,6 +326,14 @@ public class StructCommand extends Structure {
 		return true;
 	}
 
+	/**
+	 * @return The command of this structure, or null if it has not been loaded successfully.
+	 */
+	@Nullable
+	public ScriptCommand getScriptCommand() {
+		return scriptCommand;
+	}
+
 	@Override
 	public void unload() {
 		assert scriptCommand != null; // This method should never be called if one of the loading methods fail
@@ -338,8 +347,7 @@ public class StructCommand extends Structure {
 	}
 
 	private void scheduleCommandSync() {
-		if (SYNC_COMMANDS.get()) {
-			SYNC_COMMANDS.set(false);
+		if (SYNC_COMMANDS.compareAndSet(true, false)) {
 			if (DELAY_COMMAND_SYNCING) {
 				// if the plugin is disabled, the server is likely closing and delaying will cause an error.
 				if (Bukkit.getPluginManager().isPluginEnabled(Skript.getInstance()))
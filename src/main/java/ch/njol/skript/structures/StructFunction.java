@@ -20,22 +20,76 @@ package ch.njol.skript.structures;
 
 import ch.njol.skript.ScriptLoader;
 import ch.njol.skript.Skript;
+import ch.njol.skript.conditions.CondAlphanumeric;
+import ch.njol.skript.conditions.CondCompare;
+import ch.njol.skript.conditions.CondContains;
+import ch.njol.skript.conditions.CondIsSet;
+import ch.njol.skript.conditions.CondMatches;
+import ch.njol.skript.conditions.CondStartsEndsWith;
 import ch.njol.skript.config.SectionNode;
 import ch.njol.skript.doc.Description;
 import ch.njol.skript.doc.Examples;
 import ch.njol.skript.doc.Name;
 import ch.njol.skript.doc.Since;
+import ch.njol.skript.effects.EffChange;
+import ch.njol.skript.effects.EffContinue;
+import ch.njol.skript.effects.EffDoIf;
+import ch.njol.skript.effects.EffExit;
+import ch.njol.skript.effects.EffReturn;
+import ch.njol.skript.expressions.ExprAlphabetList;
+import ch.njol.skript.expressions.ExprAmount;
+import ch.njol.skript.expressions.ExprCharacterFromCodepoint;
+import ch.njol.skript.expressions.ExprCharacters;
+import ch.njol.skript.expressions.ExprCodepoint;
+import ch.njol.skript.expressions.ExprDefaultValue;
+import ch.njol.skript.expressions.ExprElement;
+import ch.njol.skript.expressions.ExprHash;
+import ch.njol.skript.expressions.ExprIndexOf;
+import ch.njol.skript.expressions.ExprIndices;
+import ch.njol.skript.expressions.ExprJoinSplit;
+import ch.njol.skript.expressions.ExprLength;
+import ch.njol.skript.expressions.ExprLoopIteration;
+import ch.njol.skript.expressions.ExprLoopValue;
+import ch.njol.skript.expressions.ExprNumberOfCharacters;
+import ch.njol.skript.expressions.ExprNumbers;
+import ch.njol.skript.expressions.ExprPercent;
+import ch.njol.skript.expressions.ExprRepeat;
+import ch.njol.skript.expressions.ExprReversedList;
+import ch.njol.skript.expressions.ExprRound;
+import ch.njol.skript.expressions.ExprSortedList;
+import ch.njol.skript.expressions.ExprSpecialNumber;
+import ch.njol.skript.expressions.ExprStringCase;
+import ch.njol.skript.expressions.ExprSubstring;
+import ch.njol.skript.expressions.ExprTernary;
+import ch.njol.skript.expressions.ExprTimes;
+import ch.njol.skript.expressions.ExprWhether;
+import ch.njol.skript.expressions.LitNewLine;
+import ch.njol.skript.expressions.LitPi;
+import ch.njol.skript.expressions.arithmetic.ExprArithmetic;
+import ch.njol.skript.lang.Debuggable;
+import ch.njol.skript.lang.Expression;
 import ch.njol.skript.lang.Literal;
 import ch.njol.skript.lang.SkriptParser.ParseResult;
+import ch.njol.skript.lang.SyntaxElement;
+import ch.njol.skript.lang.SyntaxValidator;
+import ch.njol.skript.lang.Variable;
+import ch.njol.skript.lang.function.Function;
 import ch.njol.skript.lang.function.FunctionEvent;
 import ch.njol.skript.lang.function.Functions;
+import ch.njol.skript.lang.function.JavaFunction;
 import ch.njol.skript.lang.function.Signature;
 import ch.njol.skript.lang.parser.ParserInstance;
+import ch.njol.skript.sections.SecConditional;
+import ch.njol.skript.sections.SecLoop;
+import ch.njol.skript.sections.SecWhile;
 import org.bukkit.event.Event;
 import org.jetbrains.annotations.Nullable;
 import org.skriptlang.skript.lang.entry.EntryContainer;
 import org.skriptlang.skript.lang.structure.Structure;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -44,7 +98,10 @@ import java.util.regex.Pattern;
 @Description({
 	"Functions are structures that can be executed with arguments/parameters to run code.",
 	"They can also return a value to the trigger that is executing the function.",
-	"Note that local functions come before global functions execution"
+	"Note that local functions come before global functions execution",
+	"Cached functions remember their result for the arguments they were called with, and only run again for new arguments.",
+	"Their body may only change local variables and call other cached functions, as it isn't executed when a result is remembered.",
+	"Syntax with a different result every time, like random numbers, can't be used in them either."
 })
 @Examples({
 	"function sayMessage(message: text):",
@@ -54,34 +111,89 @@ import java.util.regex.Pattern;
 	"\treturn {_amount} of apple",
 	"",
 	"function getPoints(p: player) returns number:",
-	"\treturn {points::%{_p}%}"
+	"\treturn {points::%{_p}%}",
+	"",
+	"cached function levelForXp(xp: number) :: number:",
+	"\tset {_level} to 0",
+	"\twhile {_xp} >= 100 * ({_level} + 1):",
+	"\t\tremove 100 * ({_level} + 1) from {_xp}",
+	"\t\tadd 1 to {_level}",
+	"\treturn {_level}"
 })
-@Since("2.2, 2.7 (local functions)")
+@Since("2.2, 2.7 (local functions), INSERT VERSION (cached functions)")
 public class StructFunction extends Structure {
 
 	public static final Priority PRIORITY = new Priority(400);
 
 	private static final Pattern SIGNATURE_PATTERN =
-			Pattern.compile("^(?:local )?function (" + Functions.functionNamePattern + ")\\((.*?)\\)(?:\\s*(?:::| returns )\\s*(.+))?$");
+			Pattern.compile("^(?:local )?(?:cached )?function (" + Functions.functionNamePattern + ")\\((.*?)\\)(?:\\s*(?:::| returns )\\s*(.+))?$");
 	private static final AtomicBoolean VALIDATE_FUNCTIONS = new AtomicBoolean();
 
 	static {
 		Skript.registerStructure(StructFunction.class,
-			"[:local] function <.+>"
+			"[:local] [:cached] function <.+>"
 		);
 	}
 
+	/**
+	 * The syntax elements that may be used in cached functions, see {@link #registerPure(Class[])}.
+	 */
+	private static final Set<Class<? extends SyntaxElement>> PURE = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The names of the Java functions that may be used in cached functions, see {@link #registerPureFunctions(String...)}.
+	 */
+	private static final Set<String> PURE_FUNCTIONS = ConcurrentHashMap.newKeySet();
+
+	static {
+		registerPure(SecConditional.class, SecLoop.class, SecWhile.class,
+			EffChange.class, EffContinue.class, EffDoIf.class, EffExit.class, EffReturn.class,
+			CondAlphanumeric.class, CondCompare.class, CondContains.class, CondIsSet.class, CondMatches.class, CondStartsEndsWith.class,
+			ExprAlphabetList.class, ExprAmount.class, ExprArithmetic.class, ExprCharacterFromCodepoint.class,
+			ExprCharacters.class, ExprCodepoint.class, ExprDefaultValue.class, ExprElement.class, ExprHash.class,
+			ExprIndexOf.class, ExprIndices.class, ExprJoinSplit.class, ExprLength.class, ExprLoopIteration.class,
+			ExprLoopValue.class, ExprNumberOfCharacters.class, ExprNumbers.class, ExprPercent.class,
+			ExprRepeat.class, ExprReversedList.class, ExprRound.class, ExprSortedList.class, ExprSpecialNumber.class,
+			ExprStringCase.class, ExprSubstring.class, ExprTernary.class, ExprTimes.class, ExprWhether.class, LitNewLine.class, LitPi.class);
+		registerPureFunctions("floor", "round", "ceil", "ceiling", "abs", "mod", "exp", "ln", "log", "sqrt",
+			"sin", "cos", "tan", "asin", "acos", "atan", "atan2", "sum", "product", "max", "min", "clamp",
+			"isNaN", "concat", "vector", "rgb", "calcExperience");
+	}
+
+	/**
+	 * Registers syntax elements that may be used in cached functions, as the body of a cached function isn't executed
+	 * when its result is cached. Only register elements that have no effects besides changing local variables,
+	 * and whose result only depends on the values of their expressions, so it's the same every time for the same values.
+	 *
+	 * @param elements The classes of the syntax elements.
+	 */
+	@SafeVarargs
+	public static void registerPure(Class<? extends SyntaxElement>... elements) {
+		Collections.addAll(PURE, elements);
+	}
+
+	/**
+	 * Registers Java functions that may be used in cached functions, see {@link #registerPure(Class[])}.
+	 *
+	 * @param names The names of the functions.
+	 */
+	public static void registerPureFunctions(String... names) {
+		Collections.addAll(PURE_FUNCTIONS, names);
+	}
+
 	@SuppressWarnings("NotNullFieldNotInitialized")
 	private SectionNode source;
 	@Nullable
 	private Signature<?> signature;
 	private boolean local;
+	private boolean cached;
 
 	@Override
 	public boolean init(Literal<?>[] literals, int matchedPattern, ParseResult parseResult, @Nullable EntryContainer entryContainer) {
 		assert entryContainer != null; // cannot be null for non-simple structures
 		this.source = entryContainer.getSource();
 		local = parseResult.hasTag("local");
+		cached = parseResult.hasTag("cached");
 		return true;
 	}
 
@@ -102,7 +214,7 @@ public class StructFunction extends Structure {
 		getParser().setCurrentEvent((local ? "local " : "") + "function", FunctionEvent.class);
 		signature = Functions.parseSignature(
 			getParser().getCurrentScript().getConfig().getFileName(),
-			matcher.group(1), matcher.group(2), matcher.group(3), local
+			matcher.group(1), matcher.group(2), matcher.group(3), local, cached
 		);
 		getParser().deleteCurrentEvent();
 
@@ -116,8 +228,14 @@ public class StructFunction extends Structure {
 		parser.setCurrentEvent((local ? "local " : "") + "function", FunctionEvent.class);
 
 		assert signature != null;
-		// noinspection ConstantConditions - entry container cannot be null as this structure is not simple
-		Functions.loadFunction(parser.getCurrentScript(), source, signature);
+		if (cached)
+			parser.setSyntaxValidator(new CachedFunctionValidator());
+		try {
+			// noinspection ConstantConditions - entry container cannot be null as this structure is not simple
+			Functions.loadFunction(parser.getCurrentScript(), source, signature);
+		} finally {
+			parser.setSyntaxValidator(null);
+		}
 
 		parser.deleteCurrentEvent();
 
@@ -128,8 +246,7 @@ public class StructFunction extends Structure {
 
 	@Override
 	public boolean postLoad() {
-		if (VALIDATE_FUNCTIONS.get()) {
-			VALIDATE_FUNCTIONS.set(false);
+		if (VALIDATE_FUNCTIONS.compareAndSet(true, false)) {
 			Functions.validateFunctions();
 		}
 		return true;
@@ -142,6 +259,53 @@ public class StructFunction extends Structure {
 		VALIDATE_FUNCTIONS.set(true);
 	}
 
+	/**
+	 * @return The signature of this function, or null if it has not been pre-loaded successfully.
+	 */
+	@Nullable
+	public Signature<?> getSignature() {
+		return signature;
+	}
+
+	/**
+	 * Only local variables can be changed, and only the elements registered with {@link #registerPure(Class[])}
+	 * and the functions registered with {@link #registerPureFunctions(String...)} or declared as cached can be used in cached functions.
+	 */
+	private static final class CachedFunctionValidator implements SyntaxValidator {
+
+		@Override
+		public boolean validate(SyntaxElement element) {
+			if (element instanceof Variable)
+				return true; // reading global variables is allowed, see the description of the structure
+			if (!PURE.contains(element.getClass())) {
+				String description = element instanceof Debuggable ? ((Debuggable) element).toString(null, false) : element.getClass().getSimpleName();
+				Skript.error("'" + description + "' can't be used in a cached function, as it may have side effects or a different result every time");
+				return false;
+			}
+			if (element instanceof EffChange) {
+				Expression<?> changed = ((EffChange) element).getChanged();
+				if (!(changed instanceof Variable) || !((Variable<?>) changed).isLocal()) {
+					Skript.error("A cached function can only change local variables");
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public boolean validateFunction(String name, @Nullable String script) {
+			Signature<?> signature = Functions.getSignature(name, script);
+			if (signature != null && signature.isCached())
+				return true;
+			Function<?> function = Functions.getFunction(name, script);
+			if (function instanceof JavaFunction && PURE_FUNCTIONS.contains(function.getName()))
+				return true;
+			Skript.error("The function '" + name + "' can't be used in a cached function, as it may have side effects or a different result every time");
+			return false;
+		}
+
+	}
+
 	@Override
 	public Priority getPriority() {
 		return PRIORITY;
@@ -60,7 +60,7 @@ public abstract class AsyncEffect extends Effect {
 			execute(e); // Execute this effect
 			
 			if (getNext() != null) {
-				Bukkit.getScheduler().runTask(Skript.getInstance(), () -> { // Walk to next item synchronously
+				Delay.scheduleContinuation(this, () -> { // Walk to next item synchronously
 					Object timing = null;
 					if (SkriptTimings.enabled()) { // getTrigger call is not free, do it only if we must
 						Trigger trigger = getTrigger();
@@ -74,7 +74,7 @@ public abstract class AsyncEffect extends Effect {
 					Variables.removeLocals(e); // Clean up local vars, we may be exiting now
 					
 					SkriptTimings.stop(timing); // Stop timing if it was even started
-				});
+				}, 1);
 			} else {
 				Variables.removeLocals(e);
 			}
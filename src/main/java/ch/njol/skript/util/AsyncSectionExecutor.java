@@ -0,0 +1,160 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.util;
+
+import ch.njol.skript.SkriptConfig;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The bounded pool of worker threads that runs the code of {@link ch.njol.skript.sections.SecAsync async sections}.
+ * It has {@link SkriptConfig#asyncSectionThreads} threads, which are only started when needed,
+ * and at most {@value #QUEUE_CAPACITY} tasks may wait for a free thread.
+ * Tasks that don't fit into the queue anymore are run on the calling thread instead.
+ * <p>
+ * All methods are thread-safe.
+ */
+public final class AsyncSectionExecutor {
+
+	/**
+	 * How many tasks may wait for a free thread.
+	 */
+	private static final int QUEUE_CAPACITY = 1024;
+
+	private static final AtomicInteger WORKER_ID = new AtomicInteger();
+
+	@Nullable
+	private static volatile ThreadPoolExecutor executor;
+
+	private static final LongAdder ranOnCaller = new LongAdder();
+	private static final AtomicInteger maxQueued = new AtomicInteger();
+
+	private AsyncSectionExecutor() {}
+
+	/**
+	 * Runs a task on one of the worker threads, or on the calling thread if all threads are busy and the queue is full.
+	 *
+	 * @param task The task to run.
+	 * @return Whether the task will run on a worker thread, {@code false} if it has already run on the calling thread.
+	 */
+	public static boolean execute(Runnable task) {
+		ThreadPoolExecutor executor = AsyncSectionExecutor.executor;
+		if (executor == null)
+			executor = start();
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			ranOnCaller.increment();
+			task.run();
+			return false;
+		}
+		maxQueued.accumulateAndGet(executor.getQueue().size(), Math::max);
+		return true;
+	}
+
+	private static synchronized ThreadPoolExecutor start() {
+		ThreadPoolExecutor executor = AsyncSectionExecutor.executor;
+		if (executor != null)
+			return executor;
+		int threads = Math.max(1, SkriptConfig.asyncSectionThreads.value());
+		executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+			Thread thread = new Thread(runnable, "Skript async section worker #" + WORKER_ID.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+		AsyncSectionExecutor.executor = executor;
+		return executor;
+	}
+
+	/**
+	 * Changes the amount of worker threads. Tasks that are already running are not affected.
+	 *
+	 * @param threads The new amount of threads, at least one.
+	 */
+	public static synchronized void setThreads(int threads) {
+		ThreadPoolExecutor executor = AsyncSectionExecutor.executor;
+		if (executor == null)
+			return; // the configured amount is used once the pool is started
+		threads = Math.max(1, threads);
+		if (threads > executor.getMaximumPoolSize()) {
+			executor.setMaximumPoolSize(threads);
+			executor.setCorePoolSize(threads);
+		} else {
+			executor.setCorePoolSize(threads);
+			executor.setMaximumPoolSize(threads);
+		}
+	}
+
+	/**
+	 * Stops the worker threads, interrupting the tasks that are still running.
+	 * Tasks that are waiting for a free thread are discarded.
+	 */
+	public static synchronized void stop() {
+		ThreadPoolExecutor executor = AsyncSectionExecutor.executor;
+		if (executor != null)
+			executor.shutdownNow();
+		AsyncSectionExecutor.executor = null;
+	}
+
+	/**
+	 * @return The amount of worker threads that are currently running a task.
+	 */
+	public static int getActive() {
+		ThreadPoolExecutor executor = AsyncSectionExecutor.executor;
+		return executor == null ? 0 : executor.getActiveCount();
+	}
+
+	/**
+	 * @return The amount of tasks that are waiting for a free thread.
+	 */
+	public static int getQueued() {
+		ThreadPoolExecutor executor = AsyncSectionExecutor.executor;
+		return executor == null ? 0 : executor.getQueue().size();
+	}
+
+	/**
+	 * @return The highest amount of tasks that were waiting for a free thread at once.
+	 */
+	public static int getMaxQueued() {
+		return maxQueued.get();
+	}
+
+	/**
+	 * @return The amount of tasks the worker threads have finished since the pool was (re)started.
+	 */
+	public static long getCompleted() {
+		ThreadPoolExecutor executor = AsyncSectionExecutor.executor;
+		return executor == null ? 0 : executor.getCompletedTaskCount();
+	}
+
+	/**
+	 * @return The amount of tasks that were run on the calling thread, as the pool was saturated.
+	 */
+	public static long getRanOnCaller() {
+		return ranOnCaller.sum();
+	}
+
+}
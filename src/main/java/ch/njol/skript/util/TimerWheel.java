@@ -0,0 +1,326 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.util;
+
+import ch.njol.skript.Skript;
+import org.bukkit.Bukkit;
+import org.eclipse.jdt.annotation.Nullable;
+import org.skriptlang.skript.lang.script.Script;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A hierarchical timer wheel that runs tasks on the main server thread after a given amount of ticks.
+ * It is driven by a single repeating task, so scripts with thousands of waiting triggers
+ * don't each need their own task in Bukkit's scheduler.
+ * <p>
+ * Each of the {@value #LEVELS} levels has {@value #SLOTS} slots, where a slot of level {@code n}
+ * covers {@code 64^n} ticks. Tasks are put into the lowest level that covers their delay,
+ * and are moved to the level below once the slot they are in is reached,
+ * so scheduling, cancelling and running a task all take constant time.
+ * Delays beyond the highest level are re-checked every time their slot is reached.
+ * <p>
+ * All methods are thread-safe. Tasks are always run on the main server thread.
+ */
+public final class TimerWheel {
+
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	private static final int LEVELS = 4;
+
+	private static final TimerWheel INSTANCE = new TimerWheel();
+
+	/**
+	 * @return The timer wheel used for Skript's delays.
+	 */
+	public static TimerWheel getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * The first timeout of every slot, linked through {@link Timeout#next}.
+	 */
+	private final Timeout[][] slots = new Timeout[LEVELS][SLOTS];
+
+	/**
+	 * The first timeout of every script, linked through {@link Timeout#nextOfScript}.
+	 */
+	private final Map<Script, Timeout> scripts = new HashMap<>();
+
+	/**
+	 * The last tick that was processed.
+	 */
+	private long currentTick;
+	private int scheduled;
+	private int taskId = -1;
+
+	private int lastTickResumed;
+	private int maxTickResumed;
+	private long totalResumed;
+
+	private TimerWheel() {}
+
+	/**
+	 * Schedules a task to run on the main server thread.
+	 *
+	 * @param task The task to run.
+	 * @param ticks The amount of ticks to wait. Delays shorter than one tick are rounded up to one tick.
+	 * @param script The script the task belongs to, so it can be cancelled with {@link #cancel(Script)}.
+	 * @return A handle to cancel the task with.
+	 */
+	public synchronized Timeout schedule(Runnable task, long ticks, @Nullable Script script) {
+		if (taskId == -1)
+			taskId = Bukkit.getScheduler().runTaskTimer(Skript.getInstance(), this::tick, 1, 1).getTaskId();
+
+		Timeout timeout = new Timeout(task, currentTick + Math.max(ticks, 1), script);
+		insert(timeout);
+		if (script != null) {
+			Timeout first = scripts.put(script, timeout);
+			timeout.nextOfScript = first;
+			if (first != null)
+				first.previousOfScript = timeout;
+		}
+		scheduled++;
+		return timeout;
+	}
+
+	/**
+	 * Cancels a task, unless it has already been run.
+	 *
+	 * @param timeout The task to cancel.
+	 */
+	public synchronized void cancel(Timeout timeout) {
+		timeout.cancelled = true;
+		if (timeout.level != -1) {
+			unlink(timeout);
+			unlinkFromScript(timeout);
+			scheduled--;
+		}
+	}
+
+	/**
+	 * Cancels all tasks of a script that haven't been run yet.
+	 *
+	 * @param script The script to cancel the tasks of.
+	 * @return The amount of cancelled tasks.
+	 */
+	public synchronized int cancel(Script script) {
+		int cancelled = 0;
+		Timeout timeout = scripts.remove(script);
+		while (timeout != null) {
+			Timeout next = timeout.nextOfScript;
+			timeout.cancelled = true;
+			timeout.previousOfScript = timeout.nextOfScript = null;
+			unlink(timeout);
+			scheduled--;
+			cancelled++;
+			timeout = next;
+		}
+		return cancelled;
+	}
+
+	/**
+	 * Stops the timer wheel and drops all scheduled tasks, e.g. when Skript is disabled.
+	 */
+	public synchronized void stop() {
+		if (taskId != -1)
+			Bukkit.getScheduler().cancelTask(taskId);
+		taskId = -1;
+		for (Timeout[] level : slots) {
+			for (int slot = 0; slot < SLOTS; slot++) {
+				for (Timeout timeout = level[slot]; timeout != null; timeout = timeout.next) {
+					timeout.cancelled = true;
+					timeout.level = -1;
+				}
+				level[slot] = null;
+			}
+		}
+		scripts.clear();
+		scheduled = 0;
+	}
+
+	/**
+	 * Advances the wheel by one tick and runs all tasks that are due.
+	 */
+	private void tick() {
+		Timeout expired;
+		synchronized (this) {
+			long tick = ++currentTick;
+
+			// move the timeouts of the slots of higher levels that are reached down, starting with the highest one
+			int level = 0;
+			while (level < LEVELS - 1 && (tick & ((1L << (SLOT_BITS * (level + 1))) - 1)) == 0)
+				level++;
+			for (; level > 0; level--) {
+				int slot = (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+				Timeout timeout = slots[level][slot];
+				slots[level][slot] = null;
+				while (timeout != null) {
+					Timeout next = timeout.next;
+					insert(timeout);
+					timeout = next;
+				}
+			}
+
+			int slot = (int) tick & SLOT_MASK;
+			expired = slots[0][slot];
+			slots[0][slot] = null;
+			for (Timeout timeout = expired; timeout != null; timeout = timeout.next) {
+				timeout.level = -1;
+				unlinkFromScript(timeout);
+				scheduled--;
+			}
+		}
+
+		int resumed = 0;
+		while (expired != null) {
+			Timeout next = expired.next;
+			if (!expired.cancelled) {
+				resumed++;
+				try {
+					expired.task.run();
+				} catch (Exception e) {
+					Skript.exception(e, "An error occurred while resuming a delayed task");
+				}
+			}
+			expired = next;
+		}
+
+		synchronized (this) {
+			lastTickResumed = resumed;
+			maxTickResumed = Math.max(maxTickResumed, resumed);
+			totalResumed += resumed;
+		}
+	}
+
+	/**
+	 * Puts a timeout into the slot of the lowest level that covers its remaining delay.
+	 */
+	private void insert(Timeout timeout) {
+		long delay = timeout.deadline - currentTick;
+		int level = 0;
+		while (level < LEVELS - 1 && delay >= 1L << (SLOT_BITS * (level + 1)))
+			level++;
+		int slot = (int) (timeout.deadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+
+		Timeout first = slots[level][slot];
+		timeout.level = level;
+		timeout.slot = slot;
+		timeout.previous = null;
+		timeout.next = first;
+		if (first != null)
+			first.previous = timeout;
+		slots[level][slot] = timeout;
+	}
+
+	private void unlink(Timeout timeout) {
+		if (timeout.previous != null) {
+			timeout.previous.next = timeout.next;
+		} else {
+			slots[timeout.level][timeout.slot] = timeout.next;
+		}
+		if (timeout.next != null)
+			timeout.next.previous = timeout.previous;
+		timeout.previous = timeout.next = null;
+		timeout.level = -1;
+	}
+
+	private void unlinkFromScript(Timeout timeout) {
+		Script script = timeout.script;
+		if (script == null)
+			return;
+		if (timeout.previousOfScript != null) {
+			timeout.previousOfScript.nextOfScript = timeout.nextOfScript;
+		} else if (timeout.nextOfScript != null) {
+			scripts.put(script, timeout.nextOfScript);
+		} else {
+			scripts.remove(script);
+		}
+		if (timeout.nextOfScript != null)
+			timeout.nextOfScript.previousOfScript = timeout.previousOfScript;
+		timeout.previousOfScript = timeout.nextOfScript = null;
+	}
+
+	/**
+	 * @return The amount of tasks that are waiting to be run.
+	 */
+	public synchronized int getScheduled() {
+		return scheduled;
+	}
+
+	/**
+	 * @return The amount of tasks that were run in the last tick.
+	 */
+	public synchronized int getLastTickResumed() {
+		return lastTickResumed;
+	}
+
+	/**
+	 * @return The highest amount of tasks that were run in a single tick.
+	 */
+	public synchronized int getMaxTickResumed() {
+		return maxTickResumed;
+	}
+
+	/**
+	 * @return The total amount of tasks that were run.
+	 */
+	public synchronized long getTotalResumed() {
+		return totalResumed;
+	}
+
+	/**
+	 * A task scheduled in a {@link TimerWheel}.
+	 */
+	public static final class Timeout {
+
+		private final Runnable task;
+		private final long deadline;
+		@Nullable
+		private final Script script;
+
+		/**
+		 * The level and slot this timeout is in, or {@code -1} if it is not in the wheel anymore.
+		 */
+		private int level = -1, slot;
+		@Nullable
+		private Timeout previous, next;
+		@Nullable
+		private Timeout previousOfScript, nextOfScript;
+
+		private volatile boolean cancelled;
+
+		private Timeout(Runnable task, long deadline, @Nullable Script script) {
+			this.task = task;
+			this.deadline = deadline;
+			this.script = script;
+		}
+
+		/**
+		 * @return Whether this task was cancelled before it was run.
+		 */
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+	}
+
+}
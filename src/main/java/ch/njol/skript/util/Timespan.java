@@ -19,6 +19,8 @@
 package ch.njol.skript.util;
 
 import ch.njol.skript.Skript;
+import ch.njol.skript.lang.ParseContext;
+import ch.njol.skript.lang.parser.LiteralParseCache;
 import ch.njol.skript.localization.GeneralWords;
 import ch.njol.skript.localization.Language;
 import ch.njol.skript.localization.LanguageChangeListener;
@@ -99,6 +101,18 @@ public class Timespan implements YggdrasilSerializable, Comparable<Timespan> { /
 	
 	@Nullable
 	public static Timespan parse(String value) {
+		if (!LiteralParseCache.isActive())
+			return parse_i(value);
+		LiteralParseCache.Result result = LiteralParseCache.TIMESPANS.get(value, Timespan.class, ParseContext.DEFAULT);
+		if (result != null)
+			return (Timespan) result.getValue();
+		Timespan timespan = parse_i(value);
+		LiteralParseCache.TIMESPANS.put(value, Timespan.class, ParseContext.DEFAULT, timespan);
+		return timespan;
+	}
+
+	@Nullable
+	private static Timespan parse_i(String value) {
 		if (value.isEmpty())
 			return null;
 
@@ -0,0 +1,232 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Decides when a {@link VariablesStorage} has to force its written changes
+ * to durable storage, and keeps track of how many changes are not yet durable.
+ * <p>
+ * All methods are thread-safe, but {@link #recordWritten(long)} and
+ * {@link #synced(long, int)} are expected to be called from the storage's write thread only.
+ * Written changes are not tracked for {@link Mode#NONE}, as they are never synced explicitly.
+ */
+public final class DurabilityPolicy {
+
+	/**
+	 * The durability modes a storage can be configured with.
+	 */
+	public enum Mode {
+
+		/**
+		 * Changes are handed to the operating system (or database driver) as they come in,
+		 * but are never explicitly forced to disk. This is the legacy behaviour.
+		 */
+		NONE,
+
+		/**
+		 * Written changes are forced to disk on a fixed interval,
+		 * whether few or many changes were written in the meantime.
+		 */
+		INTERVAL,
+
+		/**
+		 * Written changes are forced to disk once the oldest unsynced change
+		 * is older than the configured interval, or once the configured
+		 * amount of changes has accumulated, whichever happens first.
+		 */
+		GROUP_COMMIT;
+
+		/**
+		 * Parses a mode from its config name, e.g. {@code group-commit}.
+		 *
+		 * @param name the name of the mode.
+		 * @return the mode, or {@code null} if no mode has the given name.
+		 */
+		@Nullable
+		public static Mode parse(String name) {
+			String normalized = name.trim().toUpperCase(Locale.ENGLISH).replace('-', '_').replace(' ', '_');
+			for (Mode mode : values()) {
+				if (mode.name().equals(normalized))
+					return mode;
+			}
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return name().toLowerCase(Locale.ENGLISH).replace('_', '-');
+		}
+
+	}
+
+	/**
+	 * The default policy, which never forces changes to disk.
+	 */
+	public static final DurabilityPolicy NONE = new DurabilityPolicy(Mode.NONE, 0, 0);
+
+	private final Mode mode;
+
+	/**
+	 * The interval in milliseconds for {@link Mode#INTERVAL},
+	 * or the maximum latency of a change for {@link Mode#GROUP_COMMIT}.
+	 */
+	private final long intervalMillis;
+
+	/**
+	 * The maximum amount of unsynced changes for {@link Mode#GROUP_COMMIT}.
+	 * {@code 0} disables the record limit.
+	 */
+	private final int maxRecords;
+
+	/**
+	 * The amount of changes that were written, but not yet forced to disk.
+	 */
+	private final AtomicInteger unsyncedChanges = new AtomicInteger();
+
+	/**
+	 * The time of the last sync, in milliseconds,
+	 * or {@link Long#MIN_VALUE} if no change was written yet.
+	 */
+	private volatile long lastSync = Long.MIN_VALUE;
+
+	/**
+	 * The time the oldest unsynced change was written, in milliseconds.
+	 * Only meaningful if {@link #unsyncedChanges} is positive.
+	 */
+	private volatile long firstUnsyncedWrite;
+
+	/**
+	 * Creates a new durability policy.
+	 *
+	 * @param mode the mode.
+	 * @param intervalMillis the sync interval or maximum latency, in milliseconds.
+	 * @param maxRecords the maximum amount of unsynced records for {@link Mode#GROUP_COMMIT},
+	 *                   or {@code 0} for no limit.
+	 */
+	public DurabilityPolicy(Mode mode, long intervalMillis, int maxRecords) {
+		if (mode != Mode.NONE && intervalMillis <= 0 && maxRecords <= 0)
+			throw new IllegalArgumentException("A " + mode + " durability policy needs a positive interval or record limit");
+		this.mode = mode;
+		this.intervalMillis = intervalMillis;
+		this.maxRecords = maxRecords;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	public long getIntervalMillis() {
+		return intervalMillis;
+	}
+
+	public int getMaxRecords() {
+		return maxRecords;
+	}
+
+	/**
+	 * @return the amount of changes that were written but have not been forced to disk yet.
+	 * Always {@code 0} for {@link Mode#NONE}.
+	 */
+	public int getUnsyncedChanges() {
+		return unsyncedChanges.get();
+	}
+
+	/**
+	 * Records that a change was written to the storage.
+	 *
+	 * @param now the current time in milliseconds.
+	 * @return whether the storage should sync now.
+	 */
+	public boolean recordWritten(long now) {
+		if (mode == Mode.NONE)
+			return false;
+		if (lastSync == Long.MIN_VALUE)
+			lastSync = now; // the interval starts with the first change
+		if (unsyncedChanges.getAndIncrement() == 0)
+			firstUnsyncedWrite = now;
+		return shouldSync(now);
+	}
+
+	/**
+	 * @param now the current time in milliseconds.
+	 * @return whether the storage should sync now.
+	 */
+	public boolean shouldSync(long now) {
+		int unsynced = unsyncedChanges.get();
+		if (unsynced == 0)
+			return false;
+		switch (mode) {
+			case NONE:
+				return false;
+			case INTERVAL:
+				return now - lastSync >= intervalMillis;
+			case GROUP_COMMIT:
+				if (maxRecords > 0 && unsynced >= maxRecords)
+					return true;
+				return intervalMillis > 0 && now - firstUnsyncedWrite >= intervalMillis;
+		}
+		throw new IllegalStateException();
+	}
+
+	/**
+	 * Gets how long the write thread may wait for new changes before it has to sync.
+	 *
+	 * @param now the current time in milliseconds.
+	 * @return the time to wait in milliseconds, or {@code -1} if it may wait indefinitely.
+	 */
+	public long getSyncTimeout(long now) {
+		if (mode == Mode.NONE || intervalMillis <= 0 || unsyncedChanges.get() == 0)
+			return -1;
+		long deadline = (mode == Mode.INTERVAL ? lastSync : firstUnsyncedWrite) + intervalMillis;
+		return Math.max(0, deadline - now);
+	}
+
+	/**
+	 * Records that a sync was attempted.
+	 * A failed sync should be recorded with {@code 0} synced changes,
+	 * so it is retried after the interval instead of immediately.
+	 *
+	 * @param now the current time in milliseconds.
+	 * @param syncedChanges the value of {@link #getUnsyncedChanges()}
+	 *                      at the time the sync was started, or {@code 0} if it failed.
+	 */
+	public void synced(long now, int syncedChanges) {
+		lastSync = now;
+		firstUnsyncedWrite = now;
+		unsyncedChanges.addAndGet(-syncedChanges);
+	}
+
+	@Override
+	public String toString() {
+		switch (mode) {
+			case INTERVAL:
+				return mode + " (every " + intervalMillis + " ms)";
+			case GROUP_COMMIT:
+				return mode + " (after " + intervalMillis + " ms or " + maxRecords + " records)";
+			default:
+				return mode.toString();
+		}
+	}
+
+}
@@ -38,6 +38,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -85,6 +86,13 @@ public class FlatFileStorage extends VariablesStorage {
 	 */
 	private final NotifyingReference<PrintWriter> changesWriter = new NotifyingReference<>();
 
+	/**
+	 * The stream {@link #changesWriter} writes to, used to {@link #sync()} the file to disk.
+	 * Guarded by {@link #changesWriter}.
+	 */
+	@Nullable
+	private FileOutputStream changesStream;
+
 	/**
 	 * Whether the storage has been loaded.
 	 */
@@ -148,6 +156,13 @@ public class FlatFileStorage extends VariablesStorage {
 			return false;
 		}
 
+		if (isWarmStarted()) {
+			// The variables were loaded from the snapshot, the file doesn't need to be read
+			connect();
+			startSaveTask();
+			return true;
+		}
+
 		// Keep track of loading errors
 		IOException ioException = null;
 		int unsuccessfulVariableCount = 0;
@@ -162,6 +177,8 @@ public class FlatFileStorage extends VariablesStorage {
 		Version v2_1 = new Version(2, 1);
 		boolean update2_1 = false;
 
+		repairTornTail();
+
 		try (BufferedReader reader = new BufferedReader(
 				new InputStreamReader(Files.newInputStream(file.toPath()), FILE_CHARSET))) {
 			String line;
@@ -269,8 +286,33 @@ public class FlatFileStorage extends VariablesStorage {
 		}
 
 		connect();
+		startSaveTask();
+
+		return ioException == null;
+	}
+
+	/**
+	 * Repairs a record that was only partially written when the server crashed,
+	 * as appending to it would also corrupt the next record.
+	 */
+	final void repairTornTail() {
+		File file = this.file;
+		assert file != null;
+		try {
+			TailRecovery recovery = recoverTornTail(file, true);
+			if (recovery == TailRecovery.TRUNCATED) {
+				Skript.warning("The last line of " + file.getName() + " was only partially written, " +
+					"most likely because the server crashed. It has been discarded, the original file was backed up.");
+			}
+		} catch (IOException e) {
+			Skript.error("Could not check " + file.getName() + " for partially written variables: " + ExceptionUtils.toString(e));
+		}
+	}
 
-		// Start the save task
+	/**
+	 * Starts the task that rewrites the file once enough changes were appended to it.
+	 */
+	private void startSaveTask() {
 		saveTask = new Task(Skript.getInstance(), SAVE_TASK_DELAY, SAVE_TASK_PERIOD, true) {
 			@Override
 			public void run() {
@@ -282,8 +324,14 @@ public class FlatFileStorage extends VariablesStorage {
 				}
 			}
 		};
+	}
 
-		return ioException == null;
+	@Override
+	@Nullable
+	protected String getModificationStamp() {
+		if (file == null || !file.isFile())
+			return null;
+		return file.length() + ":" + file.lastModified();
 	}
 
 	@Override
@@ -311,6 +359,7 @@ public class FlatFileStorage extends VariablesStorage {
 				if (printWriter != null) {
 					printWriter.close();
 					changesWriter.set(null);
+					changesStream = null;
 				}
 			}
 		}
@@ -326,11 +375,14 @@ public class FlatFileStorage extends VariablesStorage {
 					return true;
 
 				// Open the file stream, and create the PrintWriter with it
-				try (FileOutputStream fos = new FileOutputStream(file, true)) {
+				//  (the stream stays open until disconnect() closes the PrintWriter)
+				try {
+					FileOutputStream fos = new FileOutputStream(file, true);
+					changesStream = fos;
 					changesWriter.set(new PrintWriter(new OutputStreamWriter(fos, FILE_CHARSET)));
 					loaded = true;
 					return true;
-				} catch (IOException e) { // close() might throw ANY IOException
+				} catch (IOException e) {
 					//noinspection ThrowableNotThrown
 					Skript.exception(e);
 					return false;
@@ -339,8 +391,29 @@ public class FlatFileStorage extends VariablesStorage {
 		}
 	}
 
+	@Override
+	protected boolean sync() {
+		synchronized (changesWriter) {
+			PrintWriter printWriter = changesWriter.get();
+			FileOutputStream stream = changesStream;
+			if (printWriter == null || stream == null)
+				return false; // disconnected for a backup or full save, try again later
+
+			printWriter.flush();
+			try {
+				stream.getFD().sync();
+				return true;
+			} catch (IOException e) {
+				Skript.error("Could not sync the database '" + databaseName + "' to disk: " + ExceptionUtils.toString(e));
+				return false;
+			}
+		}
+	}
+
 	@Override
 	public void close() {
+		if (closed)
+			return;
 		clearChangesQueue();
 		super.close();
 		saveVariables(true); // also closes the writer
@@ -427,7 +500,8 @@ public class FlatFileStorage extends VariablesStorage {
 					//  the data in the actual file may be partially lost)
 					File tempFile = new File(file.getParentFile(), file.getName() + ".temp");
 
-					try (PrintWriter pw = new PrintWriter(tempFile, "UTF-8")) {
+					try (FileOutputStream out = new FileOutputStream(tempFile);
+						 PrintWriter pw = new PrintWriter(new OutputStreamWriter(out, FILE_CHARSET))) {
 						pw.println("# === Skript's variable storage ===");
 						pw.println("# Please do not modify this file manually!");
 						pw.println("#");
@@ -436,6 +510,9 @@ public class FlatFileStorage extends VariablesStorage {
 						save(pw, "", Variables.getVariables());
 						pw.println();
 						pw.flush();
+						// Make sure the new file is complete on disk before it replaces the old one
+						if (durability.getMode() != DurabilityPolicy.Mode.NONE)
+							out.getFD().sync();
 						pw.close();
 						FileUtils.move(tempFile, file, true);
 					} catch (IOException e) {
@@ -546,6 +623,116 @@ public class FlatFileStorage extends VariablesStorage {
 		return decoded;
 	}
 
+	/**
+	 * The outcome of {@link #recoverTornTail(File, boolean)}.
+	 */
+	enum TailRecovery {
+
+		/**
+		 * The file was empty or ended with a complete line.
+		 */
+		INTACT,
+
+		/**
+		 * The last line was a complete record that was only missing its line terminator,
+		 * which has been appended.
+		 */
+		TERMINATED,
+
+		/**
+		 * The last line was an incomplete record and has been removed.
+		 */
+		TRUNCATED
+
+	}
+
+	/**
+	 * Makes sure the given CSV file ends with a complete line, so new records can be appended safely.
+	 * <p>
+	 * A crash while a record is being appended leaves a partial line at the end of the file.
+	 * If that line still parses as a valid record, it only gets a line terminator appended
+	 * (a value that was cut short will fail to deserialize and be reported like any other invalid variable),
+	 * otherwise the file is truncated to the last complete line.
+	 *
+	 * @param file the CSV file.
+	 * @param backup whether to {@link FileUtils#backup(File) back up} the file before truncating it.
+	 * @return what was done to the file.
+	 * @throws IOException if the file could not be read or repaired.
+	 */
+	static TailRecovery recoverTornTail(File file, boolean backup) throws IOException {
+		long completeLength;
+		byte[] tail;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			long length = raf.length();
+			completeLength = 0;
+
+			// Scan backwards for the last line terminator
+			byte[] buffer = new byte[4096];
+			long end = length;
+			search: while (end > 0) {
+				int read = (int) Math.min(buffer.length, end);
+				raf.seek(end - read);
+				raf.readFully(buffer, 0, read);
+				for (int i = read - 1; i >= 0; i--) {
+					if (buffer[i] == '\n') {
+						completeLength = end - read + i + 1;
+						break search;
+					}
+				}
+				end -= read;
+			}
+
+			if (completeLength == length)
+				return TailRecovery.INTACT;
+
+			tail = new byte[(int) (length - completeLength)];
+			raf.seek(completeLength);
+			raf.readFully(tail);
+		}
+
+		if (isCompleteRecord(new String(tail, FILE_CHARSET))) {
+			try (FileOutputStream out = new FileOutputStream(file, true)) {
+				out.write(System.lineSeparator().getBytes(FILE_CHARSET));
+			}
+			return TailRecovery.TERMINATED;
+		}
+
+		if (backup)
+			FileUtils.backup(file);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(completeLength);
+		}
+		return TailRecovery.TRUNCATED;
+	}
+
+	/**
+	 * Checks whether the given line, which was not terminated, is a complete record
+	 * (or a comment), i.e. whether it could have been written in its entirety.
+	 *
+	 * @param line the line.
+	 * @return whether the line is complete.
+	 */
+	private static boolean isCompleteRecord(String line) {
+		line = line.trim();
+		if (line.isEmpty() || line.startsWith("#"))
+			return true;
+
+		String[] split = splitCSV(line);
+		if (split == null || split.length != 3)
+			return false;
+
+		String value = split[2];
+		if (split[1].equals("null"))
+			return value.isEmpty();
+		if (value.isEmpty() || value.length() % 2 != 0)
+			return false;
+		for (int i = 0; i < value.length(); i++) {
+			if (Character.digit(value.charAt(i), 16) == -1)
+				return false;
+		}
+		return true;
+	}
+
 	/**
 	 * A regex pattern of a line in a CSV file.
 	 */
@@ -599,7 +786,7 @@ public class FlatFileStorage extends VariablesStorage {
 	 * @param printWriter the print writer.
 	 * @param values the values, must have a length of {@code 3}.
 	 */
-	private static void writeCSV(PrintWriter printWriter, String... values) {
+	static void writeCSV(PrintWriter printWriter, String... values) {
 		assert values.length == 3; // name, type, value
 
 		for (int i = 0; i < values.length; i++) {
@@ -72,7 +72,8 @@ public abstract class SQLStorage extends VariablesStorage {
 	private final static String guid = UUID.randomUUID().toString();
 
 	/**
-	 * The delay between transactions in milliseconds.
+	 * The delay between transactions in milliseconds,
+	 * if no other {@link #durability} is configured.
 	 */
 	private final static long TRANSACTION_DELAY = 500;
 
@@ -275,28 +276,33 @@ public abstract class SQLStorage extends VariablesStorage {
 	protected void allLoaded() {
 		Skript.debug("Database " + databaseName + " loaded. Queue size = " + changesQueue.size());
 
-		// start committing thread. Its first execution will also commit the first batch of changed variables.
-		Skript.newThread(new Runnable() {
-			@Override
-			public void run() {
-				long lastCommit;
-				while (!closed) {
-					synchronized (db) {
-						final Database db = SQLStorage.this.db.get();
-						try {
-							if (db != null)
-								db.getConnection().commit();
-						} catch (final SQLException e) {
-							sqlException(e);
+		if (durability.getMode() == DurabilityPolicy.Mode.NONE) {
+			// start committing thread. Its first execution will also commit the first batch of changed variables.
+			Skript.newThread(new Runnable() {
+				@Override
+				public void run() {
+					long lastCommit;
+					while (!closed) {
+						synchronized (db) {
+							final Database db = SQLStorage.this.db.get();
+							try {
+								if (db != null)
+									db.getConnection().commit();
+							} catch (final SQLException e) {
+								sqlException(e);
+							}
+							lastCommit = System.currentTimeMillis();
 						}
-						lastCommit = System.currentTimeMillis();
+						try {
+							Thread.sleep(Math.max(0, lastCommit + TRANSACTION_DELAY - System.currentTimeMillis()));
+						} catch (final InterruptedException e) {}
 					}
-					try {
-						Thread.sleep(Math.max(0, lastCommit + TRANSACTION_DELAY - System.currentTimeMillis()));
-					} catch (final InterruptedException e) {}
 				}
-			}
-		}, "Skript database '" + databaseName + "' transaction committing thread").start();
+			}, "Skript database '" + databaseName + "' transaction committing thread").start();
+		} else {
+			// transactions are committed by the write thread as dictated by the durability, commit the first batch now
+			sync();
+		}
 
 		if (monitor) {
 			Skript.newThread(new Runnable() {
@@ -480,6 +486,22 @@ public abstract class SQLStorage extends VariablesStorage {
 		return true;
 	}
 
+	@Override
+	protected boolean sync() {
+		synchronized (db) {
+			final Database db = this.db.get();
+			if (db == null)
+				return false;
+			try {
+				db.getConnection().commit();
+				return true;
+			} catch (final SQLException e) {
+				sqlException(e);
+				return false;
+			}
+		}
+	}
+
 	@Override
 	public void close() {
 		synchronized (db) {
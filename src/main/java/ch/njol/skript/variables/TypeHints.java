@@ -34,28 +34,30 @@ import org.eclipse.jdt.annotation.Nullable;
  * <li>ScriptLoader clears hints after each section has been parsed
  * <li>ScriptLoader enters and exists scopes as needed
  * </ul>
+ * 
+ * Hints are kept per thread, as scripts may be loaded by multiple threads in parallel.
  */
 public class TypeHints {
 	
-	private static final Deque<Map<String, Class<?>>> typeHints = new ArrayDeque<>();
-	
-	static {
-		clear(); // Initialize type hints
-	}
+	private static final ThreadLocal<Deque<Map<String, Class<?>>>> typeHints = ThreadLocal.withInitial(() -> {
+		Deque<Map<String, Class<?>>> hints = new ArrayDeque<>();
+		hints.push(new HashMap<>()); // Initialize type hints
+		return hints;
+	});
 	
 	public static void add(String variable, Class<?> hint) {
 		if (hint.equals(Object.class)) // Ignore useless type hint
 			return;
 		
 		// Take top of stack, without removing it
-		Map<String, Class<?>> hints = typeHints.getFirst();
+		Map<String, Class<?>> hints = typeHints.get().getFirst();
 		hints.put(variable, hint);
 	}
 	
 	@Nullable
 	public static Class<?> get(String variable) {
 		// Go through stack of hints for different scopes
-		for (Map<String, Class<?>> hints : typeHints) {
+		for (Map<String, Class<?>> hints : typeHints.get()) {
 			Class<?> hint = hints.get(variable);
 			if (hint != null) // Found in this scope
 				return hint;
@@ -65,15 +67,16 @@ public class TypeHints {
 	}
 	
 	public static void enterScope() {
-		typeHints.push(new HashMap<>());
+		typeHints.get().push(new HashMap<>());
 	}
 	
 	public static void exitScope() {
-		typeHints.pop();
+		typeHints.get().pop();
 	}
 	
 	public static void clear() {
-		typeHints.clear();
-		typeHints.push(new HashMap<>());
+		Deque<Map<String, Class<?>>> hints = typeHints.get();
+		hints.clear();
+		hints.push(new HashMap<>());
 	}
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import java.util.Map;
+
+/**
+ * Receives changes to global variables, see {@link Variables#subscribe(String, VariableChangeListener)}.
+ * <p>
+ * Listeners are called on a dedicated thread, never on the server thread,
+ * so they must not use the Bukkit API without scheduling a task.
+ * Values are passed as they are stored in memory and must not be modified.
+ */
+@FunctionalInterface
+public interface VariableChangeListener {
+
+	/**
+	 * Called with the changes that happened since the last call.
+	 * If a variable changed multiple times in the meantime, only its latest value is included.
+	 *
+	 * @param changes the names of the changed variables mapped to their new values,
+	 *                   in the order they were last changed. A {@code null} value means the variable was deleted.
+	 */
+	void onChanges(Map<String, Object> changes);
+
+	/**
+	 * Called before {@link #onChanges(Map)} if changes were dropped because the listener
+	 * couldn't keep up with them. Listeners mirroring variables should reload the variables they are interested in.
+	 *
+	 * @param dropped the amount of dropped changes.
+	 */
+	default void onOverflow(int dropped) {}
+
+}
@@ -0,0 +1,272 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import ch.njol.skript.Skript;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A subscription of a {@link VariableChangeListener} to the changes of global variables
+ * whose names start with a given prefix.
+ * <p>
+ * Changes are stored in a bounded ring buffer and delivered on a shared pool of listener threads,
+ * so publishing a change never blocks the thread changing the variable.
+ * The changes of a subscription are delivered one batch at a time and in order,
+ * and a slow listener only delays the changes of its own subscription.
+ * If the buffer is full, the {@link OverflowPolicy} decides which changes are dropped.
+ */
+public final class VariableSubscription {
+
+	/**
+	 * What to do with a change if the buffer of a subscription is full.
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * The oldest buffered change is dropped to make room for the new one.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * The new change is dropped.
+		 */
+		DROP_NEWEST
+
+	}
+
+	/**
+	 * The default amount of changes a subscription buffers.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * The pool of threads all listeners are called on, created when the first change is published.
+	 * It isn't bounded, as a listener blocking one of its threads mustn't keep the other subscriptions from being delivered to.
+	 */
+	@Nullable
+	private static ExecutorService executor;
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "Skript variable listeners");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Stops the listener threads after delivering all pending changes.
+	 */
+	static synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	private final String prefix;
+	private final VariableChangeListener listener;
+	private final OverflowPolicy overflowPolicy;
+
+	// the ring buffer, guarded by this
+	private String[] names;
+	private Object[] values;
+	private int head, size, dropped;
+
+	/**
+	 * Whether a delivery is scheduled or running, guarded by this. There is at most one at a time.
+	 */
+	private boolean scheduled;
+
+	/**
+	 * Empty arrays of the same capacity as the buffer, which replace it when a delivery takes the buffered changes,
+	 * so the changes can be coalesced without holding the lock {@link #publish(String, Object)} needs.
+	 * Only the running delivery uses them.
+	 */
+	private String[] spareNames;
+	private Object[] spareValues;
+
+	private volatile boolean closed;
+
+	VariableSubscription(String prefix, int capacity, OverflowPolicy overflowPolicy, VariableChangeListener listener) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity must be positive");
+		this.prefix = prefix;
+		this.listener = listener;
+		this.overflowPolicy = overflowPolicy;
+		this.names = new String[capacity];
+		this.values = new Object[capacity];
+		this.spareNames = new String[capacity];
+		this.spareValues = new Object[capacity];
+	}
+
+	/**
+	 * @return the prefix of the names of the variables this subscription receives changes of.
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	public VariableChangeListener getListener() {
+		return listener;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public int getCapacity() {
+		return names.length;
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Stops the delivery of changes to the listener. Changes that are already buffered are discarded.
+	 */
+	public void close() {
+		closed = true;
+		Variables.unsubscribe(this);
+		synchronized (this) {
+			size = 0;
+			dropped = 0;
+		}
+	}
+
+	/**
+	 * @param name the name of a changed variable.
+	 * @return whether this subscription receives changes of the given variable.
+	 */
+	boolean accepts(String name) {
+		return name.startsWith(prefix);
+	}
+
+	/**
+	 * Buffers a change for delivery. Never blocks for longer than it takes to append to the buffer.
+	 *
+	 * @param name the name of the changed variable.
+	 * @param value the new value, or {@code null} if the variable was deleted.
+	 */
+	void publish(String name, @Nullable Object value) {
+		if (closed)
+			return;
+		synchronized (this) {
+			int capacity = names.length;
+			if (size == capacity) {
+				dropped++;
+				if (overflowPolicy == OverflowPolicy.DROP_NEWEST)
+					return;
+				head = (head + 1) % capacity;
+				size--;
+			}
+			int tail = (head + size) % capacity;
+			names[tail] = name;
+			values[tail] = value;
+			size++;
+
+			if (scheduled)
+				return;
+			scheduled = true;
+		}
+		schedule();
+	}
+
+	private void schedule() {
+		try {
+			getExecutor().execute(this::deliver);
+		} catch (RejectedExecutionException e) {
+			// shutting down, changes are no longer delivered
+			synchronized (this) {
+				scheduled = false;
+			}
+		}
+	}
+
+	/**
+	 * Takes the buffered changes, coalesces changes of the same variable, and calls the listener.
+	 * If more changes were published in the meantime, another delivery is scheduled,
+	 * so a subscription with a constant stream of changes doesn't keep a thread to itself.
+	 */
+	private void deliver() {
+		String[] names;
+		Object[] values;
+		int head, size, dropped;
+		synchronized (this) {
+			names = this.names;
+			values = this.values;
+			head = this.head;
+			size = this.size;
+			dropped = this.dropped;
+			this.names = spareNames;
+			this.values = spareValues;
+			this.head = 0;
+			this.size = 0;
+			this.dropped = 0;
+		}
+
+		Map<String, Object> changes = new LinkedHashMap<>((int) (size / 0.75f) + 1);
+		int capacity = names.length;
+		for (int i = 0; i < size; i++) {
+			int index = (head + i) % capacity;
+			changes.remove(names[index]); // keep the order of the latest changes
+			changes.put(names[index], values[index]);
+			names[index] = null;
+			values[index] = null;
+		}
+		spareNames = names;
+		spareValues = values;
+
+		if (!closed && (!changes.isEmpty() || dropped > 0)) {
+			try {
+				if (dropped > 0)
+					listener.onOverflow(dropped);
+				if (!changes.isEmpty())
+					listener.onChanges(Collections.unmodifiableMap(changes));
+			} catch (Throwable t) {
+				Skript.exception(t, "An exception occurred in a variable change listener for '" + prefix + "'");
+			}
+		}
+
+		synchronized (this) {
+			if (this.size == 0 && this.dropped == 0) {
+				scheduled = false;
+				return;
+			}
+		}
+		schedule();
+	}
+
+	@Override
+	public String toString() {
+		return "VariableSubscription{prefix=" + prefix + ", capacity=" + names.length + ", policy=" + overflowPolicy + "}";
+	}
+
+}
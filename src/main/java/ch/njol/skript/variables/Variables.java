@@ -45,11 +45,16 @@ import org.skriptlang.skript.lang.converter.Converters;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -140,6 +145,22 @@ public class Variables {
 	 */
 	static final List<VariablesStorage> STORAGES = new ArrayList<>();
 
+	/**
+	 * Gets the storage responsible for saving the given global variable,
+	 * i.e. the first storage that {@link VariablesStorage#accept(String) accepts} it.
+	 *
+	 * @param name the variable name.
+	 * @return the storage, or {@code null} if the variable is not saved.
+	 */
+	@Nullable
+	static VariablesStorage getStorage(String name) {
+		for (VariablesStorage storage : STORAGES) {
+			if (storage.accept(name))
+				return storage;
+		}
+		return null;
+	}
+
 	/**
 	 * Register a VariableStorage class for Skript to create if the user config value matches.
 	 * 
@@ -184,6 +205,8 @@ public class Variables {
 
 		Skript.closeOnDisable(Variables::close);
 
+		snapshot = readSnapshot();
+
 		// reports once per second how many variables were loaded. Useful to make clear that Skript is still doing something if it's loading many variables
 		Thread loadingLoggerThread = new Thread(() -> {
 			while (true) {
@@ -499,34 +522,166 @@ public class Variables {
 	 * @param local if this variable is a local or global variable.
 	 */
 	public static void setVariable(String name, @Nullable Object value, @Nullable Event event, boolean local) {
-		if (caseInsensitiveVariables) {
-			name = name.toLowerCase(Locale.ENGLISH);
+		name = normalizeName(name);
+		assert value == null || !name.endsWith("::*");
+		value = prepareValue(value);
+
+		if (local) {
+			assert event != null : name;
+
+			// Get the variables map and set the variable in it
+			VariablesMap map = localVariables.computeIfAbsent(event, e -> new VariablesMap());
+			map.setVariable(name, value);
+		} else {
+			setVariable(name, value);
 		}
+	}
 
-		// Check if conversion is needed due to ClassInfo#getSerializeAs
-		if (value != null) {
-			assert !name.endsWith("::*");
+	/**
+	 * Sets multiple local variables of an event at once, e.g. the parameters of a function call.
+	 * <p>
+	 * This is equivalent to calling {@link #setVariable(String, Object, Event, boolean)} for each variable,
+	 * but if the event has no local variables yet, they are created at once instead of being looked up for each variable.
+	 *
+	 * @param event the event the local variables reside in.
+	 * @param names the names of the variables, which must not be list variables.
+	 * @param values the values of the variables, at the same indices as their names.
+	 * @param count the amount of variables to set, i.e. the amount of names and values to use.
+	 */
+	public static void createLocalVariables(Event event, String[] names, Object[] values, int count) {
+		VariablesMap map = new VariablesMap();
+		for (int i = 0; i < count; i++) {
+			assert !names[i].endsWith("::*") : names[i];
+			map.setVariable(normalizeName(names[i]), prepareValue(values[i]));
+		}
+		VariablesMap previous = localVariables.putIfAbsent(event, map);
+		if (previous != null) { // the event already has local variables, so add the new ones to them
+			for (int i = 0; i < count; i++)
+				previous.setVariable(normalizeName(names[i]), prepareValue(values[i]));
+		}
+	}
 
-			ClassInfo<?> ci = Classes.getSuperClassInfo(value.getClass());
-			Class<?> sas = ci.getSerializeAs();
+	/**
+	 * Sets multiple variables at once.
+	 * <p>
+	 * This is equivalent to calling {@link #setVariable(String, Object, Event, boolean)}
+	 * for each entry in order, but global variables are changed while acquiring the lock only once,
+	 * and their changes are saved as a single batch.
+	 *
+	 * @param values the variable names mapped to their new values, {@code null} values delete the variable.
+	 *                  Names may be "list variable::*" to delete a whole list variable.
+	 * @param event if {@code local} is {@code true}, this is the event
+	 *                 the local variables reside in.
+	 * @param local if these variables are local or global variables.
+	 */
+	public static void setVariables(Map<String, ?> values, @Nullable Event event, boolean local) {
+		List<VariableChange> changes = new ArrayList<>(values.size());
+		for (Entry<String, ?> entry : values.entrySet()) {
+			String name = normalizeName(entry.getKey());
+			assert entry.getValue() == null || !name.endsWith("::*") : name;
+			changes.add(new VariableChange(name, prepareValue(entry.getValue())));
+		}
+		setVariables(changes, event, local);
+	}
 
-			if (sas != null) {
-				value = Converters.convert(value, sas);
-				assert value != null : ci + ", " + sas;
+	/**
+	 * Replaces the contents of a list variable, deleting all of its current elements
+	 * (including those of nested lists) and setting the given ones.
+	 * The value of the list variable itself (e.g. {@code {list}} for {@code {list::*}}) is not changed.
+	 * <p>
+	 * Global variables are changed while acquiring the lock only once,
+	 * and their changes are saved as a single batch.
+	 *
+	 * @param name the name of the list variable, ending in "::*".
+	 * @param values the new indices mapped to their values. Indices may contain {@link Variable#SEPARATOR}
+	 *                  to set elements of nested lists. {@code null} values are ignored.
+	 *                  {@code null} or an empty map only deletes the list variable.
+	 * @param event if {@code local} is {@code true}, this is the event
+	 *                 the local variable resides in.
+	 * @param local if this variable is a local or global variable.
+	 */
+	public static void replaceBranch(String name, @Nullable Map<String, ?> values, @Nullable Event event, boolean local) {
+		name = normalizeName(name);
+		if (!name.endsWith(Variable.SEPARATOR + "*"))
+			throw new IllegalArgumentException("'" + name + "' is not the name of a list variable");
+		String prefix = name.substring(0, name.length() - 1);
+
+		List<VariableChange> changes = new ArrayList<>(values == null ? 1 : values.size() + 1);
+		changes.add(new VariableChange(name, null));
+		if (values != null) {
+			for (Entry<String, ?> entry : values.entrySet()) {
+				Object value = entry.getValue();
+				if (value != null)
+					changes.add(new VariableChange(normalizeName(prefix + entry.getKey()), prepareValue(value)));
 			}
 		}
+		setVariables(changes, event, local);
+	}
+
+	/**
+	 * Applies the given changes, see {@link #setVariables(Map, Event, boolean)}.
+	 */
+	private static void setVariables(List<VariableChange> changes, @Nullable Event event, boolean local) {
+		if (changes.isEmpty())
+			return;
 
 		if (local) {
-			assert event != null : name;
+			assert event != null;
 
-			// Get the variables map and set the variable in it
 			VariablesMap map = localVariables.computeIfAbsent(event, e -> new VariablesMap());
-			map.setVariable(name, value);
+			for (VariableChange change : changes)
+				map.setVariable(change.name, change.value);
+			return;
+		}
+
+		boolean gotLock = variablesLock.writeLock().tryLock();
+		if (gotLock) {
+			try {
+				List<SerializedVariable> batch = new ArrayList<>(changes.size());
+				for (VariableChange change : changes)
+					applyChange(change.name, change.value, batch);
+				saveQueue.add(batch);
+				processChangeQueue();
+			} finally {
+				variablesLock.writeLock().unlock();
+			}
 		} else {
-			setVariable(name, value);
+			// Couldn't acquire variable write lock, queue the changes (blocking here is a bad idea)
+			changeQueue.addAll(changes);
 		}
 	}
 
+	/**
+	 * Applies the {@link #caseInsensitiveVariables case sensitivity} setting to the given variable name.
+	 *
+	 * @param name the variable name.
+	 * @return the name to store the variable under.
+	 */
+	private static String normalizeName(String name) {
+		return caseInsensitiveVariables ? name.toLowerCase(Locale.ENGLISH) : name;
+	}
+
+	/**
+	 * Converts the given value as required by its {@link ClassInfo#getSerializeAs()}, if needed.
+	 *
+	 * @param value the value.
+	 * @return the value to store.
+	 */
+	@Nullable
+	private static Object prepareValue(@Nullable Object value) {
+		if (value == null)
+			return null;
+
+		ClassInfo<?> ci = Classes.getSuperClassInfo(value.getClass());
+		Class<?> sas = ci.getSerializeAs();
+		if (sas == null)
+			return value;
+
+		Object converted = Converters.convert(value, sas);
+		assert converted != null : ci + ", " + sas;
+		return converted;
+	}
+
 	/**
 	 * Sets the given global variable name to the given value.
 	 *
@@ -537,10 +692,11 @@ public class Variables {
 		boolean gotLock = variablesLock.writeLock().tryLock();
 		if (gotLock) {
 			try {
+				List<SerializedVariable> batch = new ArrayList<>(1);
 				// Set the variable
-				variables.setVariable(name, value);
+				applyChange(name, value, batch);
 				// ..., save the variable change
-				saveVariableChange(name, value);
+				saveQueue.add(batch);
 				// ..., and process all previously queued changes
 				processChangeQueue();
 			} finally {
@@ -552,6 +708,137 @@ public class Variables {
 		}
 	}
 
+	/**
+	 * Sets a global variable and adds the serialized change(s) to the given batch.
+	 * <p>
+	 * Deleting a list variable also saves the deletion of each of its elements,
+	 * so storages don't keep elements that are no longer in memory.
+	 * Must be called while holding the write lock.
+	 *
+	 * @param name the variable name.
+	 * @param value the value, or {@code null} to delete the variable.
+	 * @param batch the batch to add the serialized changes to.
+	 */
+	private static void applyChange(String name, @Nullable Object value, List<SerializedVariable> batch) {
+		if (value == null && name.endsWith(Variable.SEPARATOR + "*")) {
+			Object branch = variables.getVariable(name);
+			if (branch instanceof Map) {
+				List<String> elements = new ArrayList<>();
+				collectBranch(name.substring(0, name.length() - 1), (Map<?, ?>) branch, elements);
+				for (String element : elements) {
+					batch.add(serialize(element, null));
+					if (subscriptions.length != 0)
+						publishChange(element, null);
+				}
+			}
+		}
+
+		variables.setVariable(name, value);
+		batch.add(serialize(name, value));
+		if (subscriptions.length != 0 && !name.endsWith(Variable.SEPARATOR + "*"))
+			publishChange(name, value);
+	}
+
+	/**
+	 * Collects the names of all variables in the given list variable, including nested lists.
+	 *
+	 * @param prefix the name of the list variable, ending with {@link Variable#SEPARATOR}.
+	 * @param branch the list variable's map.
+	 * @param names the list to add the names to.
+	 */
+	private static void collectBranch(String prefix, Map<?, ?> branch, List<String> names) {
+		for (Entry<?, ?> entry : branch.entrySet()) {
+			if (entry.getKey() == null)
+				continue; // the value of the list variable itself
+			String name = prefix + entry.getKey();
+			Object child = entry.getValue();
+			if (child instanceof Map) {
+				if (((Map<?, ?>) child).get(null) != null)
+					names.add(name);
+				collectBranch(name + Variable.SEPARATOR, (Map<?, ?>) child, names);
+			} else {
+				names.add(name);
+			}
+		}
+	}
+
+	private static final VariableSubscription[] NO_SUBSCRIPTIONS = new VariableSubscription[0];
+	private static final Object SUBSCRIPTIONS_LOCK = new Object();
+
+	/**
+	 * The current subscriptions to variable changes. Replaced as a whole when subscriptions are added or removed,
+	 * so changing variables only costs a volatile read if nothing is subscribed.
+	 */
+	private static volatile VariableSubscription[] subscriptions = NO_SUBSCRIPTIONS;
+
+	/**
+	 * Subscribes to changes of the global variables whose names start with the given prefix,
+	 * buffering up to {@link VariableSubscription#DEFAULT_CAPACITY} changes
+	 * and dropping the oldest changes if the listener can't keep up.
+	 *
+	 * @see #subscribe(String, int, VariableSubscription.OverflowPolicy, VariableChangeListener)
+	 */
+	public static VariableSubscription subscribe(String prefix, VariableChangeListener listener) {
+		return subscribe(prefix, VariableSubscription.DEFAULT_CAPACITY, VariableSubscription.OverflowPolicy.DROP_OLDEST, listener);
+	}
+
+	/**
+	 * Subscribes to changes of the global variables whose names start with the given prefix,
+	 * e.g. {@code "leaderboard::"} for all elements of the list variable {@code {leaderboard::*}}.
+	 * <p>
+	 * The listener is called on a dedicated thread with the changes that happened since it was last called.
+	 * Changing a variable never waits for listeners: changes are buffered, and if more than {@code capacity}
+	 * changes are waiting to be delivered, changes are dropped as decided by the {@code overflowPolicy}
+	 * and the listener is informed through {@link VariableChangeListener#onOverflow(int)}.
+	 * <p>
+	 * Changes made while loading variables are not published.
+	 *
+	 * @param prefix the prefix of the variable names, or an empty string for all global variables.
+	 * @param capacity the maximum amount of buffered changes.
+	 * @param overflowPolicy which changes to drop if the buffer is full.
+	 * @param listener the listener.
+	 * @return the subscription, which can be {@link VariableSubscription#close() closed} to unsubscribe.
+	 */
+	public static VariableSubscription subscribe(String prefix, int capacity,
+												 VariableSubscription.OverflowPolicy overflowPolicy, VariableChangeListener listener) {
+		VariableSubscription subscription = new VariableSubscription(normalizeName(prefix), capacity, overflowPolicy, listener);
+		synchronized (SUBSCRIPTIONS_LOCK) {
+			VariableSubscription[] current = subscriptions;
+			VariableSubscription[] updated = Arrays.copyOf(current, current.length + 1);
+			updated[current.length] = subscription;
+			subscriptions = updated;
+		}
+		return subscription;
+	}
+
+	/**
+	 * Removes the given subscription, see {@link VariableSubscription#close()}.
+	 */
+	static void unsubscribe(VariableSubscription subscription) {
+		synchronized (SUBSCRIPTIONS_LOCK) {
+			VariableSubscription[] current = subscriptions;
+			for (int i = 0; i < current.length; i++) {
+				if (current[i] != subscription)
+					continue;
+				VariableSubscription[] updated = new VariableSubscription[current.length - 1];
+				System.arraycopy(current, 0, updated, 0, i);
+				System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+				subscriptions = updated.length == 0 ? NO_SUBSCRIPTIONS : updated;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Publishes a change of a global variable to all interested subscriptions.
+	 */
+	private static void publishChange(String name, @Nullable Object value) {
+		for (VariableSubscription subscription : subscriptions) {
+			if (subscription.accepts(name))
+				subscription.publish(name, value);
+		}
+	}
+
 	/**
 	 * Changes to variables that have not yet been performed.
 	 */
@@ -604,15 +891,20 @@ public class Variables {
 	 * then release it.
 	 */
 	static void processChangeQueue() {
+		if (changeQueue.isEmpty())
+			return;
+
+		List<SerializedVariable> batch = new ArrayList<>();
 		while (true) { // Run as long as we still have changes
 			VariableChange change = changeQueue.poll();
 			if (change == null)
 				break;
 
 			// Set and save variable
-			variables.setVariable(change.name, change.value);
-			saveVariableChange(change.name, change.value);
+			applyChange(change.name, change.value, batch);
 		}
+		if (!batch.isEmpty())
+			saveQueue.add(batch);
 	}
 
 	/**
@@ -734,6 +1026,171 @@ public class Variables {
 		return false;
 	}
 
+	/**
+	 * The snapshot read when loading variables, {@code null} if there is none or it was already used.
+	 */
+	@Nullable
+	private static VariablesSnapshot snapshot;
+
+	/**
+	 * The variables of the storages that were loaded from the {@link #snapshot},
+	 * kept apart as long as all storages loaded so far were loaded from the snapshot.
+	 */
+	private static final Map<VariablesStorage, Map<String, Object>> WARM_VARIABLES = new LinkedHashMap<>();
+
+	/**
+	 * The {@link VariablesStorage#getSnapshotStamp() stamps} of the storages in {@link #WARM_VARIABLES}.
+	 */
+	private static final List<String> WARM_STAMPS = new ArrayList<>();
+
+	/**
+	 * Whether a storage had to load its variables itself, even though there is a {@link #snapshot}.
+	 */
+	private static boolean coldStorageLoaded = false;
+
+	/**
+	 * Reads the snapshot written when the server last stopped, if enabled.
+	 * The snapshot file is deleted, so it's used at most once.
+	 */
+	@Nullable
+	private static VariablesSnapshot readSnapshot() {
+		File file = new File(Skript.getInstance().getDataFolder(), VariablesSnapshot.FILE_NAME);
+		if (!file.exists())
+			return null;
+		try {
+			if (!SkriptConfig.variablesSnapshot.value())
+				return null;
+			VariablesSnapshot snapshot = VariablesSnapshot.read(file);
+			if (snapshot == null)
+				Skript.warning("The variables snapshot is corrupted, variables will be loaded from the databases");
+			return snapshot;
+		} catch (IOException e) {
+			Skript.warning("Could not read the variables snapshot, variables will be loaded from the databases: " + e.getLocalizedMessage());
+			return null;
+		} finally {
+			//noinspection ResultOfMethodCallIgnored
+			file.delete();
+		}
+	}
+
+	/**
+	 * Loads the variables of the given storage from the snapshot, if the storage
+	 * has the same {@link VariablesStorage#getSnapshotStamp() stamp} as when the snapshot was written.
+	 * <p>
+	 * Called by storages before they load their variables.
+	 *
+	 * @param storage the storage that is being loaded.
+	 * @return whether the variables of the storage were loaded, i.e. the storage must not load them itself.
+	 */
+	static boolean warmStart(VariablesStorage storage) {
+		VariablesSnapshot snapshot = Variables.snapshot;
+		if (snapshot == null)
+			return false;
+
+		String stamp = storage.getSnapshotStamp();
+		Map<String, Value> serialized = stamp == null ? null : snapshot.getVariables(stamp);
+		Map<String, Object> loaded = serialized == null ? null : deserializeAll(serialized);
+		if (loaded == null) {
+			// This storage has to be loaded normally, which may conflict with the storages loaded before,
+			//  so the variables loaded from the snapshot have to go through the usual checks as well
+			coldStorageLoaded = true;
+			flushWarmVariables();
+			return false;
+		}
+
+		if (coldStorageLoaded) {
+			for (Entry<String, Object> variable : loaded.entrySet())
+				variableLoaded(variable.getKey(), variable.getValue(), storage);
+		} else {
+			WARM_VARIABLES.put(storage, loaded);
+			WARM_STAMPS.add(stamp);
+		}
+		return true;
+	}
+
+	/**
+	 * Deserializes the given variables.
+	 *
+	 * @return the deserialized variables, or {@code null} if any of them couldn't be deserialized.
+	 */
+	@Nullable
+	private static Map<String, Object> deserializeAll(Map<String, Value> serialized) {
+		Map<String, Object> variables = new HashMap<>((int) (serialized.size() / 0.75f) + 1);
+		for (Entry<String, Value> variable : serialized.entrySet()) {
+			Object value = Classes.deserialize(variable.getValue().type, variable.getValue().data);
+			if (value == null)
+				return null;
+			variables.put(variable.getKey(), value);
+		}
+		return variables;
+	}
+
+	/**
+	 * Passes the variables loaded from the snapshot so far through {@link #variableLoaded(String, Object, VariablesStorage)}.
+	 */
+	private static void flushWarmVariables() {
+		for (Entry<VariablesStorage, Map<String, Object>> storage : WARM_VARIABLES.entrySet()) {
+			for (Entry<String, Object> variable : storage.getValue().entrySet())
+				variableLoaded(variable.getKey(), variable.getValue(), storage.getKey());
+		}
+		WARM_VARIABLES.clear();
+		WARM_STAMPS.clear();
+	}
+
+	/**
+	 * Writes a snapshot of all variables, if enabled and supported by all storages.
+	 * The storages are closed first, as their stamps may change when closing.
+	 */
+	private static void writeSnapshot() {
+		if (!SkriptConfig.variablesSnapshot.value())
+			return;
+		for (VariablesStorage storage : STORAGES) {
+			if (storage.getSnapshotStamp() == null)
+				return;
+		}
+
+		long start = System.currentTimeMillis();
+		Map<VariablesStorage, Map<String, Value>> serialized = new LinkedHashMap<>();
+		for (VariablesStorage storage : STORAGES)
+			serialized.put(storage, new HashMap<>());
+		variablesLock.readLock().lock();
+		try {
+			for (Entry<String, Object> variable : variables.hashMap.entrySet()) {
+				VariablesStorage storage = getStorage(variable.getKey());
+				if (storage == null)
+					continue;
+				Value value = serialize(variable.getValue());
+				if (value != null)
+					serialized.get(storage).put(variable.getKey(), value);
+			}
+		} finally {
+			variablesLock.readLock().unlock();
+		}
+
+		// Closing twice is fine, the storages will ignore being closed again later
+		for (VariablesStorage storage : STORAGES)
+			storage.close();
+
+		Map<String, Map<String, Value>> storages = new LinkedHashMap<>();
+		for (Entry<VariablesStorage, Map<String, Value>> storage : serialized.entrySet()) {
+			String stamp = storage.getKey().getSnapshotStamp();
+			if (stamp == null)
+				return;
+			storages.put(stamp, storage.getValue());
+		}
+
+		File file = new File(Skript.getInstance().getDataFolder(), VariablesSnapshot.FILE_NAME);
+		try {
+			VariablesSnapshot.write(file, storages);
+			if (Skript.logHigh())
+				Skript.info("Wrote a snapshot of all variables in " + (System.currentTimeMillis() - start) + " ms");
+		} catch (IOException e) {
+			Skript.error("Could not write the variables snapshot: " + e.getLocalizedMessage());
+			//noinspection ResultOfMethodCallIgnored
+			file.delete();
+		}
+	}
+
 	/**
 	 * Stores loaded variables into the variables map
 	 * and the appropriate databases.
@@ -743,6 +1200,15 @@ public class Variables {
 	 */
 	@SuppressWarnings("null")
 	private static int onStoragesLoaded() {
+		// The variables can be used as they are if every storage was loaded from the same snapshot
+		VariablesSnapshot snapshot = Variables.snapshot;
+		boolean warm = snapshot != null && !coldStorageLoaded
+			&& new ArrayList<>(WARM_VARIABLES.keySet()).equals(STORAGES)
+			&& WARM_STAMPS.equals(snapshot.getStamps());
+		if (!warm)
+			flushWarmVariables();
+		Variables.snapshot = null;
+
 		if (loadConflicts > MAX_CONFLICT_WARNINGS)
 			Skript.warning("A total of " + loadConflicts + " variables were loaded more than once from different databases");
 
@@ -755,6 +1221,18 @@ public class Variables {
 
 			variablesLock.writeLock().lock();
 			try {
+				if (warm) {
+					// Each variable is known to belong to the storage it was loaded from
+					for (Map<String, Object> storageVariables : WARM_VARIABLES.values()) {
+						for (Entry<String, Object> variable : storageVariables.entrySet())
+							variables.setVariable(variable.getKey(), variable.getValue());
+					}
+					if (Skript.logHigh())
+						Skript.info("Loaded " + variables.hashMap.size() + " variables from the snapshot");
+					WARM_VARIABLES.clear();
+					WARM_STAMPS.clear();
+				}
+
 				// Calculate the amount of variables that don't have a storage
 				int unstoredVariables = 0;
 				for (Entry<String, NonNullPair<Object, VariablesStorage>> tv : tvs.entrySet()) {
@@ -813,20 +1291,10 @@ public class Variables {
 	}
 
 	/**
-	 * Serializes and adds the variable change to the {@link #saveQueue}.
-	 *
-	 * @param name the variable name.
-	 * @param value the value of the variable.
-	 */
-	private static void saveVariableChange(String name, @Nullable Object value) {
-		saveQueue.add(serialize(name, value));
-	}
-
-	/**
-	 * The queue of serialized variables that have not yet been written
+	 * The queue of batches of serialized variables that have not yet been written
 	 * to the storage.
 	 */
-	static final BlockingQueue<SerializedVariable> saveQueue = new LinkedBlockingQueue<>();
+	static final BlockingQueue<Collection<SerializedVariable>> saveQueue = new LinkedBlockingQueue<>();
 
 	/**
 	 * Whether the {@link #saveThread} should be stopped.
@@ -839,15 +1307,13 @@ public class Variables {
 	private static final Thread saveThread = Skript.newThread(() -> {
 		while (!closed) {
 			try {
-				// Save one variable change
-				SerializedVariable variable = saveQueue.take();
+				// Save one batch of variable changes
+				Collection<SerializedVariable> batch = saveQueue.take();
 
-				for (VariablesStorage variablesStorage : STORAGES) {
-					if (variablesStorage.accept(variable.name)) {
+				for (SerializedVariable variable : batch) {
+					VariablesStorage variablesStorage = getStorage(variable.name);
+					if (variablesStorage != null)
 						variablesStorage.save(variable);
-
-						break;
-					}
 				}
 			} catch (InterruptedException ignored) {}
 		}
@@ -878,6 +1344,10 @@ public class Variables {
 		// Then we can safely interrupt and stop the thread
 		closed = true;
 		saveThread.interrupt();
+
+		writeSnapshot();
+
+		VariableSubscription.shutdown();
 	}
 
 	/**
@@ -0,0 +1,571 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import ch.njol.skript.Skript;
+import ch.njol.skript.registrations.Classes;
+import ch.njol.skript.util.FileUtils;
+import ch.njol.skript.variables.SerializedVariable.Value;
+import org.bukkit.Bukkit;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes gzip compressed backups of the variables belonging to a {@link VariablesStorage},
+ * taken from a snapshot of the variables in memory instead of copying the storage's file.
+ * The snapshot is serialized on the main thread with {@link #snapshot()},
+ * as most values are not safe to serialize while the server uses them,
+ * and only compressed and written to the file with {@link #write(Snapshot)} asynchronously.
+ * <p>
+ * Backups are either full, or incremental, i.e. only containing the variables that changed
+ * since the previous backup of the same session. Incremental backups reference the backup
+ * they are based on, and {@link #read(File)} follows that chain back to the last full backup.
+ */
+public final class VariablesBackup {
+
+	/**
+	 * The file extension of backup files.
+	 */
+	public static final String EXTENSION = ".skbak";
+
+	private static final int MAGIC = 0x534B4256; // SKBV
+	private static final short FORMAT_VERSION = 1;
+
+	private static final byte END = 0;
+	private static final byte RECORD_SET = 1;
+	private static final byte RECORD_DELETE = 2;
+
+	/**
+	 * The maximum amount of incremental backups between two full backups,
+	 * which limits how many files have to be read to restore a backup.
+	 */
+	private static final int MAX_INCREMENTAL_CHAIN = 23;
+
+	private final VariablesStorage storage;
+
+	/**
+	 * The file of the {@link #storage}, used to name the backups and to find the storage again on restore.
+	 */
+	private final File storageFile;
+
+	/**
+	 * The folder backups are written to.
+	 */
+	private final File folder;
+
+	private final boolean incremental;
+
+	/**
+	 * The amount of full backups to keep, {@code 0} to keep all.
+	 */
+	private final int backupsToKeep;
+
+	/**
+	 * The maximum amount of bytes written per second, {@code 0} for no limit.
+	 */
+	private final long bytesPerSecond;
+
+	/**
+	 * The hashes of the serialized variables in the previous backup,
+	 * or {@code null} if the next backup has to be a full one.
+	 */
+	@Nullable
+	private Map<String, Long> previousHashes;
+
+	/**
+	 * The file name of the previous backup.
+	 */
+	@Nullable
+	private String previousBackup;
+
+	/**
+	 * The amount of incremental backups since the last full backup.
+	 */
+	private int chainLength;
+
+	/**
+	 * @param storage the storage to back up.
+	 * @param storageFile the storage's file.
+	 * @param incremental whether backups after the first may be incremental.
+	 * @param backupsToKeep the amount of full backups to keep, {@code 0} to keep all.
+	 * @param bytesPerSecond the maximum amount of bytes to write per second, {@code 0} for no limit.
+	 */
+	public VariablesBackup(VariablesStorage storage, File storageFile, boolean incremental, int backupsToKeep, long bytesPerSecond) {
+		this.storage = storage;
+		this.storageFile = storageFile;
+		this.folder = new File(storageFile.getParentFile(), "backups");
+		this.incremental = incremental;
+		this.backupsToKeep = backupsToKeep;
+		this.bytesPerSecond = bytesPerSecond;
+	}
+
+	/**
+	 * Serializes all variables of this backup's storage, so they can be written with {@link #write(Snapshot)}.
+	 * <p>
+	 * Must be called on the main thread, as the values are serialized.
+	 *
+	 * @return the serialized variables.
+	 */
+	public Snapshot snapshot() {
+		assert Bukkit.isPrimaryThread();
+
+		Map<String, Value> variables = new LinkedHashMap<>();
+		Variables.getReadLock().lock();
+		try {
+			for (Entry<String, Object> entry : Variables.getVariablesHashMap().entrySet()) {
+				String name = entry.getKey();
+				if (Variables.getStorage(name) != storage)
+					continue;
+				Value value = Classes.serialize(entry.getValue());
+				if (value != null)
+					variables.put(name, value);
+			}
+		} finally {
+			Variables.getReadLock().unlock();
+		}
+		return new Snapshot(variables);
+	}
+
+	/**
+	 * Writes a new backup from a snapshot and prunes old ones.
+	 * <p>
+	 * The writing may be throttled, so this should not be called on the main thread.
+	 *
+	 * @param snapshot a snapshot taken with {@link #snapshot()} of this backup.
+	 * @return the backup file.
+	 * @throws IOException if the backup could not be written.
+	 */
+	public synchronized File write(Snapshot snapshot) throws IOException {
+		Map<String, Value> variables = snapshot.variables;
+
+		// Hash all values, so the next incremental backup can tell what changed
+		Map<String, Long> hashes = new HashMap<>((int) (variables.size() / 0.75f) + 1);
+		for (Entry<String, Value> entry : variables.entrySet())
+			hashes.put(entry.getKey(), hash(entry.getValue()));
+
+		Map<String, Long> previousHashes = this.previousHashes;
+		boolean writeIncremental = incremental && previousHashes != null && previousBackup != null
+			&& chainLength < MAX_INCREMENTAL_CHAIN && new File(folder, previousBackup).exists();
+
+		if (!folder.exists() && !folder.mkdirs())
+			throw new IOException("Cannot create backups folder");
+
+		String name = getBaseName() + "_" + FileUtils.getBackupSuffix() + (writeIncremental ? "_incremental" : "") + EXTENSION;
+		File backup = new File(folder, name);
+		if (backup.exists())
+			throw new IOException("Backup file " + backup.getName() + " does already exist");
+
+		// Write to a temporary file first, so a failed backup is never used as the base of another one
+		File tempFile = new File(folder, name + ".temp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+				throttle(new FileOutputStream(tempFile))), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeShort(FORMAT_VERSION);
+			out.writeBoolean(writeIncremental);
+			out.writeUTF(storageFile.getName());
+			out.writeUTF(writeIncremental ? previousBackup : "");
+			out.writeLong(System.currentTimeMillis());
+
+			int records = 0;
+			for (Entry<String, Value> entry : variables.entrySet()) {
+				String variable = entry.getKey();
+				if (writeIncremental && hashes.get(variable).equals(previousHashes.get(variable)))
+					continue; // unchanged since the last backup
+				Value value = entry.getValue();
+				out.writeByte(RECORD_SET);
+				out.writeUTF(variable);
+				out.writeUTF(value.type);
+				out.writeInt(value.data.length);
+				out.write(value.data);
+				records++;
+			}
+			if (writeIncremental) {
+				for (String variable : previousHashes.keySet()) {
+					if (!hashes.containsKey(variable)) {
+						out.writeByte(RECORD_DELETE);
+						out.writeUTF(variable);
+						records++;
+					}
+				}
+			}
+
+			out.writeByte(END);
+			out.writeInt(records);
+		} catch (IOException e) {
+			//noinspection ResultOfMethodCallIgnored
+			tempFile.delete();
+			throw e;
+		}
+		FileUtils.move(tempFile, backup, false);
+
+		this.previousHashes = incremental ? hashes : null;
+		this.previousBackup = name;
+		this.chainLength = writeIncremental ? chainLength + 1 : 0;
+
+		prune();
+		return backup;
+	}
+
+	/**
+	 * Makes sure the next backup will be a full one,
+	 * e.g. because the variables were restored from a backup.
+	 */
+	public synchronized void reset() {
+		previousHashes = null;
+		previousBackup = null;
+		chainLength = 0;
+	}
+
+	/**
+	 * Replaces the variables of this backup's storage with the given contents of a backup.
+	 * Variables of the storage that are not in the backup are deleted.
+	 * <p>
+	 * Must be called on the main thread, as the values have to be deserialized.
+	 *
+	 * @param contents the contents of a backup of this storage.
+	 * @return the amount of variables restored.
+	 */
+	public int restore(Contents contents) {
+		assert Bukkit.isPrimaryThread();
+
+		// Deserialize everything first, so nothing is deleted if the backup cannot be loaded at all
+		Map<String, Object> restored = new HashMap<>((int) (contents.variables.size() / 0.75f) + 1);
+		int failed = 0;
+		for (Entry<String, Value> entry : contents.variables.entrySet()) {
+			Value value = entry.getValue();
+			Object deserialized = Classes.deserialize(value.type, value.data);
+			if (deserialized == null) {
+				failed++;
+				continue;
+			}
+			restored.put(entry.getKey(), deserialized);
+		}
+		if (failed > 0)
+			Skript.error(failed + " variable" + (failed == 1 ? "" : "s") + " in the backup could not be loaded and will not be restored");
+
+		Map<String, Object> changes = new LinkedHashMap<>();
+		Variables.getReadLock().lock();
+		try {
+			for (String name : Variables.getVariablesHashMap().keySet()) {
+				if (!restored.containsKey(name) && Variables.getStorage(name) == storage)
+					changes.put(name, null);
+			}
+		} finally {
+			Variables.getReadLock().unlock();
+		}
+		changes.putAll(restored);
+
+		Variables.setVariables(changes, null, false);
+
+		reset();
+		return restored.size();
+	}
+
+	/**
+	 * Deletes all backups older than the {@link #backupsToKeep} newest full backups.
+	 * Incremental backups are kept as long as the full backup they are based on.
+	 */
+	private void prune() {
+		if (backupsToKeep <= 0)
+			return;
+
+		List<File> backups = getBackups();
+		int fullBackups = 0;
+		for (int i = backups.size() - 1; i >= 0; i--) {
+			File backup = backups.get(i);
+			if (fullBackups >= backupsToKeep) {
+				//noinspection ResultOfMethodCallIgnored
+				backup.delete();
+			} else if (!backup.getName().endsWith("_incremental" + EXTENSION)) {
+				fullBackups++;
+			}
+		}
+	}
+
+	/**
+	 * @return this storage's backup files, from oldest to newest.
+	 */
+	public List<File> getBackups() {
+		String prefix = getBaseName() + "_";
+		File[] files = folder.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(EXTENSION));
+		if (files == null)
+			return new ArrayList<>();
+		// The date suffix makes the lexicographical order chronological
+		Arrays.sort(files, (first, second) -> first.getName().compareTo(second.getName()));
+		return new ArrayList<>(Arrays.asList(files));
+	}
+
+	/**
+	 * Finds the backup file with the given name among this storage's backups.
+	 *
+	 * @param name the file name, with or without {@link #EXTENSION}.
+	 * @return the backup file, or {@code null} if this storage has no such backup.
+	 */
+	@Nullable
+	public File getBackup(String name) {
+		if (!name.endsWith(EXTENSION))
+			name = name + EXTENSION;
+		for (File backup : getBackups()) {
+			if (backup.getName().equals(name))
+				return backup;
+		}
+		return null;
+	}
+
+	public VariablesStorage getStorage() {
+		return storage;
+	}
+
+	public File getStorageFile() {
+		return storageFile;
+	}
+
+	private String getBaseName() {
+		String name = storageFile.getName();
+		int dot = name.lastIndexOf('.');
+		return dot == -1 ? name : name.substring(0, dot);
+	}
+
+	/**
+	 * @return the backups of all storages that use compressed backups.
+	 */
+	public static List<VariablesBackup> getAll() {
+		List<VariablesBackup> backups = new ArrayList<>();
+		for (VariablesStorage storage : Variables.STORAGES) {
+			VariablesBackup backup = storage.getCompressedBackup();
+			if (backup != null)
+				backups.add(backup);
+		}
+		return backups;
+	}
+
+	private OutputStream throttle(OutputStream out) {
+		return bytesPerSecond > 0 ? new ThrottledOutputStream(out, bytesPerSecond) : out;
+	}
+
+	/**
+	 * Computes a 64-bit FNV-1a hash of a serialized value.
+	 */
+	private static long hash(Value value) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : value.type.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= 0xFF; // separates type and data
+		hash *= 0x100000001b3L;
+		for (byte b : value.data) {
+			hash ^= b;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * The serialized variables of a storage, taken on the main thread to be written asynchronously.
+	 */
+	public static final class Snapshot {
+
+		private final Map<String, Value> variables;
+
+		private Snapshot(Map<String, Value> variables) {
+			this.variables = variables;
+		}
+
+		/**
+		 * @return the amount of variables in this snapshot.
+		 */
+		public int size() {
+			return variables.size();
+		}
+
+	}
+
+	/**
+	 * The contents of a backup.
+	 */
+	public static final class Contents {
+
+		/**
+		 * The name of the file of the storage the backup was taken from.
+		 */
+		public final String storageFileName;
+
+		/**
+		 * The variables in the backup, with incremental backups already applied.
+		 */
+		public final Map<String, Value> variables;
+
+		private Contents(String storageFileName, Map<String, Value> variables) {
+			this.storageFileName = storageFileName;
+			this.variables = variables;
+		}
+
+	}
+
+	/**
+	 * Reads the given backup. If it is incremental, the backups it is based on are read as well.
+	 *
+	 * @param backup the backup file.
+	 * @return the contents of the backup.
+	 * @throws IOException if the backup, or one it is based on, is missing or corrupt.
+	 */
+	public static Contents read(File backup) throws IOException {
+		// Collect the chain of backups down to the full backup
+		List<File> chain = new ArrayList<>();
+		File current = backup;
+		String storageFileName = null;
+		while (true) {
+			if (chain.size() > MAX_INCREMENTAL_CHAIN + 1)
+				throw new IOException("The backup " + backup.getName() + " is based on too many incremental backups");
+			if (!current.isFile())
+				throw new IOException("The backup " + current.getName() + " does not exist");
+			chain.add(current);
+			try (DataInputStream in = open(current)) {
+				in.readBoolean();
+				String fileName = in.readUTF();
+				if (storageFileName == null)
+					storageFileName = fileName;
+				else if (!storageFileName.equals(fileName))
+					throw new IOException("The backup " + current.getName() + " belongs to a different database");
+				String base = in.readUTF();
+				if (base.isEmpty())
+					break;
+				current = new File(current.getParentFile(), base);
+			}
+		}
+
+		// Then apply them from oldest to newest
+		Map<String, Value> variables = new HashMap<>();
+		for (int i = chain.size() - 1; i >= 0; i--) {
+			try (DataInputStream in = open(chain.get(i))) {
+				in.readBoolean();
+				in.readUTF();
+				in.readUTF();
+				in.readLong();
+
+				int records = 0;
+				while (true) {
+					byte tag = in.readByte();
+					if (tag == END)
+						break;
+					String name = in.readUTF();
+					if (tag == RECORD_SET) {
+						String type = in.readUTF();
+						byte[] data = new byte[in.readInt()];
+						in.readFully(data);
+						variables.put(name, new Value(type, data));
+					} else if (tag == RECORD_DELETE) {
+						variables.remove(name);
+					} else {
+						throw new IOException("The backup " + chain.get(i).getName() + " is corrupt");
+					}
+					records++;
+				}
+				if (in.readInt() != records)
+					throw new IOException("The backup " + chain.get(i).getName() + " is incomplete");
+			}
+		}
+		assert storageFileName != null;
+		return new Contents(storageFileName, variables);
+	}
+
+	/**
+	 * Opens a backup and validates its header, up to the incremental flag.
+	 */
+	private static DataInputStream open(File backup) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(backup)), 1 << 16));
+		try {
+			if (in.readInt() != MAGIC)
+				throw new IOException(backup.getName() + " is not a variables backup");
+			short version = in.readShort();
+			if (version != FORMAT_VERSION)
+				throw new IOException(backup.getName() + " was written in an unsupported format (version " + version + ")");
+			return in;
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * An output stream that limits how many bytes are written per second,
+	 * so backups don't compete with the server for disk I/O.
+	 */
+	private static final class ThrottledOutputStream extends FilterOutputStream {
+
+		private final long bytesPerSecond;
+		private final long start = System.nanoTime();
+		private long written;
+
+		ThrottledOutputStream(OutputStream out, long bytesPerSecond) {
+			super(out);
+			this.bytesPerSecond = bytesPerSecond;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			written++;
+			throttle();
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			written += len;
+			throttle();
+		}
+
+		private void throttle() throws IOException {
+			long ahead = written * 1_000_000_000L / bytesPerSecond - (System.nanoTime() - start);
+			if (ahead <= 1_000_000)
+				return;
+			try {
+				Thread.sleep(ahead / 1_000_000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Backup interrupted");
+			}
+		}
+
+	}
+
+}
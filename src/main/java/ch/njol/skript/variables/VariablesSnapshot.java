@@ -0,0 +1,176 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import ch.njol.skript.Skript;
+import ch.njol.skript.util.FileUtils;
+import ch.njol.skript.variables.SerializedVariable.Value;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * An image of all global variables, written when the server stops
+ * and read instead of the {@link VariablesStorage storages} when it starts again,
+ * as long as no storage was modified in the meantime.
+ * <p>
+ * The snapshot contains the variables of each storage, along with the storage's
+ * {@link VariablesStorage#getSnapshotStamp() stamp} at the time the snapshot was written.
+ * The whole file is protected by a CRC32 checksum, a snapshot that fails the check is ignored.
+ */
+final class VariablesSnapshot {
+
+	static final String FILE_NAME = "variables.snapshot";
+
+	private static final int MAGIC = 0x534B5653; // "SKVS"
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * The Skript version the snapshot was written with,
+	 * as serialised values may not be compatible between versions.
+	 */
+	private final String skriptVersion;
+
+	/**
+	 * The stamps of the storages mapped to their serialised variables, in the order of the storages.
+	 */
+	private final Map<String, Map<String, Value>> storages;
+
+	private VariablesSnapshot(String skriptVersion, Map<String, Map<String, Value>> storages) {
+		this.skriptVersion = skriptVersion;
+		this.storages = storages;
+	}
+
+	/**
+	 * @return the stamps of the storages the snapshot was written for, in order.
+	 */
+	List<String> getStamps() {
+		return new ArrayList<>(storages.keySet());
+	}
+
+	/**
+	 * @param stamp the current {@link VariablesStorage#getSnapshotStamp() stamp} of a storage.
+	 * @return the serialised variables of the storage, or {@code null} if the snapshot
+	 * was not written for a storage with the given stamp.
+	 */
+	@Nullable
+	Map<String, Value> getVariables(String stamp) {
+		if (!skriptVersion.equals(Skript.getVersion().toString()))
+			return null;
+		return storages.get(stamp);
+	}
+
+	/**
+	 * Writes a snapshot of the given variables.
+	 *
+	 * @param file the file to write to. The snapshot is written to a temporary file first,
+	 *                which then replaces this file.
+	 * @param storages the stamps of the storages mapped to their variables, in the order of the storages.
+	 */
+	static void write(File file, Map<String, ? extends Map<String, Value>> storages) throws IOException {
+		File temp = new File(file.getParentFile(), file.getName() + ".temp");
+		CRC32 checksum = new CRC32();
+		try (FileOutputStream fileStream = new FileOutputStream(temp);
+			 DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileStream), checksum))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(Skript.getVersion().toString());
+			out.writeInt(storages.size());
+			for (Map.Entry<String, ? extends Map<String, Value>> storage : storages.entrySet()) {
+				out.writeUTF(storage.getKey());
+				out.writeInt(storage.getValue().size());
+				for (Map.Entry<String, Value> variable : storage.getValue().entrySet()) {
+					out.writeUTF(variable.getKey());
+					out.writeUTF(variable.getValue().type);
+					out.writeInt(variable.getValue().data.length);
+					out.write(variable.getValue().data);
+				}
+			}
+			// the checksum itself is not part of the checked data
+			long value = checksum.getValue();
+			out.flush();
+			new DataOutputStream(fileStream).writeLong(value);
+			fileStream.getFD().sync();
+		}
+		FileUtils.move(temp, file, true);
+	}
+
+	/**
+	 * Reads a snapshot.
+	 *
+	 * @param file the file to read.
+	 * @return the snapshot, or {@code null} if the file is not a valid snapshot.
+	 */
+	@Nullable
+	static VariablesSnapshot read(File file) throws IOException {
+		long fileLength = file.length();
+		CRC32 checksum = new CRC32();
+		try (FileInputStream fileStream = new FileInputStream(file);
+			 BufferedInputStream buffered = new BufferedInputStream(fileStream)) {
+			DataInputStream in = new DataInputStream(new CheckedInputStream(buffered, checksum));
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+				return null;
+			String skriptVersion = in.readUTF();
+			int storageCount = in.readInt();
+			Map<String, Map<String, Value>> storages = new LinkedHashMap<>();
+			for (int i = 0; i < storageCount; i++) {
+				String stamp = in.readUTF();
+				int variableCount = in.readInt();
+				if (variableCount < 0 || variableCount > fileLength)
+					return null;
+				Map<String, Value> variables = new HashMap<>((int) (variableCount / 0.75f) + 1);
+				for (int j = 0; j < variableCount; j++) {
+					String name = in.readUTF();
+					String type = in.readUTF();
+					int length = in.readInt();
+					if (length < 0 || length > fileLength)
+						return null;
+					byte[] data = new byte[length];
+					in.readFully(data);
+					variables.put(name, new Value(type, data));
+				}
+				storages.put(stamp, Collections.unmodifiableMap(variables));
+			}
+			long expected = checksum.getValue();
+			if (new DataInputStream(buffered).readLong() != expected)
+				return null;
+			return new VariablesSnapshot(skriptVersion, storages);
+		} catch (EOFException e) {
+			return null; // truncated
+		}
+	}
+
+}
@@ -21,9 +21,11 @@ package ch.njol.skript.variables;
 import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
+import org.bukkit.Bukkit;
 import org.eclipse.jdt.annotation.Nullable;
 
 import ch.njol.skript.Skript;
@@ -59,6 +61,16 @@ public abstract class VariablesStorage implements Closeable {
 	 */
 	private static final int FIRST_WARNING = 300;
 
+	/**
+	 * The default value of the {@code durability interval} entry, in milliseconds.
+	 */
+	private static final long DEFAULT_DURABILITY_INTERVAL = 1000;
+
+	/**
+	 * The default value of the {@code group commit size} entry.
+	 */
+	private static final int DEFAULT_GROUP_COMMIT_SIZE = 100;
+
 	final LinkedBlockingQueue<SerializedVariable> changesQueue = new LinkedBlockingQueue<>(QUEUE_SIZE);
 
 	/**
@@ -85,6 +97,18 @@ public abstract class VariablesStorage implements Closeable {
 	@Nullable
 	private Pattern variableNamePattern;
 
+	/**
+	 * The policy deciding when written changes are forced to disk,
+	 * as configured by the {@code durability} entry.
+	 */
+	protected DurabilityPolicy durability = DurabilityPolicy.NONE;
+
+	/**
+	 * Whether the variables of this storage were loaded from the {@link VariablesSnapshot snapshot}
+	 * written when the server stopped, in which case {@link #load_i(SectionNode)} must not load them again.
+	 */
+	private boolean warmStarted;
+
 	/**
 	 * The thread used for writing variables to the storage.
 	 */
@@ -106,15 +130,10 @@ public abstract class VariablesStorage implements Closeable {
 		writeThread = Skript.newThread(() -> {
 			while (!closed) {
 				try {
-					// Take a variable from the queue and process it
-					SerializedVariable variable = changesQueue.take();
-					Value value = variable.value;
-
-					// Actually save the variable
-					if (value != null)
-						save(variable.name, value.type, value.data);
-					else
-						save(variable.name, null, null);
+					// Take a variable from the queue, waiting no longer than the durability policy allows
+					long timeout = durability.getSyncTimeout(System.currentTimeMillis());
+					SerializedVariable variable = timeout < 0 ? changesQueue.take() : changesQueue.poll(timeout, TimeUnit.MILLISECONDS);
+					writeChange(variable);
 				} catch (InterruptedException ignored) {
 					// Ignored as the `closed` field will indicate whether the thread actually needs to stop
 				}
@@ -189,6 +208,9 @@ public abstract class VariablesStorage implements Closeable {
 			return false;
 		}
 
+		if (!loadDurability(sectionNode))
+			return false;
+
 		if (requiresFile()) {
 			// Initialize file
 			String fileName = getValue(sectionNode, "file");
@@ -221,6 +243,9 @@ public abstract class VariablesStorage implements Closeable {
 				return false;
 			}
 
+			if (!loadBackupFormat(sectionNode))
+				return false;
+
 			// Set the backup interval, if present & enabled
 			if (!"0".equals(getValue(sectionNode, "backup interval"))) {
 				Timespan backupInterval = getValue(sectionNode, "backup interval", Timespan.class);
@@ -230,6 +255,9 @@ public abstract class VariablesStorage implements Closeable {
 			}
 		}
 
+		// Use the variables from the snapshot if this storage wasn't modified since it was written
+		warmStarted = Variables.warmStart(this);
+
 		// Load the entries custom to the variable storage
 		if (!load_i(sectionNode))
 			return false;
@@ -240,6 +268,184 @@ public abstract class VariablesStorage implements Closeable {
 		return true;
 	}
 
+	/**
+	 * Loads the optional {@code durability}, {@code durability interval}
+	 * and {@code group commit size} entries into {@link #durability}.
+	 *
+	 * @param sectionNode the section node.
+	 * @return whether the entries were valid.
+	 */
+	private boolean loadDurability(SectionNode sectionNode) {
+		String rawMode = sectionNode.getValue("durability");
+		if (rawMode == null)
+			return true; // Not configured, keep the legacy behaviour
+
+		DurabilityPolicy.Mode mode = DurabilityPolicy.Mode.parse(rawMode);
+		if (mode == null) {
+			Skript.error("Invalid durability '" + rawMode + "' in the database '" + databaseName + "'. " +
+				"Allowed values are 'none', 'interval' and 'group-commit'.");
+			return false;
+		}
+		if (mode == DurabilityPolicy.Mode.NONE)
+			return true;
+
+		long interval = DEFAULT_DURABILITY_INTERVAL;
+		if (sectionNode.getValue("durability interval") != null) {
+			Timespan timespan = getValue(sectionNode, "durability interval", Timespan.class);
+			if (timespan == null)
+				return false;
+			interval = timespan.getMilliSeconds();
+		}
+
+		int maxRecords = 0;
+		if (mode == DurabilityPolicy.Mode.GROUP_COMMIT) {
+			maxRecords = DEFAULT_GROUP_COMMIT_SIZE;
+			if (sectionNode.getValue("group commit size") != null) {
+				Integer size = getValue(sectionNode, "group commit size", Integer.class);
+				if (size == null)
+					return false;
+				maxRecords = size;
+			}
+		}
+
+		if (interval <= 0 && maxRecords <= 0) {
+			Skript.error("The durability '" + mode + "' of the database '" + databaseName + "' " +
+				"needs a positive 'durability interval' or 'group commit size'");
+			return false;
+		}
+
+		durability = new DurabilityPolicy(mode, interval, maxRecords);
+		if (Skript.logVeryHigh())
+			Skript.info("Using durability " + durability + " for the database '" + databaseName + "'");
+		return true;
+	}
+
+	/**
+	 * Loads the optional {@code backup format}, {@code backups to keep}
+	 * and {@code backup speed limit} entries into {@link #compressedBackup}.
+	 *
+	 * @param sectionNode the section node.
+	 * @return whether the entries were valid.
+	 */
+	private boolean loadBackupFormat(SectionNode sectionNode) {
+		assert file != null;
+		String format = sectionNode.getValue("backup format");
+		if (format == null || format.equalsIgnoreCase("copy"))
+			return true; // Not configured, keep copying the file
+
+		boolean incremental;
+		if (format.equalsIgnoreCase("compressed")) {
+			incremental = false;
+		} else if (format.equalsIgnoreCase("incremental")) {
+			incremental = true;
+		} else {
+			Skript.error("Invalid backup format '" + format + "' in the database '" + databaseName + "'. " +
+				"Allowed values are 'copy', 'compressed' and 'incremental'.");
+			return false;
+		}
+
+		int backupsToKeep = 0;
+		if (sectionNode.getValue("backups to keep") != null) {
+			Integer keep = getValue(sectionNode, "backups to keep", Integer.class);
+			if (keep == null)
+				return false;
+			backupsToKeep = Math.max(0, keep);
+		}
+
+		long bytesPerSecond = 0;
+		if (sectionNode.getValue("backup speed limit") != null) {
+			Integer kilobytesPerSecond = getValue(sectionNode, "backup speed limit", Integer.class);
+			if (kilobytesPerSecond == null)
+				return false;
+			bytesPerSecond = Math.max(0, kilobytesPerSecond) * 1024L;
+		}
+
+		compressedBackup = new VariablesBackup(this, file, incremental, backupsToKeep, bytesPerSecond);
+		return true;
+	}
+
+	/**
+	 * Gets the compressed backups of this storage.
+	 *
+	 * @return the compressed backups, or {@code null} if the storage is backed up by copying its file.
+	 */
+	@Nullable
+	public VariablesBackup getCompressedBackup() {
+		return compressedBackup;
+	}
+
+	/**
+	 * Gets the durability policy of this storage.
+	 *
+	 * @return the durability policy.
+	 */
+	public DurabilityPolicy getDurability() {
+		return durability;
+	}
+
+	/**
+	 * Gets the amount of variable changes that could be lost if the server crashed now,
+	 * i.e. changes that are still queued plus changes that were written but not yet synced.
+	 * <p>
+	 * Written changes are only tracked if the storage is using a {@link DurabilityPolicy.Mode#NONE non-none}
+	 * {@link #getDurability() durability}, as they are otherwise never explicitly synced.
+	 *
+	 * @return the amount of unflushed changes.
+	 */
+	public int getUnflushedChanges() {
+		return changesQueue.size() + durability.getUnsyncedChanges();
+	}
+
+	/**
+	 * Forces all changes written by {@link #save(String, String, byte[])} to durable storage,
+	 * e.g. by syncing a file to disk or committing a transaction.
+	 * <p>
+	 * Called from the {@link #writeThread} as dictated by {@link #durability},
+	 * and once more when the storage is {@link #close() closed}.
+	 * The default implementation does nothing.
+	 *
+	 * @return whether the changes are now durable.
+	 */
+	protected boolean sync() {
+		return true;
+	}
+
+	/**
+	 * Writes a change taken from the {@link #changesQueue},
+	 * and syncs the written changes if the {@link #durability} policy demands it.
+	 * Called from the {@link #writeThread}.
+	 *
+	 * @param variable the change, or {@code null} if waiting for a change timed out.
+	 */
+	final void writeChange(@Nullable SerializedVariable variable) {
+		if (variable != null) {
+			Value value = variable.value;
+
+			// Actually save the variable
+			boolean saved;
+			if (value != null)
+				saved = save(variable.name, value.type, value.data);
+			else
+				saved = save(variable.name, null, null);
+
+			if (saved)
+				durability.recordWritten(System.currentTimeMillis());
+		}
+
+		// Sync if the durability policy demands it, also after a timeout without new changes
+		if (durability.shouldSync(System.currentTimeMillis()))
+			syncChanges();
+	}
+
+	/**
+	 * Calls {@link #sync()} and updates the {@link #durability} accounting.
+	 */
+	final void syncChanges() {
+		int unsynced = durability.getUnsyncedChanges();
+		boolean synced = sync();
+		durability.synced(System.currentTimeMillis(), synced ? unsynced : 0);
+	}
+
 	/**
 	 * Loads variables stored here.
 	 *
@@ -248,6 +454,42 @@ public abstract class VariablesStorage implements Closeable {
 	 */
 	protected abstract boolean load_i(SectionNode n);
 
+	/**
+	 * @return whether the variables of this storage were already loaded from the snapshot
+	 * written when the server stopped. If so, {@link #load_i(SectionNode)} should only connect to the storage.
+	 */
+	protected final boolean isWarmStarted() {
+		return warmStarted;
+	}
+
+	/**
+	 * Gets a stamp identifying the current contents of this storage, e.g. its file's size and modification time.
+	 * If the stamp is the same when the server starts as it was when the server stopped,
+	 * the variables of this storage are loaded from a snapshot instead.
+	 * <p>
+	 * Storages that can be modified from elsewhere while the server is running,
+	 * or can't tell whether they were modified, must return {@code null}.
+	 * This is the default.
+	 *
+	 * @return the stamp, or {@code null} if this storage doesn't support being loaded from a snapshot.
+	 */
+	@Nullable
+	protected String getModificationStamp() {
+		return null;
+	}
+
+	/**
+	 * @return the {@link #getModificationStamp() modification stamp} of this storage combined
+	 * with its configuration, or {@code null} if this storage doesn't support being loaded from a snapshot.
+	 */
+	@Nullable
+	final String getSnapshotStamp() {
+		String stamp = getModificationStamp();
+		if (stamp == null)
+			return null;
+		return databaseName + "|" + getClass().getName() + "|" + variableNamePattern + "|" + stamp;
+	}
+
 	/**
 	 * Called after all storages have been loaded, and variables
 	 * have been redistributed if settings have changed.
@@ -302,6 +544,12 @@ public abstract class VariablesStorage implements Closeable {
 	@Nullable
 	protected Task backupTask = null;
 
+	/**
+	 * The compressed backups of this storage, or {@code null} if backups copy the {@link #file}.
+	 */
+	@Nullable
+	protected VariablesBackup compressedBackup = null;
+
 	/**
 	 * Starts the backup task, with the given backup interval.
 	 *
@@ -312,9 +560,24 @@ public abstract class VariablesStorage implements Closeable {
 		if (file == null || backupInterval.getTicks() == 0)
 			return;
 
-		backupTask = new Task(Skript.getInstance(), backupInterval.getTicks(), backupInterval.getTicks(), true) {
+		VariablesBackup compressedBackup = this.compressedBackup;
+		// compressed backups serialize their snapshot on the main thread, and write it asynchronously
+		backupTask = new Task(Skript.getInstance(), backupInterval.getTicks(), backupInterval.getTicks(), compressedBackup == null) {
 			@Override
 			public void run() {
+				if (compressedBackup != null) {
+					// Backups are written from a snapshot of the variables, the storage can stay connected
+					VariablesBackup.Snapshot snapshot = compressedBackup.snapshot();
+					Bukkit.getScheduler().runTaskAsynchronously(Skript.getInstance(), () -> {
+						try {
+							compressedBackup.write(snapshot);
+						} catch (IOException e) {
+							Skript.error("Automatic variables backup failed: " + e.getLocalizedMessage());
+						}
+					});
+					return;
+				}
+
 				synchronized (connectionLock) {
 					// Disconnect,
 					disconnect();
@@ -418,6 +681,9 @@ public abstract class VariablesStorage implements Closeable {
 	 */
 	@Override
 	public void close() {
+		if (closed)
+			return;
+
 		// Wait for all variable changes to be processed
 		while (changesQueue.size() > 0) {
 			try {
@@ -428,6 +694,10 @@ public abstract class VariablesStorage implements Closeable {
 		// Now safely close storage and interrupt thread
 		closed = true;
 		writeThread.interrupt();
+
+		// Make the last written changes durable
+		if (durability.getUnsyncedChanges() > 0)
+			syncChanges();
 	}
 
 	/**
@@ -19,11 +19,25 @@
 package ch.njol.skript.variables;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 
+import ch.njol.skript.variables.DurabilityPolicy.Mode;
+
 public class FlatFileStorageTest {
 
 	@Test
@@ -62,4 +76,163 @@ public class FlatFileStorageTest {
 		}
 	}
 
+	/**
+	 * Writes variables through a storage with each durability policy, simulates a crash at several
+	 * offsets of the resulting file, and checks which variables survive reconnecting to it:
+	 * all complete records, at least all synced records, and nothing that follows a partial record.
+	 */
+	@Test
+	public void testTornTailRecovery() throws IOException {
+		Random random = new Random(42);
+		List<SerializedVariable> variables = new ArrayList<>();
+		for (int i = 0; i < 24; i++) {
+			if (i % 5 == 4) {
+				variables.add(new SerializedVariable("deleted::" + i, null));
+				continue;
+			}
+			byte[] value = new byte[1 + random.nextInt(12)];
+			random.nextBytes(value);
+			variables.add(new SerializedVariable("var, number " + i, new SerializedVariable.Value("long", value)));
+		}
+
+		for (Mode mode : Mode.values()) {
+			Path directory = Files.createTempDirectory("skript-torn-tail");
+			try {
+				File file = directory.resolve("variables.csv").toFile();
+
+				// Write through the storage, remembering where each record ends and how many were synced by then
+				FlatFileStorage storage = new FlatFileStorage("torn tail test");
+				storage.file = file;
+				if (mode == Mode.GROUP_COMMIT) {
+					storage.durability = new DurabilityPolicy(mode, 0, 5);
+				} else if (mode == Mode.INTERVAL) {
+					storage.durability = new DurabilityPolicy(mode, 1, 0);
+				}
+				assertTrue(storage.connect());
+				long[] ends = new long[variables.size()];
+				int[] synced = new int[variables.size()];
+				for (int i = 0; i < variables.size(); i++) {
+					storage.writeChange(variables.get(i));
+					ends[i] = file.length();
+					synced[i] = mode == Mode.NONE ? 0 : i + 1 - storage.getDurability().getUnsyncedChanges();
+				}
+				storage.disconnect();
+				if (mode == Mode.GROUP_COMMIT)
+					assertEquals("group commit did not sync every 5 records", 20, synced[synced.length - 1]);
+				byte[] written = Files.readAllBytes(file.toPath());
+
+				// Crash just before, at and after each record boundary, and in the middle of each record
+				for (int i = 0; i < variables.size(); i++) {
+					long start = i == 0 ? 0 : ends[i - 1];
+					for (long cut : new long[] {start + 1, (start + ends[i]) / 2, ends[i] - 1, ends[i]}) {
+						int complete = 0;
+						while (complete < ends.length && ends[complete] <= cut)
+							complete++;
+						// Only changes made after the last sync may be lost
+						int mustSurvive = complete == 0 ? 0 : synced[complete - 1];
+						assertSurvivors(mode + " cut at " + cut, directory, written, (int) cut, variables, complete, mustSurvive);
+					}
+				}
+			} finally {
+				delete(directory);
+			}
+		}
+	}
+
+	/**
+	 * Truncates the file a storage wrote at the given offset, reconnects to it, appends another variable,
+	 * and checks that the file contains the complete records in the order they were written, followed by the new one.
+	 * The record that was being written when the crash happened may survive if it was cut short between two hex digits,
+	 * as it can't be told apart from a complete record then.
+	 */
+	private static void assertSurvivors(String message, Path directory, byte[] written, int cut,
+			List<SerializedVariable> variables, int complete, int mustSurvive) throws IOException {
+		File file = directory.resolve("variables.csv").toFile();
+		Files.write(file.toPath(), Arrays.copyOf(written, cut));
+
+		FlatFileStorage storage = new FlatFileStorage("torn tail test");
+		storage.file = file;
+		storage.repairTornTail();
+		// backups are named by the second they were made in, so they would clash with the next one
+		Path backups = directory.resolve("backups");
+		if (Files.exists(backups))
+			delete(backups);
+		assertTrue(message + ": could not reconnect", storage.connect());
+		SerializedVariable added = new SerializedVariable("added after the crash", new SerializedVariable.Value("long", new byte[] {1, 2, 3}));
+		storage.writeChange(added);
+		storage.disconnect();
+
+		List<String> lines = Files.readAllLines(file.toPath(), FlatFileStorage.FILE_CHARSET);
+		lines.removeIf(line -> line.trim().isEmpty()); // skipped when loading
+		int survivors = lines.size() - 1;
+		assertTrue(message + ": lost complete records", survivors >= complete);
+		assertTrue(message + ": lost synced records", survivors >= mustSurvive);
+		assertTrue(message + ": kept more than the record being written", survivors <= complete + 1);
+		for (int i = 0; i < survivors; i++)
+			assertRecord(message, lines.get(i), variables.get(i), i == complete);
+		assertRecord(message, lines.get(survivors), added, false);
+	}
+
+	/**
+	 * Checks that a line of the file is the record of the given variable.
+	 *
+	 * @param cutShort whether the line is the record that was being written when the crash happened,
+	 *                 whose value may be cut short.
+	 */
+	private static void assertRecord(String message, String line, SerializedVariable variable, boolean cutShort) {
+		String[] split = FlatFileStorage.splitCSV(line);
+		assertNotNull(message + ": unreadable line '" + line + "'", split);
+		assertEquals(message + ": incomplete line '" + line + "'", 3, split.length);
+		assertEquals(message, variable.name, split[0]);
+
+		SerializedVariable.Value value = variable.value;
+		assertEquals(message, value == null ? "null" : value.type, split[1]);
+		String expected = value == null ? "" : FlatFileStorage.encode(value.data);
+		if (cutShort) {
+			assertTrue(message + ": '" + line + "' is not a part of the record being written", expected.startsWith(split[2]));
+		} else {
+			assertEquals(message, expected, split[2]);
+		}
+	}
+
+	private static void delete(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			//noinspection ResultOfMethodCallIgnored
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		}
+	}
+
+	@Test
+	public void testGroupCommitAccounting() {
+		DurabilityPolicy policy = new DurabilityPolicy(Mode.GROUP_COMMIT, 100, 3);
+		assertEquals(-1, policy.getSyncTimeout(0));
+
+		// Record limit
+		assertFalse(policy.recordWritten(0));
+		assertFalse(policy.recordWritten(10));
+		assertEquals(90, policy.getSyncTimeout(10));
+		assertTrue(policy.recordWritten(20));
+		assertEquals(3, policy.getUnsyncedChanges());
+		policy.synced(20, 3);
+		assertEquals(0, policy.getUnsyncedChanges());
+
+		// Latency limit, measured from the first unsynced change
+		assertFalse(policy.recordWritten(50));
+		assertFalse(policy.shouldSync(149));
+		assertTrue(policy.shouldSync(150));
+		assertEquals(0, policy.getSyncTimeout(200));
+
+		// A failed sync is retried after the interval
+		policy.synced(200, 0);
+		assertEquals(1, policy.getUnsyncedChanges());
+		assertFalse(policy.shouldSync(250));
+		assertTrue(policy.shouldSync(300));
+
+		DurabilityPolicy interval = new DurabilityPolicy(Mode.INTERVAL, 100, 0);
+		assertFalse(interval.recordWritten(System.currentTimeMillis()));
+		assertEquals(0, DurabilityPolicy.NONE.getUnsyncedChanges());
+		assertFalse(DurabilityPolicy.NONE.recordWritten(0));
+		assertEquals(0, DurabilityPolicy.NONE.getUnsyncedChanges());
+	}
+
 }
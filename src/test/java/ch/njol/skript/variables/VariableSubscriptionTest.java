@@ -0,0 +1,136 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import ch.njol.skript.variables.VariableSubscription.OverflowPolicy;
+
+public class VariableSubscriptionTest {
+
+	/**
+	 * A listener that blocks its first call until released,
+	 * so changes can be published while it is busy.
+	 */
+	private static class BlockingListener implements VariableChangeListener {
+
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch done;
+		final List<Map<String, Object>> calls = new ArrayList<>();
+		final AtomicInteger dropped = new AtomicInteger();
+
+		BlockingListener(int expectedCalls) {
+			done = new CountDownLatch(expectedCalls);
+		}
+
+		@Override
+		public void onChanges(Map<String, Object> changes) {
+			calls.add(new LinkedHashMap<>(changes));
+			entered.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			done.countDown();
+		}
+
+		@Override
+		public void onOverflow(int dropped) {
+			this.dropped.addAndGet(dropped);
+		}
+
+	}
+
+	@Test
+	public void testCoalescing() throws InterruptedException {
+		BlockingListener listener = new BlockingListener(2);
+		VariableSubscription subscription = new VariableSubscription("test::", 16, OverflowPolicy.DROP_OLDEST, listener);
+		subscription.publish("test::first", 1);
+		assertTrue(listener.entered.await(5, TimeUnit.SECONDS));
+
+		subscription.publish("test::a", 1);
+		subscription.publish("test::b", 2);
+		subscription.publish("test::a", 3);
+		subscription.publish("test::b", null);
+		listener.release.countDown();
+		assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+
+		assertEquals(2, listener.calls.size());
+		Map<String, Object> changes = listener.calls.get(1);
+		assertEquals(Arrays.asList("test::a", "test::b"), new ArrayList<>(changes.keySet()));
+		assertEquals(3, changes.get("test::a"));
+		assertNull(changes.get("test::b"));
+		assertEquals(0, listener.dropped.get());
+	}
+
+	@Test
+	public void testBlockedListenerDoesNotDelayOthers() throws InterruptedException {
+		BlockingListener blocked = new BlockingListener(1);
+		VariableSubscription blockedSubscription = new VariableSubscription("", 16, OverflowPolicy.DROP_OLDEST, blocked);
+		blockedSubscription.publish("blocked", 1);
+		assertTrue(blocked.entered.await(5, TimeUnit.SECONDS));
+
+		CountDownLatch delivered = new CountDownLatch(1);
+		VariableSubscription subscription = new VariableSubscription("", 16, OverflowPolicy.DROP_OLDEST, changes -> delivered.countDown());
+		subscription.publish("other", 2);
+		try {
+			assertTrue("a blocked listener delayed another subscription", delivered.await(5, TimeUnit.SECONDS));
+		} finally {
+			blocked.release.countDown();
+		}
+		assertTrue(blocked.done.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testOverflow() throws InterruptedException {
+		for (OverflowPolicy policy : OverflowPolicy.values()) {
+			BlockingListener listener = new BlockingListener(2);
+			VariableSubscription subscription = new VariableSubscription("", 4, policy, listener);
+			subscription.publish("first", 0);
+			assertTrue(listener.entered.await(5, TimeUnit.SECONDS));
+
+			for (int i = 1; i <= 6; i++)
+				subscription.publish("var" + i, i);
+			listener.release.countDown();
+			assertTrue(listener.done.await(5, TimeUnit.SECONDS));
+
+			assertEquals(2, listener.dropped.get());
+			List<String> expected = policy == OverflowPolicy.DROP_OLDEST
+				? Arrays.asList("var3", "var4", "var5", "var6")
+				: Arrays.asList("var1", "var2", "var3", "var4");
+			assertEquals(expected, new ArrayList<>(listener.calls.get(1).keySet()));
+		}
+	}
+
+}
@@ -0,0 +1,118 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package org.skriptlang.skript.test.tests.lang;
+
+import ch.njol.skript.ScriptLoader;
+import ch.njol.skript.Skript;
+import ch.njol.skript.lang.function.Functions;
+import ch.njol.skript.log.LogEntry;
+import ch.njol.skript.log.RetainingLogHandler;
+import org.junit.Test;
+import org.skriptlang.skript.lang.script.Script;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Loads cached functions whose body could have side effects or a different result every time,
+ * which have to fail to parse, as their body isn't executed when their result is cached.
+ * Each rejected line is also loaded in a function that isn't cached, where it has to parse.
+ */
+public class CachedFunctionValidationTest {
+
+	private static final String FILE_NAME = "cached function validation test.sk";
+
+	@Test
+	public void testSideEffectsRejected() throws IOException {
+		assertRejected("set {_x} to junitSideEffect()");
+		assertRejected("return junitSideEffect()");
+		assertRejected("set {cached function validation test} to {_n}");
+		assertRejected("broadcast \"%{_n}%\"");
+	}
+
+	@Test
+	public void testRandomnessRejected() throws IOException {
+		assertRejected("chance of 50%:\n\t\treturn 2");
+		assertRejected("set {_x} to a random integer between 1 and 10");
+		assertRejected("return a random number between 0 and {_n}");
+		assertRejected("set {_x::*} to shuffled (1, 2 and 3)");
+	}
+
+	@Test
+	public void testPureAllowed() throws IOException {
+		assertAllowed("set {_x} to sqrt({_n}) + junitCached({_n})");
+		assertAllowed("if {cached function validation test} is set:\n\t\treturn {_n} * 2");
+	}
+
+	private static void assertRejected(String line) throws IOException {
+		assertEquals("'" + line + "' is not valid in a function", Collections.emptyList(), load(line, false));
+		assertNotEquals("'" + line + "' was allowed in a cached function", Collections.emptyList(), load(line, true));
+	}
+
+	private static void assertAllowed(String line) throws IOException {
+		assertEquals("'" + line + "' was not allowed in a cached function", Collections.emptyList(), load(line, true));
+	}
+
+	/**
+	 * Loads a script with a function containing the given line, and unloads it again.
+	 *
+	 * @param cached Whether the function is cached.
+	 * @return The errors printed while loading the script.
+	 */
+	private static List<String> load(String line, boolean cached) throws IOException {
+		String code = "local function junitSideEffect() :: number:\n"
+			+ "\tbroadcast \"side effect\"\n"
+			+ "\treturn 1\n"
+			+ "\n"
+			+ "local cached function junitCached(n: number) :: number:\n"
+			+ "\treturn {_n} + 1\n"
+			+ "\n"
+			+ "local " + (cached ? "cached " : "") + "function junitValidated(n: number) :: number:\n"
+			+ "\t" + line + "\n"
+			+ "\treturn 1\n";
+		File file = new File(Skript.getInstance().getScriptsFolder(), FILE_NAME).getCanonicalFile();
+		Files.write(file.toPath(), code.getBytes(StandardCharsets.UTF_8));
+		RetainingLogHandler log = new RetainingLogHandler();
+		try {
+			ScriptLoader.loadScripts(file, log).join();
+
+			Script script = ScriptLoader.getScript(file);
+			assertNotNull("the script was not loaded", script);
+			ScriptLoader.unloadScript(script);
+			assertNull("the functions of the script were not unloaded", Functions.getSignature("junitValidated", FILE_NAME));
+		} finally {
+			Files.delete(file.toPath());
+		}
+
+		return log.getErrors().stream()
+			.map(LogEntry::getMessage)
+			.collect(Collectors.toList());
+	}
+
+}
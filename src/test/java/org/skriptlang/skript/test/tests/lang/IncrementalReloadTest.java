@@ -0,0 +1,144 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package org.skriptlang.skript.test.tests.lang;
+
+import ch.njol.skript.ScriptLoader;
+import ch.njol.skript.Skript;
+import ch.njol.skript.SkriptConfig;
+import ch.njol.skript.config.Config;
+import ch.njol.skript.lang.SkriptEvent;
+import ch.njol.skript.structures.StructEvent;
+import ch.njol.skript.test.runner.SkriptJUnitTest;
+import ch.njol.skript.variables.Variables;
+import ch.njol.util.OpenCloseable;
+import org.bukkit.Bukkit;
+import org.bukkit.event.world.WorldSaveEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.skriptlang.skript.lang.script.Script;
+import org.skriptlang.skript.lang.structure.Structure;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Reloads a script with incremental reloading enabled after adding lines above its events and changing one of them,
+ * to make sure the unchanged events are kept with their new line numbers,
+ * and all events are still executed in the order of the script.
+ */
+public class IncrementalReloadTest extends SkriptJUnitTest {
+
+	private static final String FILE_NAME = "incremental reload test.sk";
+	private static final String VARIABLE = "incremental reload test::*";
+
+	private boolean incrementalReloading;
+	private File file;
+
+	@Before
+	public void enable() throws IOException {
+		incrementalReloading = SkriptConfig.incrementalReloading.value();
+		setIncrementalReloading(true);
+		file = new File(Skript.getInstance().getScriptsFolder(), FILE_NAME).getCanonicalFile();
+	}
+
+	@Test
+	public void testKeptStructures() throws IOException {
+		write(
+			"on world save:",
+			"\tadd \"first\" to {" + VARIABLE + "}",
+			"on world save:",
+			"\tadd \"second\" to {" + VARIABLE + "}",
+			"on world save:",
+			"\tadd \"third\" to {" + VARIABLE + "}"
+		);
+		ScriptLoader.loadScripts(file, OpenCloseable.EMPTY).join();
+		Script script = ScriptLoader.getScript(file);
+		assertNotNull("the script was not loaded", script);
+		List<Structure> before = new ArrayList<>(script.getStructures());
+		assertEquals(3, before.size());
+
+		write(
+			"# two lines were added",
+			"# above the events",
+			"on world save:",
+			"\tadd \"first\" to {" + VARIABLE + "}",
+			"on world save:",
+			"\tadd \"changed second\" to {" + VARIABLE + "}",
+			"on world save:",
+			"\tadd \"third\" to {" + VARIABLE + "}"
+		);
+		ScriptLoader.reloadScript(script, OpenCloseable.EMPTY).join();
+		assertSame("the script was reloaded fully", script, ScriptLoader.getScript(file));
+
+		List<Structure> after = script.getStructures();
+		assertEquals(3, after.size());
+		assertSame("the first event was reloaded", before.get(0), after.get(0));
+		assertNotSame("the changed event was not reloaded", before.get(1), after.get(1));
+		assertSame("the third event was reloaded", before.get(2), after.get(2));
+		assertEquals(3, getLine(after.get(0)));
+		assertEquals(5, getLine(after.get(1)));
+		assertEquals(7, getLine(after.get(2)));
+
+		Bukkit.getPluginManager().callEvent(new WorldSaveEvent(getTestWorld()));
+		Object value = Variables.getVariable(VARIABLE, null, false);
+		assertNotNull("the events were not executed", value);
+		assertEquals("the events were not executed in the order of the script",
+			Arrays.asList("first", "changed second", "third"), new ArrayList<>(((Map<?, ?>) value).values()));
+	}
+
+	@After
+	public void disable() throws IOException {
+		if (file.isFile()) {
+			Script script = ScriptLoader.getScript(file);
+			if (script != null)
+				ScriptLoader.unloadScript(script);
+			Files.delete(file.toPath());
+		}
+		Variables.deleteVariable(VARIABLE, null, false);
+		setIncrementalReloading(incrementalReloading);
+	}
+
+	private void write(String... lines) throws IOException {
+		Files.write(file.toPath(), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static int getLine(Structure structure) {
+		SkriptEvent event = ((StructEvent) structure).getSkriptEvent();
+		assertNotNull("the event was not loaded", event.getTrigger());
+		return event.getTrigger().getLineNumber();
+	}
+
+	private static void setIncrementalReloading(boolean value) throws IOException {
+		Config config = new Config("incremental reloading: " + value, FILE_NAME, false, false, ":");
+		SkriptConfig.incrementalReloading.set(config, "");
+	}
+
+}
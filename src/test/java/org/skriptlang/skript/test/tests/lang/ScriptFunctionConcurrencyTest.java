@@ -0,0 +1,83 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package org.skriptlang.skript.test.tests.lang;
+
+import ch.njol.skript.lang.function.Function;
+import ch.njol.skript.lang.function.Functions;
+import ch.njol.skript.test.runner.SkriptJUnitTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Calls the same script functions from many threads at once,
+ * to make sure invocations don't see each other's return values.
+ * The functions are declared in skript/junit/ScriptFunctionConcurrency.sk.
+ */
+public class ScriptFunctionConcurrencyTest extends SkriptJUnitTest {
+
+	private static final int THREADS = 8;
+	private static final int CALLS = 2000;
+
+	@Test
+	public void concurrentReturnValues() throws Exception {
+		Function<?> doubleFunction = Functions.getGlobalFunction("junitConcurrentDouble");
+		Function<?> sumFunction = Functions.getGlobalFunction("junitConcurrentSum");
+		assertNotNull("junitConcurrentDouble was not loaded", doubleFunction);
+		assertNotNull("junitConcurrentSum was not loaded", sumFunction);
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < THREADS; thread++) {
+				futures.add(executor.submit(() -> {
+					for (int call = 0; call < CALLS; call++) {
+						long n = ThreadLocalRandom.current().nextLong(0, 30);
+						assertEquals("wrong return value of junitConcurrentDouble(" + n + ")",
+							n * 2, call(doubleFunction, n));
+						assertEquals("wrong return value of junitConcurrentSum(" + n + ")",
+							n * (n + 1) / 2, call(sumFunction, n));
+					}
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get(1, TimeUnit.MINUTES); // rethrows assertion failures
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static long call(Function<?> function, long argument) {
+		Object[] returnValues = function.execute(new Object[][] {{argument}});
+		function.resetReturnValue();
+		assertNotNull(function.getName() + "(" + argument + ") returned nothing", returnValues);
+		assertEquals(1, returnValues.length);
+		return ((Number) returnValues[0]).longValue();
+	}
+
+}